@@ -0,0 +1,88 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import br.com.navelogic.telegrambotassistenterpg.Repository.HistoricoRolagemRepository;
+import br.com.navelogic.telegrambotassistenterpg.Repository.MacroRolagemRepository;
+import br.com.navelogic.telegrambotassistenterpg.Service.AuditoriaRolagens;
+import br.com.navelogic.telegrambotassistenterpg.Service.HistoricoRolagemService;
+import br.com.navelogic.telegrambotassistenterpg.Service.MacroService;
+import br.com.navelogic.telegrambotassistenterpg.Service.MetricasBot;
+import br.com.navelogic.telegrambotassistenterpg.Service.ProbabilidadeService;
+import br.com.navelogic.telegrambotassistenterpg.Service.RolarDadosService;
+import br.com.navelogic.telegrambotassistenterpg.Service.SessaoService;
+import br.com.navelogic.telegrambotassistenterpg.Service.StartService;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaPorThread;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Despacho de comandos do {@link RPGBot}, do {@code consume} até a mensagem entrar
+ * na {@link FilaEnvio}, com um {@link ClienteTelegramFalso} no lugar da API do Telegram.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RPGBotBenchmark {
+
+	private static final int USUARIOS = 4096;
+
+	@Param({"/start", "/r 1d20+5", "/r 4d6sm1", "/prob 4d6sm1", "/desconhecido"})
+	public String texto;
+
+	private FilaEnvio filaEnvio;
+	private ConsultasInline consultasInline;
+	private HistoricoRolagemService historico;
+	private AuditoriaRolagens auditoria;
+	private RPGBot bot;
+	private Update[] updates;
+	private int proxima;
+
+	@Setup
+	public void preparar() throws IOException {
+		MetricasBot metricas = new MetricasBot(new SimpleMeterRegistry());
+		RolarDadosService rolarDadosService = new RolarDadosService(new FonteAleatoriaPorThread(), metricas, 1024, 1_000_000, 3_500);
+		filaEnvio = new FilaEnvio(new ClienteTelegramFalso().cliente(), 1e9, 1e9, 1_000_000, 1_000_000, 1, metricas);
+		historico = new HistoricoRolagemService(repositorioFalso(HistoricoRolagemRepository.class), 1_000_000, 1_000, 1_000);
+		auditoria = new AuditoriaRolagens(Files.createTempDirectory("auditoria-benchmark"), 64 << 20);
+		consultasInline = new ConsultasInline(new ClienteTelegramFalso().cliente(), rolarDadosService, metricas, 0);
+		bot = new RPGBot(filaEnvio, new StartService(), rolarDadosService, metricas, historico, auditoria,
+				new ProbabilidadeService(rolarDadosService, metricas, 256, 2_000),
+				new MacroService(repositorioFalso(MacroRolagemRepository.class), rolarDadosService, 1024,
+						Duration.ofHours(1), System::nanoTime, 50),
+				new SessaoService(1024, Duration.ofHours(1), System::nanoTime, 20), consultasInline,
+				new ControleTaxa(30_000, Duration.ofSeconds(1), 30_000, Duration.ofSeconds(1)));
+		// Usuários e chats variados para que os limites de taxa não barrem o caminho medido.
+		updates = new Update[USUARIOS];
+		for (int i = 0; i < USUARIOS; i++) {
+			updates[i] = Atualizacoes.mensagem(i, 1000L + i, 2000L + i, texto);
+		}
+	}
+
+	@TearDown
+	public void encerrar() {
+		filaEnvio.close();
+		consultasInline.close();
+		historico.close();
+		auditoria.close();
+	}
+
+	@Benchmark
+	public void consumir() {
+		bot.consume(updates[proxima++ & (USUARIOS - 1)]);
+	}
+
+	private static <T> T repositorioFalso(Class<T> tipo) {
+		return tipo.cast(Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo},
+				(proxy, metodo, argumentos) -> metodo.getReturnType() == Optional.class ? Optional.empty() : null));
+	}
+}
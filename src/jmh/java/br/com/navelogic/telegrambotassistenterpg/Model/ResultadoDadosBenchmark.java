@@ -0,0 +1,41 @@
+package br.com.navelogic.telegrambotassistenterpg.Model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montagem do texto de resposta em {@link ResultadoDados#toString()},
+ * de uma rolagem simples até uma com 1000 dados, que passa do limite do Telegram e é resumida.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultadoDadosBenchmark {
+
+	@Param({"1", "10", "1000"})
+	public int quantidadeDados;
+
+	private ResultadoDados resultado;
+
+	@Setup
+	public void preparar() {
+		int[] dados = new int[quantidadeDados];
+		int total = 0;
+		for (int i = 0; i < quantidadeDados; i++) {
+			dados[i] = (i * 7) % 20 + 1;
+			total += dados[i];
+		}
+		ParteResultado termo = new ParteResultado.Termo(quantidadeDados + "d20", total, 20, dados, null);
+		resultado = new ResultadoDados(total, List.of(termo), false);
+	}
+
+	@Benchmark
+	public String renderizar() {
+		return resultado.toString();
+	}
+}
@@ -0,0 +1,48 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoDados;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaPorThread;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo que a {@link AuditoriaRolagens} acrescenta a cada rolagem, com segmentos pequenos
+ * para que as rotações entrem na medida. Com várias threads ({@code -t 4}) mede também a
+ * disputa pelo bloqueio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditoriaRolagensBenchmark {
+
+	@Param({"1d20+5", "4d6sm1", "40d6"})
+	public String expressao;
+
+	private AuditoriaRolagens auditoria;
+	private ResultadoDados resultado;
+
+	@Setup
+	public void preparar() throws IOException {
+		RolarDadosService service = new RolarDadosService(new FonteAleatoriaPorThread(),
+				new MetricasBot(new SimpleMeterRegistry()), 1024, 1_000_000, 3_500);
+		resultado = service.rolarExpressao(expressao);
+		auditoria = new AuditoriaRolagens(Files.createTempDirectory("auditoria-benchmark"), 8 << 20);
+	}
+
+	@TearDown
+	public void encerrar() {
+		auditoria.close();
+	}
+
+	@Benchmark
+	public void registrar() {
+		auditoria.registrar(-1001234567890L, 123456789L, expressao, resultado);
+	}
+}
@@ -0,0 +1,57 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.ExpressaoDados;
+import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoDados;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaPorThread;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Análise, rolagem e modificadores do {@link RolarDadosService}.
+ *
+ * <ul>
+ *   <li>{@code rolarComando}: caminho completo do {@code /r}, com o cache de expressões quente;</li>
+ *   <li>{@code analisarExpressao}: só a análise, sem cache;</li>
+ *   <li>{@code rolarExpressaoCompilada}: só a rolagem e os modificadores.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RolarDadosBenchmark {
+
+	@Param({"1d20", "4d6sm1", "1000d100m10", "2d8 + 1d6 * 2 - 3", "10d10!>=8", "100000d10!>=8"})
+	public String expressao;
+
+	private RolarDadosService service;
+	private String comando;
+	private RolarDadosService.Plano compilada;
+
+	@Setup
+	public void preparar() {
+		service = new RolarDadosService(new FonteAleatoriaPorThread(),
+				new MetricasBot(new SimpleMeterRegistry()), 1024, 1_000_000, 3_500);
+		comando = "/r " + expressao;
+		compilada = service.preparar(expressao);
+	}
+
+	@Benchmark
+	public ResultadoDados rolarComando() {
+		return service.rolar(comando);
+	}
+
+	@Benchmark
+	public ExpressaoDados analisarExpressao() {
+		return AnalisadorExpressao.analisar(expressao);
+	}
+
+	@Benchmark
+	public ResultadoDados rolarExpressaoCompilada() {
+		return service.rolar(compilada);
+	}
+}
@@ -0,0 +1,31 @@
+package br.com.navelogic.telegrambotassistenterpg.Config;
+
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoria;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaDeterministica;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaPorThread;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaSegura;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Escolhe a {@link FonteAleatoria} das rolagens a partir de {@code dados.aleatorio.tipo}.
+ */
+@Slf4j
+@Configuration
+public class FonteAleatoriaConfig {
+
+    @Bean
+    public FonteAleatoria fonteAleatoria(
+            @Value("${dados.aleatorio.tipo:thread}") String tipo,
+            @Value("${dados.aleatorio.semente:0}") long semente) {
+        log.info("Fonte aleatória das rolagens: {}", tipo);
+        return switch (tipo) {
+            case "thread" -> new FonteAleatoriaPorThread();
+            case "seguro" -> new FonteAleatoriaSegura();
+            case "deterministico" -> new FonteAleatoriaDeterministica(semente);
+            default -> throw new IllegalArgumentException("Tipo de fonte aleatória desconhecido: " + tipo);
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package br.com.navelogic.telegrambotassistenterpg.Config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
+import org.telegram.telegrambots.meta.TelegramUrl;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.net.URI;
+
+/**
+ * Cliente HTTP da API do Telegram, compartilhado por quem envia mensagens.
+ *
+ * <p>Por padrão a API é a oficial; {@code telegram.api.url} aponta o cliente e o
+ * long polling para outro servidor, como um Bot API local ou o servidor falso
+ * usado no teste de carga.</p>
+ */
+@Configuration
+public class TelegramConfig {
+
+    @Bean
+    public TelegramUrl telegramUrl(@Value("${telegram.api.url:}") String url) {
+        if (url.isBlank()) {
+            return TelegramUrl.DEFAULT_URL;
+        }
+        URI uri = URI.create(url);
+        int porta = uri.getPort() != -1 ? uri.getPort() : "https".equals(uri.getScheme()) ? 443 : 80;
+        return new TelegramUrl(uri.getScheme(), uri.getHost(), porta, false);
+    }
+
+    @Bean
+    public TelegramClient telegramClient(@Value("${telegram.bot.token}") String botToken, TelegramUrl telegramUrl) {
+        return new OkHttpTelegramClient(botToken, telegramUrl);
+    }
+}
@@ -0,0 +1,33 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+
+import java.util.List;
+
+/**
+ * Um comando do bot, registrado no {@link RegistroComandos}.
+ *
+ * @param nome      nome principal, com a barra (por exemplo {@code /rolar})
+ * @param apelidos  outros nomes aceitos, com a barra (por exemplo {@code /r})
+ * @param descricao texto curto mostrado em /comandos
+ * @param acao      o que fazer quando o comando chega
+ */
+public record Comando(String nome, List<String> apelidos, String descricao, Acao acao) {
+
+    /**
+     * Executa um comando.
+     */
+    @FunctionalInterface
+    public interface Acao {
+        /**
+         * @param message    mensagem com o comando
+         * @param argumentos texto depois do comando, sem espaços nas pontas
+         * @return a resposta em HTML, ou {@code null} para não responder
+         */
+        String executar(Message message, String argumentos);
+    }
+
+    public Comando {
+        apelidos = List.copyOf(apelidos);
+    }
+}
@@ -0,0 +1,231 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoDados;
+import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoLote;
+import br.com.navelogic.telegrambotassistenterpg.Service.MetricasBot;
+import br.com.navelogic.telegrambotassistenterpg.Service.RolarDadosService;
+import br.com.navelogic.telegrambotassistenterpg.Util.TextoHtml;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.inputmessagecontent.InputTextMessageContent;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResultArticle;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Responde às consultas inline, como {@code @NomeDoBot 1d20+5} digitado em qualquer chat.
+ *
+ * <p>O Telegram manda uma consulta nova a cada tecla. Cada uma espera {@code bot.inline.espera-ms}
+ * e só é respondida se nenhuma mais nova do mesmo usuário chegou nesse tempo; as substituídas
+ * ficam sem resposta, como o próprio Telegram já as trata, então digitar não gera uma rolagem por
+ * tecla. Expressões já usadas no /r vêm compiladas do cache do {@link RolarDadosService}; as
+ * outras são analisadas sem entrar nele, para que os prefixos de cada tecla não tirem do cache
+ * as expressões do /r. Enquanto o texto ainda está pela metade ({@code 1d20+}), os operadores
+ * incompletos do fim são ignorados.</p>
+ *
+ * <p>A resposta tem um único resultado com a rolagem já feita: o título mostra o total e enviar o
+ * resultado publica exatamente essa rolagem. Ela vai com {@code cache_time} zero e como pessoal,
+ * para que o Telegram nunca mostre de novo uma rolagem antiga. Essas rolagens não entram no
+ * histórico nem na auditoria, porque o chat não é conhecido e a maioria nunca é enviada.</p>
+ *
+ * <p>Publica {@code bot.inline.consultas} (tag {@code resultado}) e o tempo da chegada da
+ * consulta até a resposta, com a espera, na etapa {@code inline} de {@code bot.etapa}.</p>
+ */
+@Slf4j
+@Component
+public class ConsultasInline implements AutoCloseable {
+
+    /** Caracteres que podem ficar pendentes no fim de uma expressão ainda sendo digitada. */
+    private static final String INCOMPLETOS = "+-*/;#>=rmsM ";
+    private static final int TAMANHO_DESCRICAO = 100;
+
+    private final TelegramClient telegramClient;
+    private final RolarDadosService rolarDadosService;
+    private final MetricasBot metricas;
+    private final Map<Long, InlineQuery> pendentes = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final Executor aposEspera;
+
+    private final AtomicLong respondidas = new AtomicLong();
+    private final AtomicLong substituidas = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+
+    @Autowired
+    public ConsultasInline(TelegramClient telegramClient, RolarDadosService rolarDadosService, MetricasBot metricas,
+            @Value("${bot.inline.espera-ms:80}") long esperaMs) {
+        this(telegramClient, rolarDadosService, metricas, Executors.newVirtualThreadPerTaskExecutor(), esperaMs);
+    }
+
+    private ConsultasInline(TelegramClient telegramClient, RolarDadosService rolarDadosService, MetricasBot metricas,
+            ExecutorService executor, long esperaMs) {
+        this(telegramClient, rolarDadosService, metricas, executor, esperaMs > 0
+                ? CompletableFuture.delayedExecutor(esperaMs, TimeUnit.MILLISECONDS, executor)
+                : executor);
+    }
+
+    /**
+     * @param executor   threads das respostas, encerradas em {@link #close()}
+     * @param aposEspera executa a resposta de cada consulta depois da espera
+     */
+    ConsultasInline(TelegramClient telegramClient, RolarDadosService rolarDadosService, MetricasBot metricas,
+            ExecutorService executor, Executor aposEspera) {
+        this.telegramClient = telegramClient;
+        this.rolarDadosService = rolarDadosService;
+        this.metricas = metricas;
+        this.executor = executor;
+        this.aposEspera = aposEspera;
+
+        MeterRegistry registro = metricas.getRegistro();
+        registrarContador(registro, "respondida", respondidas);
+        registrarContador(registro, "substituida", substituidas);
+        registrarContador(registro, "falha", falhas);
+    }
+
+    /**
+     * Agenda a resposta da consulta, substituindo a que o usuário ainda tiver pendente.
+     * Nunca bloqueia a thread de processamento.
+     */
+    public void receber(InlineQuery consulta) {
+        long inicio = System.nanoTime();
+        Long usuarioId = consulta.getFrom().getId();
+        if (pendentes.put(usuarioId, consulta) != null) {
+            substituidas.incrementAndGet();
+        }
+        aposEspera.execute(() -> {
+            if (pendentes.remove(usuarioId, consulta)) {
+                responder(consulta, inicio);
+            }
+        });
+    }
+
+    public long getRespondidas() {
+        return respondidas.get();
+    }
+
+    public long getSubstituidas() {
+        return substituidas.get();
+    }
+
+    public long getFalhas() {
+        return falhas.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void responder(InlineQuery consulta, long inicio) {
+        AnswerInlineQuery resposta = AnswerInlineQuery.builder()
+                .inlineQueryId(consulta.getId())
+                .results(resultados(consulta.getQuery().trim()))
+                .cacheTime(0)
+                .isPersonal(true)
+                .build();
+        metricas.registrar(MetricasBot.Etapa.INLINE, inicio);
+        try {
+            telegramClient.executeAsync(resposta).whenComplete((ok, erro) -> concluir(consulta, erro));
+        } catch (Exception e) {
+            concluir(consulta, e);
+        }
+    }
+
+    private void concluir(InlineQuery consulta, Throwable erro) {
+        if (erro == null) {
+            respondidas.incrementAndGet();
+            return;
+        }
+        // Consultas antigas, como as acumuladas durante um reinício, já não podem ser respondidas.
+        falhas.incrementAndGet();
+        log.warn("Erro ao responder a consulta inline {}: {}", consulta.getId(), erro.getMessage());
+    }
+
+    /**
+     * Rola a expressão digitada e monta o único resultado da resposta; sem texto não há resultados.
+     */
+    private List<InlineQueryResultArticle> resultados(String texto) {
+        if (texto.isEmpty()) {
+            return List.of();
+        }
+        ResultadoLote lote;
+        try {
+            lote = rolarCompleto(texto);
+        } catch (IllegalArgumentException e) {
+            String erro = e.getMessage();
+            return List.of(artigo("0", "Expressão inválida", erro, TextoHtml.escapar(erro)));
+        } catch (Exception e) {
+            metricas.erro(e);
+            log.error("Erro ao rolar a consulta inline '{}'", texto, e);
+            return List.of();
+        }
+        List<ResultadoDados> rolagens = lote.getGrupos().stream().flatMap(grupo -> grupo.rolagens().stream()).toList();
+        String titulo;
+        String descricao;
+        if (rolagens.size() == 1) {
+            titulo = "🎲 " + lote.getGrupos().get(0).expressao() + " = " + rolagens.get(0).getTotal();
+            descricao = rolagens.get(0).getVisual();
+        } else {
+            titulo = "🎲 " + texto;
+            descricao = String.join(", ", rolagens.stream().map(r -> r.getTotal().toString()).toList());
+        }
+        return List.of(artigo(Long.toHexString(rolagens.get(0).getSemente()), titulo, descricao, lote.toString()));
+    }
+
+    /**
+     * Rola o texto como está ou, se ele ainda não é uma expressão válida, sem os operadores
+     * incompletos do fim.
+     *
+     * @throws IllegalArgumentException com o erro do texto original se nenhum dos dois for válido
+     */
+    private ResultadoLote rolarCompleto(String texto) {
+        try {
+            return rolarDadosService.rolarPrevia(texto);
+        } catch (IllegalArgumentException e) {
+            int fim = texto.length();
+            while (fim > 0 && INCOMPLETOS.indexOf(texto.charAt(fim - 1)) >= 0) {
+                fim--;
+            }
+            if (fim == 0 || fim == texto.length()) {
+                throw e;
+            }
+            try {
+                return rolarDadosService.rolarPrevia(texto.substring(0, fim));
+            } catch (IllegalArgumentException prefixo) {
+                throw e;
+            }
+        }
+    }
+
+    private static InlineQueryResultArticle artigo(String id, String titulo, String descricao, String html) {
+        return InlineQueryResultArticle.builder()
+                .id(id)
+                .title(titulo)
+                .description(descricao.length() > TAMANHO_DESCRICAO
+                        ? descricao.substring(0, TAMANHO_DESCRICAO - 1) + "…"
+                        : descricao)
+                .inputMessageContent(InputTextMessageContent.builder().messageText(html).parseMode("HTML").build())
+                .build();
+    }
+
+    private static void registrarContador(MeterRegistry registro, String resultado, AtomicLong contador) {
+        FunctionCounter.builder("bot.inline.consultas", contador, AtomicLong::get)
+                .description("Consultas inline por resultado")
+                .tag("resultado", resultado)
+                .register(registro);
+    }
+}
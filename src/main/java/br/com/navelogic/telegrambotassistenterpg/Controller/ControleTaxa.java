@@ -0,0 +1,86 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import br.com.navelogic.telegrambotassistenterpg.Service.MetricasBot;
+import br.com.navelogic.telegrambotassistenterpg.Util.LimitadorTaxa;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Limites de mensagens por usuário ({@code bot.limite.usuario.*}) e por chat ({@code bot.limite.chat.*}),
+ * verificados pelo {@link RPGBot} antes de qualquer processamento.
+ *
+ * <p>O limite do usuário é verificado primeiro; mensagens recusadas por ele não gastam a cota do chat.
+ * Cada limite avisa uma única vez enquanto a chave continuar acima dele.</p>
+ */
+@Component
+public class ControleTaxa {
+
+    /**
+     * Resultado da verificação de uma mensagem.
+     */
+    public enum Resultado {
+        PERMITIDO,
+        AVISAR_USUARIO,
+        AVISAR_CHAT,
+        BLOQUEADO
+    }
+
+    private final LimitadorTaxa porUsuario;
+    private final LimitadorTaxa porChat;
+
+    @Autowired
+    public ControleTaxa(@Value("${bot.limite.usuario.mensagens:20}") int mensagensPorUsuario,
+            @Value("${bot.limite.usuario.janela-s:60}") long janelaUsuarioSegundos,
+            @Value("${bot.limite.chat.mensagens:60}") int mensagensPorChat,
+            @Value("${bot.limite.chat.janela-s:60}") long janelaChatSegundos,
+            MetricasBot metricas) {
+        this(mensagensPorUsuario, Duration.ofSeconds(janelaUsuarioSegundos),
+                mensagensPorChat, Duration.ofSeconds(janelaChatSegundos));
+        MeterRegistry registro = metricas.getRegistro();
+        Gauge.builder("bot.limite.chaves", porUsuario, LimitadorTaxa::tamanho)
+                .description("Chaves acompanhadas pelos limites de mensagens").tag("escopo", "usuario")
+                .register(registro);
+        Gauge.builder("bot.limite.chaves", porChat, LimitadorTaxa::tamanho)
+                .description("Chaves acompanhadas pelos limites de mensagens").tag("escopo", "chat")
+                .register(registro);
+    }
+
+    public ControleTaxa(int mensagensPorUsuario, Duration janelaUsuario, int mensagensPorChat, Duration janelaChat) {
+        long agora = System.nanoTime();
+        this.porUsuario = new LimitadorTaxa(mensagensPorUsuario, janelaUsuario, agora);
+        this.porChat = new LimitadorTaxa(mensagensPorChat, janelaChat, agora);
+    }
+
+    /**
+     * Conta uma mensagem do usuário no chat.
+     *
+     * @param usuarioId Usuário que enviou, ou {@code null} se desconhecido
+     * @param chatId    Chat de origem
+     * @return a decisão para a mensagem
+     */
+    public Resultado verificar(Long usuarioId, long chatId) {
+        long agora = System.nanoTime();
+        if (usuarioId != null) {
+            switch (porUsuario.verificar(usuarioId, agora)) {
+                case AVISAR -> {
+                    return Resultado.AVISAR_USUARIO;
+                }
+                case BLOQUEADO -> {
+                    return Resultado.BLOQUEADO;
+                }
+                case PERMITIDO -> {
+                }
+            }
+        }
+        return switch (porChat.verificar(chatId, agora)) {
+            case PERMITIDO -> Resultado.PERMITIDO;
+            case AVISAR -> Resultado.AVISAR_CHAT;
+            case BLOQUEADO -> Resultado.BLOQUEADO;
+        };
+    }
+}
@@ -0,0 +1,403 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import br.com.navelogic.telegrambotassistenterpg.Service.MetricasBot;
+import br.com.navelogic.telegrambotassistenterpg.Util.BaldeTokens;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fila assíncrona de mensagens de saída, respeitando os limites de envio do Telegram.
+ *
+ * <p>Cada chat tem a sua fila e o seu balde de tokens ({@code bot.envio.chat-por-segundo}),
+ * e todos os envios passam ainda por um balde global ({@code bot.envio.global-por-segundo}).
+ * Um despachante em thread virtual escolhe o próximo chat pronto e envia pelo
+ * {@code executeAsync}, com no máximo uma mensagem em voo por chat para manter a ordem.</p>
+ *
+ * <ul>
+ *   <li>Respostas 429 suspendem o chat pelo {@code retry_after} informado e a mensagem é reenviada.</li>
+ *   <li>Falhas de rede e respostas 5xx são repetidas com espera exponencial até
+ *   {@code bot.envio.max-tentativas}.</li>
+ *   <li>Os outros erros, como 400 (chat inexistente) ou 403 (bot bloqueado), não mudam com
+ *   novas tentativas: a mensagem é descartada na hora, sem prender a fila do chat.</li>
+ *   <li>Quando a fila de um chat passa de {@code bot.envio.max-pendentes-por-chat}, a nova mensagem
+ *   é juntada à última pendente, se couber em uma mensagem do Telegram; senão a mais antiga é descartada.</li>
+ * </ul>
+ *
+ * <p>Publica no Micrometer o tamanho da fila ({@code bot.envio.fila}), os contadores
+ * {@code bot.envio.mensagens} (tag {@code resultado}) e a latência de envio ({@code bot.envio.latencia}).</p>
+ */
+@Slf4j
+@Component
+public class FilaEnvio implements AutoCloseable {
+
+    static final int TAMANHO_MAXIMO_MENSAGEM = 4096;
+    private static final long ESPERA_BASE_ERRO_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long INTERVALO_LIMPEZA_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final TelegramClient telegramClient;
+    private final BaldeTokens baldeGlobal;
+    private final double chatPorSegundo;
+    private final int rajadaChat;
+    private final int maxPendentesPorChat;
+    private final int maxTentativas;
+
+    private final Map<Long, EstadoChat> chats = new ConcurrentHashMap<>();
+    private final DelayQueue<EstadoChat> prontos = new DelayQueue<>();
+    private final Thread despachante;
+    private volatile boolean encerrado;
+
+    private final AtomicInteger pendentes = new AtomicInteger();
+    private final AtomicLong enviadas = new AtomicLong();
+    private final AtomicLong respostas429 = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private final AtomicLong juntadas = new AtomicLong();
+    private final Timer latencia;
+
+    @Autowired
+    public FilaEnvio(TelegramClient telegramClient,
+            @Value("${bot.envio.global-por-segundo:30}") double globalPorSegundo,
+            @Value("${bot.envio.chat-por-segundo:1}") double chatPorSegundo,
+            @Value("${bot.envio.rajada-chat:3}") int rajadaChat,
+            @Value("${bot.envio.max-pendentes-por-chat:20}") int maxPendentesPorChat,
+            @Value("${bot.envio.max-tentativas:3}") int maxTentativas,
+            MetricasBot metricas) {
+        this.telegramClient = telegramClient;
+        this.baldeGlobal = new BaldeTokens(globalPorSegundo, globalPorSegundo, System.nanoTime());
+        this.chatPorSegundo = chatPorSegundo;
+        this.rajadaChat = rajadaChat;
+        this.maxPendentesPorChat = maxPendentesPorChat;
+        this.maxTentativas = maxTentativas;
+        this.latencia = registrarMetricas(metricas.getRegistro());
+        this.despachante = Thread.ofVirtual().name("despachante-envio").start(this::despachar);
+    }
+
+    /**
+     * Enfileira uma mensagem para o chat. Nunca bloqueia a thread de processamento.
+     *
+     * @param chatId   Chat de destino
+     * @param mensagem Mensagem a ser enviada
+     */
+    public void enviar(long chatId, SendMessage mensagem) {
+        if (encerrado) {
+            log.warn("Mensagem para o chat {} descartada: fila de envio encerrada", chatId);
+            descartadas.incrementAndGet();
+            return;
+        }
+        while (true) {
+            EstadoChat chat = chats.computeIfAbsent(chatId, EstadoChat::new);
+            boolean agendar;
+            synchronized (chat) {
+                if (chat.removido) {
+                    continue;
+                }
+                adicionar(chat, mensagem);
+                agendar = !chat.ativo;
+                chat.ativo = true;
+            }
+            if (agendar) {
+                agendar(chat, System.nanoTime());
+            }
+            return;
+        }
+    }
+
+    public int getTamanhoFila() {
+        return pendentes.get();
+    }
+
+    public long getEnviadas() {
+        return enviadas.get();
+    }
+
+    public long getRespostas429() {
+        return respostas429.get();
+    }
+
+    public long getFalhas() {
+        return falhas.get();
+    }
+
+    public long getDescartadas() {
+        return descartadas.get();
+    }
+
+    public long getJuntadas() {
+        return juntadas.get();
+    }
+
+    /**
+     * @return latência média de envio (ida e volta ao Telegram) em milissegundos
+     */
+    public double getLatenciaMediaMs() {
+        return latencia.mean(TimeUnit.MILLISECONDS);
+    }
+
+    public double getLatenciaMaximaMs() {
+        return latencia.max(TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Para de aceitar mensagens e espera o envio das pendentes por alguns segundos.
+     */
+    @Override
+    public void close() {
+        if (encerrado) {
+            return;
+        }
+        encerrado = true;
+        log.info("Encerrando fila de envio ({} pendentes)", pendentes.get());
+        try {
+            if (!despachante.join(Duration.ofSeconds(10))) {
+                despachante.interrupt();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            despachante.interrupt();
+        }
+    }
+
+    private Timer registrarMetricas(MeterRegistry registro) {
+        Gauge.builder("bot.envio.fila", pendentes, AtomicInteger::get)
+                .description("Mensagens aguardando envio ao Telegram")
+                .register(registro);
+        registrarContador(registro, "enviada", enviadas);
+        registrarContador(registro, "429", respostas429);
+        registrarContador(registro, "falha", falhas);
+        registrarContador(registro, "descartada", descartadas);
+        registrarContador(registro, "juntada", juntadas);
+        return Timer.builder("bot.envio.latencia")
+                .description("Tempo de ida e volta de um envio ao Telegram")
+                .publishPercentileHistogram()
+                .register(registro);
+    }
+
+    private static void registrarContador(MeterRegistry registro, String resultado, AtomicLong contador) {
+        FunctionCounter.builder("bot.envio.mensagens", contador, AtomicLong::get)
+                .description("Mensagens de saída por resultado")
+                .tag("resultado", resultado)
+                .register(registro);
+    }
+
+    private void adicionar(EstadoChat chat, SendMessage mensagem) {
+        Deque<Envio> fila = chat.fila;
+        if (fila.size() >= maxPendentesPorChat) {
+            Envio ultimo = fila.peekLast();
+            if (ultimo != null && ultimo != chat.emVoo && podeJuntar(ultimo.mensagem, mensagem)) {
+                ultimo.mensagem = juntar(ultimo.mensagem, mensagem);
+                juntadas.incrementAndGet();
+                return;
+            }
+            Envio descartado = chat.emVoo != null && chat.emVoo == fila.peekFirst() ? removerSegundo(fila) : fila.pollFirst();
+            if (descartado != null) {
+                pendentes.decrementAndGet();
+                descartadas.incrementAndGet();
+                log.warn("Fila do chat {} cheia, mensagem antiga descartada", chat.chatId);
+            }
+        }
+        fila.addLast(new Envio(mensagem));
+        pendentes.incrementAndGet();
+    }
+
+    private static Envio removerSegundo(Deque<Envio> fila) {
+        Iterator<Envio> iterador = fila.iterator();
+        iterador.next();
+        if (!iterador.hasNext()) {
+            return null;
+        }
+        Envio segundo = iterador.next();
+        iterador.remove();
+        return segundo;
+    }
+
+    private static boolean podeJuntar(SendMessage a, SendMessage b) {
+        return Objects.equals(a.getParseMode(), b.getParseMode())
+                && a.getText().length() + b.getText().length() + 2 <= TAMANHO_MAXIMO_MENSAGEM;
+    }
+
+    private static SendMessage juntar(SendMessage a, SendMessage b) {
+        return SendMessage.builder()
+                .chatId(a.getChatId())
+                .text(a.getText() + "\n\n" + b.getText())
+                .parseMode(a.getParseMode())
+                .build();
+    }
+
+    private void agendar(EstadoChat chat, long quando) {
+        chat.prontoEm = quando;
+        prontos.put(chat);
+    }
+
+    private void despachar() {
+        long proximaLimpeza = System.nanoTime() + INTERVALO_LIMPEZA_NANOS;
+        try {
+            while (!encerrado || pendentes.get() > 0) {
+                EstadoChat chat = prontos.poll(100, TimeUnit.MILLISECONDS);
+                long agora = System.nanoTime();
+                if (agora - proximaLimpeza > 0) {
+                    limparChatsOciosos(agora);
+                    proximaLimpeza = agora + INTERVALO_LIMPEZA_NANOS;
+                }
+                if (chat == null) {
+                    continue;
+                }
+                long espera = Math.max(baldeGlobal.esperaNanos(agora), chat.balde.esperaNanos(agora));
+                if (espera > 0) {
+                    agendar(chat, agora + espera);
+                    continue;
+                }
+                Envio envio;
+                synchronized (chat) {
+                    envio = chat.fila.peekFirst();
+                    if (envio == null) {
+                        chat.ativo = false;
+                        continue;
+                    }
+                    chat.emVoo = envio;
+                }
+                baldeGlobal.consumir(agora);
+                chat.balde.consumir(agora);
+                executar(chat, envio, agora);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void executar(EstadoChat chat, Envio envio, long inicio) {
+        try {
+            telegramClient.executeAsync(envio.mensagem)
+                    .whenComplete((resposta, erro) -> concluir(chat, envio, inicio, erro));
+        } catch (Exception e) {
+            concluir(chat, envio, inicio, e);
+        }
+    }
+
+    private void concluir(EstadoChat chat, Envio envio, long inicio, Throwable erro) {
+        long agora = System.nanoTime();
+        long proximo = agora;
+        Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+        boolean remover;
+        if (causa == null) {
+            enviadas.incrementAndGet();
+            latencia.record(agora - inicio, TimeUnit.NANOSECONDS);
+            remover = true;
+        } else if (causa instanceof TelegramApiRequestException requisicao
+                && Integer.valueOf(429).equals(requisicao.getErrorCode())) {
+            respostas429.incrementAndGet();
+            int retryAfter = requisicao.getParameters() != null && requisicao.getParameters().getRetryAfter() != null
+                    ? requisicao.getParameters().getRetryAfter() : 1;
+            log.warn("Limite do Telegram atingido no chat {}, aguardando {}s", chat.chatId, retryAfter);
+            proximo = agora + TimeUnit.SECONDS.toNanos(retryAfter);
+            remover = false;
+        } else if (!temporario(causa)) {
+            log.warn("Erro permanente ao enviar mensagem para o chat {}, mensagem descartada: {}",
+                    chat.chatId, causa.getMessage());
+            falhas.incrementAndGet();
+            remover = true;
+        } else if (++envio.tentativas >= maxTentativas) {
+            log.error("Erro ao enviar mensagem para o chat {}, desistindo após {} tentativas",
+                    chat.chatId, envio.tentativas, causa);
+            falhas.incrementAndGet();
+            remover = true;
+        } else {
+            log.warn("Erro ao enviar mensagem para o chat {} (tentativa {})", chat.chatId, envio.tentativas, causa);
+            proximo = agora + (ESPERA_BASE_ERRO_NANOS << (envio.tentativas - 1));
+            remover = false;
+        }
+
+        synchronized (chat) {
+            chat.emVoo = null;
+            if (remover) {
+                chat.fila.pollFirst();
+                pendentes.decrementAndGet();
+            }
+            if (chat.fila.isEmpty()) {
+                chat.ativo = false;
+                return;
+            }
+        }
+        agendar(chat, proximo);
+    }
+
+    /**
+     * Indica se o erro pode passar com uma nova tentativa: falhas de rede e respostas 5xx, ou
+     * sem código, como a página de erro de um proxy.
+     */
+    private static boolean temporario(Throwable causa) {
+        if (causa instanceof TelegramApiRequestException requisicao) {
+            return requisicao.getErrorCode() == null || requisicao.getErrorCode() >= 500;
+        }
+        return causa instanceof IOException || causa.getCause() instanceof IOException;
+    }
+
+    private void limparChatsOciosos(long agora) {
+        chats.values().removeIf(chat -> {
+            synchronized (chat) {
+                if (!chat.ativo && chat.fila.isEmpty() && chat.balde.cheio(agora)) {
+                    chat.removido = true;
+                    return true;
+                }
+                return false;
+            }
+        });
+    }
+
+    private static final class Envio {
+        private SendMessage mensagem;
+        private int tentativas;
+
+        Envio(SendMessage mensagem) {
+            this.mensagem = mensagem;
+        }
+    }
+
+    private final class EstadoChat implements Delayed {
+        private final long chatId;
+        private final Deque<Envio> fila = new ArrayDeque<>();
+        private final BaldeTokens balde;
+        private Envio emVoo;
+        private boolean ativo;
+        private boolean removido;
+        private volatile long prontoEm;
+
+        EstadoChat(long chatId) {
+            this.chatId = chatId;
+            this.balde = new BaldeTokens(rajadaChat, chatPorSegundo, System.nanoTime());
+        }
+
+        @Override
+        public long getDelay(TimeUnit unidade) {
+            return unidade.convert(prontoEm - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed outro) {
+            return Long.compare(prontoEm, ((EstadoChat) outro).prontoEm);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import br.com.navelogic.telegrambotassistenterpg.Service.MetricasBot;
+import io.micrometer.core.instrument.Gauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.longpolling.interfaces.LongPollingUpdateConsumer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Distribui as atualizações recebidas do Telegram entre faixas seriais em threads virtuais.
+ *
+ * <p>Cada chat é sempre atendido pela mesma faixa (escolhida pelo hash do id do chat),
+ * então as mensagens de um chat são processadas na ordem em que chegaram, enquanto
+ * chats de faixas diferentes seguem em paralelo. Uma resposta lenta do Telegram em um
+ * chat só atrasa os chats que caem na mesma faixa.</p>
+ *
+ * <p>O número de faixas ({@code bot.processamento.faixas}) e a capacidade da fila de cada
+ * uma ({@code bot.processamento.fila}) são limitados. Quando a fila de uma faixa está cheia,
+ * o recebimento espera até {@code bot.processamento.espera-fila-ms} e então descarta a
+ * atualização, registrando um aviso. O total pendente é publicado em {@code bot.processamento.fila}.</p>
+ *
+ * <p>Os lotes do long polling passam antes pela {@link RecuperacaoAtraso}, que descarta as
+ * atualizações repetidas depois de um reinício e, com atualizações acumuladas, entrega as
+ * atrasadas de cada chat juntas, na faixa do chat, em uma única tarefa.</p>
+ */
+@Slf4j
+@Component
+public class ProcessadorAtualizacoes implements LongPollingUpdateConsumer, AutoCloseable {
+
+    private static final Object FIM = new Object();
+    private static final long ESPERA_ENCERRAMENTO_MS = 10_000;
+
+    /** Atualizações atrasadas de um chat, processadas juntas. */
+    private record Atrasadas(List<Update> updates) {
+    }
+
+    private final Consumer<Update> processador;
+    private final Consumer<List<Update>> processadorAtrasadas;
+    private final RecuperacaoAtraso recuperacao;
+    private final Faixa[] faixas;
+    private final long esperaFilaMs;
+    private volatile boolean encerrado;
+
+    @Autowired
+    public ProcessadorAtualizacoes(RPGBot rpgBot, RecuperacaoAtraso recuperacao,
+            @Value("${bot.processamento.faixas:64}") int quantidadeFaixas,
+            @Value("${bot.processamento.fila:1000}") int capacidadeFila,
+            @Value("${bot.processamento.espera-fila-ms:5000}") long esperaFilaMs,
+            MetricasBot metricas) {
+        this(rpgBot::consume, rpgBot::consumirAtrasadas, recuperacao, quantidadeFaixas, capacidadeFila, esperaFilaMs);
+        Gauge.builder("bot.processamento.fila", this, ProcessadorAtualizacoes::getTamanhoFila)
+                .description("Atualizações aguardando processamento em todas as faixas")
+                .register(metricas.getRegistro());
+    }
+
+    public ProcessadorAtualizacoes(Consumer<Update> processador, int quantidadeFaixas, int capacidadeFila,
+            long esperaFilaMs) {
+        this(processador, null, null, quantidadeFaixas, capacidadeFila, esperaFilaMs);
+    }
+
+    /**
+     * @param processadorAtrasadas recebe as atualizações atrasadas de um chat, juntas
+     * @param recuperacao          recuperação depois de um reinício, ou {@code null} para
+     *                             enfileirar os lotes como chegam
+     */
+    public ProcessadorAtualizacoes(Consumer<Update> processador, Consumer<List<Update>> processadorAtrasadas,
+            RecuperacaoAtraso recuperacao, int quantidadeFaixas, int capacidadeFila, long esperaFilaMs) {
+        if (quantidadeFaixas <= 0 || capacidadeFila <= 0) {
+            throw new IllegalArgumentException("O número de faixas e a capacidade da fila devem ser maiores que zero.");
+        }
+        this.processador = processador;
+        this.processadorAtrasadas = processadorAtrasadas;
+        this.recuperacao = recuperacao;
+        this.esperaFilaMs = esperaFilaMs;
+        this.faixas = new Faixa[quantidadeFaixas];
+        for (int i = 0; i < quantidadeFaixas; i++) {
+            faixas[i] = new Faixa(i, capacidadeFila);
+        }
+    }
+
+    /**
+     * Recebe um lote de atualizações do long polling e as enfileira nas faixas.
+     *
+     * @param updates Atualizações recebidas do Telegram
+     */
+    @Override
+    public void consume(List<Update> updates) {
+        if (recuperacao == null) {
+            for (Update update : updates) {
+                enfileirar(update);
+            }
+            return;
+        }
+        recuperacao.distribuir(updates, this::enfileirar,
+                atrasadas -> enfileirar(atrasadas.get(0), new Atrasadas(atrasadas)));
+    }
+
+    /**
+     * Enfileira uma atualização na faixa do seu chat.
+     *
+     * @param update Atualização recebida do Telegram
+     * @return {@code false} se a atualização foi descartada
+     */
+    public boolean enfileirar(Update update) {
+        return enfileirar(update, update);
+    }
+
+    /**
+     * @param update atualização que define a faixa e identifica a tarefa no log
+     * @param tarefa a própria atualização ou um grupo de atrasadas
+     */
+    private boolean enfileirar(Update update, Object tarefa) {
+        if (encerrado) {
+            log.warn("Atualização {} ignorada: processador encerrado", update.getUpdateId());
+            return false;
+        }
+        Faixa faixa = faixas[Math.floorMod(Long.hashCode(chave(update)), faixas.length)];
+        try {
+            if (faixa.fila.offer(tarefa, esperaFilaMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            log.warn("Fila da faixa {} cheia, atualização {} descartada", faixa.indice, update.getUpdateId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * @return total de atualizações aguardando em todas as faixas
+     */
+    public int getTamanhoFila() {
+        int total = 0;
+        for (Faixa faixa : faixas) {
+            total += faixa.fila.size();
+        }
+        return total;
+    }
+
+    /**
+     * Para de aceitar atualizações, processa o que já está nas filas e encerra as faixas.
+     * Faixas que não terminarem dentro do prazo são interrompidas.
+     */
+    @Override
+    public void close() {
+        encerrar(Duration.ofMillis(ESPERA_ENCERRAMENTO_MS));
+    }
+
+    /**
+     * Encerra esperando no máximo {@code espera} no total. Uma faixa com a fila cheia atrás de uma
+     * tarefa lenta não aceita o aviso de fim a tempo: ela é interrompida e descarta o que restou
+     * na fila, em vez de prender o encerramento.
+     */
+    void encerrar(Duration espera) {
+        if (encerrado) {
+            return;
+        }
+        encerrado = true;
+        log.info("Encerrando processador de atualizações ({} pendentes)", getTamanhoFila());
+        long limite = System.nanoTime() + espera.toNanos();
+        try {
+            for (Faixa faixa : faixas) {
+                if (!faixa.fila.offer(FIM, limite - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    faixa.interromper();
+                }
+            }
+            for (Faixa faixa : faixas) {
+                long restante = limite - System.nanoTime();
+                if (restante <= 0 || !faixa.thread.join(Duration.ofNanos(restante))) {
+                    faixa.interromper();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (Faixa faixa : faixas) {
+                faixa.interromper();
+            }
+        }
+    }
+
+    /**
+     * Chave de ordenação da atualização: o chat de origem ou, para atualizações sem chat,
+     * o usuário que a enviou.
+     */
+    static long chave(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasEditedMessage()) {
+            return update.getEditedMessage().getChatId();
+        }
+        if (update.hasCallbackQuery()) {
+            return update.getCallbackQuery().getFrom().getId();
+        }
+        if (update.hasInlineQuery()) {
+            return update.getInlineQuery().getFrom().getId();
+        }
+        return update.getUpdateId() == null ? 0 : update.getUpdateId();
+    }
+
+    private final class Faixa implements Runnable {
+        private final int indice;
+        private final BlockingQueue<Object> fila;
+        private final Thread thread;
+        private volatile boolean interrompida;
+
+        Faixa(int indice, int capacidade) {
+            this.indice = indice;
+            this.fila = new ArrayBlockingQueue<>(capacidade);
+            this.thread = Thread.ofVirtual().name("faixa-" + indice).start(this);
+        }
+
+        /**
+         * Interrompe a tarefa atual e para a faixa sem processar o resto da fila, mesmo que a
+         * tarefa engula a interrupção.
+         */
+        void interromper() {
+            if (!interrompida) {
+                interrompida = true;
+                log.warn("Faixa {} interrompida no encerramento, {} atualizações descartadas", indice, fila.size());
+            }
+            thread.interrupt();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!interrompida) {
+                    Object tarefa = fila.take();
+                    if (tarefa == FIM) {
+                        return;
+                    }
+                    try {
+                        if (tarefa instanceof Atrasadas atrasadas) {
+                            processadorAtrasadas.accept(atrasadas.updates());
+                        } else {
+                            processador.accept((Update) tarefa);
+                        }
+                    } catch (Exception e) {
+                        Update update = tarefa instanceof Atrasadas atrasadas ? atrasadas.updates().get(0) : (Update) tarefa;
+                        log.error("Erro ao processar a atualização {}", update.getUpdateId(), e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -1,96 +1,611 @@
 package br.com.navelogic.telegrambotassistenterpg.Controller;
 
+import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoDados;
+import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoLote;
+import br.com.navelogic.telegrambotassistenterpg.Model.MacroRolagem;
+import br.com.navelogic.telegrambotassistenterpg.Model.OrdemIniciativa;
+import br.com.navelogic.telegrambotassistenterpg.Model.SessaoChat;
+import br.com.navelogic.telegrambotassistenterpg.Service.AuditoriaRolagens;
+import br.com.navelogic.telegrambotassistenterpg.Service.HistoricoRolagemService;
+import br.com.navelogic.telegrambotassistenterpg.Service.MacroService;
+import br.com.navelogic.telegrambotassistenterpg.Service.MetricasBot;
+import br.com.navelogic.telegrambotassistenterpg.Service.ProbabilidadeService;
 import br.com.navelogic.telegrambotassistenterpg.Service.RolarDadosService;
+import br.com.navelogic.telegrambotassistenterpg.Service.SessaoService;
 import br.com.navelogic.telegrambotassistenterpg.Service.StartService;
+import br.com.navelogic.telegrambotassistenterpg.Util.TextoHtml;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
-import org.telegram.telegrambots.longpolling.util.LongPollingSingleThreadUpdateConsumer;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.MessageEntity;
 import org.telegram.telegrambots.meta.api.objects.message.Message;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Bot de Telegram de uso geral.
  *
  * Gerencia comandos pelo Telegram, processando
  * e retornando dados para os usuários.
+ *
+ * As atualizações chegam pelo {@link ProcessadorAtualizacoes}, que chama
+ * {@link #consume(Update)} em paralelo para chats diferentes e em ordem
+ * dentro de cada chat. Antes de qualquer processamento, o {@link ControleTaxa}
+ * limita as mensagens por usuário e por chat.
+ *
+ * Os comandos ficam em um {@link RegistroComandos}: cada um tem nome, apelidos,
+ * descrição e ação, e /comandos é gerado a partir do próprio registro.
+ *
+ * Comandos fora do registro são procurados entre as macros do chat
+ * ({@link MacroService}), criadas com /macro nome = expressão.
+ *
+ * Depois de um reinício com mensagens acumuladas, as atrasadas de cada chat
+ * chegam juntas em {@link #consumirAtrasadas(List)} ({@link RecuperacaoAtraso}).
+ *
+ * O estado que precisa durar entre mensagens, como a ordem de iniciativa do
+ * /init, fica na sessão do chat ({@link SessaoService}), só em memória.
+ *
+ * Consultas inline (@NomeDoBot 1d20+5) vão para as {@link ConsultasInline}; os
+ * outros tipos de atualização sem mensagem são apenas contados e descartados.
  */
 @Slf4j
 @Component
-public class RPGBot implements LongPollingSingleThreadUpdateConsumer {
+public class RPGBot {
     // Comandos
     private static final String COMANDO_START = "/start";
     private static final String COMANDO_COMANDOS = "/comandos";
     private static final String COMANDO_C = "/c";
     private static final String COMANDO_ROLAR = "/rolar";
     private static final String COMANDO_R = "/r";
+    private static final String COMANDO_PROB = "/prob";
+    private static final String COMANDO_MACRO = "/macro";
+    private static final String MACRO_APAGAR = "apagar";
+    private static final String COMANDO_INIT = "/init";
+    private static final String INIT_ADICIONAR = "add";
+    private static final String INIT_PROXIMO = "next";
+    private static final String INIT_REMOVER = "remover";
+    private static final String INIT_LIMPAR = "limpar";
+    private static final String INIT_EXPRESSAO_PADRAO = "1d20";
+    private static final String MENSAGEM_INIT = "Use /init add nome expressão, por exemplo /init add Goblin 1d20+2, "
+            + "e /init next para passar a vez.";
 
     // Clientes e serviços
-    private final TelegramClient telegramClient;
+    private final FilaEnvio filaEnvio;
     private final StartService startService;
     private final RolarDadosService rolarDadosService;
+    private final MetricasBot metricas;
+    private final HistoricoRolagemService historicoRolagem;
+    private final AuditoriaRolagens auditoria;
+    private final ProbabilidadeService probabilidadeService;
+    private final MacroService macroService;
+    private final SessaoService sessaoService;
+    private final ConsultasInline consultasInline;
+    private final ControleTaxa controleTaxa;
+    private final RegistroComandos comandos;
 
     /**
-     * Construtor que inicializa o bot com um token de autenticação.
+     * Construtor que recebe a fila de envio e os serviços do bot.
      *
-     * @param botToken Token de autenticação do Telegram
+     * @param filaEnvio Fila pela qual as respostas são enviadas ao Telegram
+     * @param usuarioBot Nome de usuário do bot, para reconhecer {@code /r@usuario} em grupos
      */
-    public RPGBot(@Value("${telegram.bot.token}") String botToken, 
+    @Autowired
+    public RPGBot(FilaEnvio filaEnvio,
     StartService startService, 
-    RolarDadosService rolarDadosService) {
-        this.telegramClient = new OkHttpTelegramClient(botToken);
-        this.startService = new StartService();
-        this.rolarDadosService = new RolarDadosService();
+    RolarDadosService rolarDadosService,
+    MetricasBot metricas,
+    HistoricoRolagemService historicoRolagem,
+    AuditoriaRolagens auditoria,
+    ProbabilidadeService probabilidadeService,
+    MacroService macroService,
+    SessaoService sessaoService,
+    ConsultasInline consultasInline,
+    ControleTaxa controleTaxa,
+    @Value("${telegram.bot.usuario:}") String usuarioBot) {
+        this.filaEnvio = filaEnvio;
+        this.startService = startService;
+        this.rolarDadosService = rolarDadosService;
+        this.metricas = metricas;
+        this.historicoRolagem = historicoRolagem;
+        this.auditoria = auditoria;
+        this.probabilidadeService = probabilidadeService;
+        this.macroService = macroService;
+        this.sessaoService = sessaoService;
+        this.consultasInline = consultasInline;
+        this.controleTaxa = controleTaxa;
+        this.comandos = new RegistroComandos(usuarioBot);
+        comandos.registrar(new Comando(COMANDO_START, List.of(), "Apresenta o bot.",
+                (message, argumentos) -> startService.start()));
+        comandos.registrar(new Comando(COMANDO_COMANDOS, List.of(COMANDO_C), "Lista os comandos disponíveis.",
+                (message, argumentos) -> comandos.ajuda()));
+        comandos.registrar(new Comando(COMANDO_ROLAR, List.of(COMANDO_R),
+                "Rola dados, por exemplo /r 2d20m1+5 (m, mm, sM e sm mantêm ou soltam dados). "
+                        + "Paradas: /r 10d10>=8 conta sucessos, ! explode e r2 rerrola até 2. "
+                        + "Várias de uma vez: /r 6# 1d20+5; 2d6.", this::rolar));
+        comandos.registrar(new Comando(COMANDO_PROB, List.of(),
+                "Mostra a distribuição exata de uma expressão, por exemplo /prob 4d6sm1.",
+                (message, argumentos) -> probabilidadeService.calcularExpressao(argumentos).toString()));
+        comandos.registrar(new Comando(COMANDO_MACRO, List.of(),
+                "Cria ou altera uma macro do chat, por exemplo /macro ataque = 1d20+7, que depois rola com /ataque. "
+                        + "Sem argumentos lista as macros; /macro apagar ataque apaga.", this::macro));
+        comandos.registrar(new Comando(COMANDO_INIT, List.of(),
+                "Controla a iniciativa do combate: /init add Goblin 1d20+2 rola e inclui, /init next passa a vez, "
+                        + "/init remover Goblin tira, /init limpar encerra e /init mostra a ordem.", this::iniciativa));
+    }
+
+    public RPGBot(FilaEnvio filaEnvio, StartService startService, RolarDadosService rolarDadosService,
+            MetricasBot metricas, HistoricoRolagemService historicoRolagem, AuditoriaRolagens auditoria,
+            ProbabilidadeService probabilidadeService, MacroService macroService, SessaoService sessaoService,
+            ConsultasInline consultasInline, ControleTaxa controleTaxa) {
+        this(filaEnvio, startService, rolarDadosService, metricas, historicoRolagem, auditoria, probabilidadeService,
+                macroService, sessaoService, consultasInline, controleTaxa, "");
     }
 
     /**
      * Processa as atualizações recebidas do Telegram.
      *
+     * <p>Mensagens sem comando ou com comando endereçado a outro bot são descartadas antes
+     * dos limites de taxa e sem criar nenhuma substring. Um comando fora do registro passa
+     * pelos limites de taxa e só então é procurado entre as macros do chat, carregadas uma vez
+     * por chat e guardadas em cache.</p>
+     *
+     * <p>Consultas inline seguem para as {@link ConsultasInline}. Atualizações de outros tipos,
+     * como callbacks ou mensagens editadas, não têm resposta e só são contadas.</p>
+     *
      * @param update Atualização recebida do Telegram
      */
-    @Override
     public void consume(Update update) {
-        processarComando(update.getMessage());
+        if (update.hasInlineQuery()) {
+            metricas.comando("inline");
+            consultasInline.receber(update.getInlineQuery());
+            return;
+        }
+        Message message = update.getMessage();
+        if (message == null) {
+            metricas.ignorada(tipo(update));
+            log.debug("Atualização {} ignorada ({})", update.getUpdateId(), tipo(update));
+            return;
+        }
+        if (!message.hasText()) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        MessageEntity entidadeComando = encontrarComando(message);
+        Comando comando = entidadeComando == null ? null : comandos.buscar(message.getText(),
+                entidadeComando.getOffset(), entidadeComando.getOffset() + entidadeComando.getLength());
+        metricas.registrar(MetricasBot.Etapa.ENTIDADES, inicio);
+        if (comando != null) {
+            if (permitido(message)) {
+                executar(message, entidadeComando, comando.nome(), comando.acao());
+            }
+            return;
+        }
+        if (entidadeComando == null) {
+            return;
+        }
+        if (!permitido(message)) {
+            return;
+        }
+        Optional<MacroService.MacroCompilada> macro = buscarMacro(message, entidadeComando);
+        if (macro.isEmpty()) {
+            metricas.comando("desconhecido");
+            log.debug("Comando desconhecido no chat {}", message.getChatId());
+        } else {
+            executar(message, entidadeComando, COMANDO_MACRO,
+                    (mensagem, argumentos) -> rolarMacro(mensagem, macro.get()));
+        }
     }
 
     /**
-     * Processa o comando.
+     * Processa as mensagens de um chat que ficaram acumuladas enquanto o bot estava fora do ar.
      *
-     * @param message Mensagem contendo o comando
+     * <p>As rolagens ({@code /r} e macros) são roladas como sempre, com histórico e auditoria,
+     * mas respondidas juntas em uma única mensagem, cada uma com o nome de quem rolou. Os limites
+     * de mensagens são verificados uma vez para cada remetente, antes de procurar a macro: quem
+     * passou do próprio limite fica de fora, sem barrar as rolagens dos outros. Os outros comandos
+     * passam pelos limites e são executados um a um, na ordem em que chegaram.</p>
+     *
+     * @param updates Atualizações atrasadas do mesmo chat, em ordem
      */
-    private void processarComando(Message message) {
-        if (message.getEntities() != null) {
-            for (MessageEntity entity : message.getEntities()) {
-                if ("bot_command".equals(entity.getType())) {
-                    String comando = message.getText().substring(entity.getOffset(), entity.getOffset() + entity.getLength());
-                    try {
-                        switch (comando) {
-                            case COMANDO_START:
-                                enviarMensagem(message, startService.start());
-                                break;
-                            case COMANDO_ROLAR:
-                            case COMANDO_R:
-                                log.info("Comando detectado: {}", comando);
-                                enviarMensagem(message, rolarDadosService.rolar(message.getText()).toString());
-                                break;
-                            default:
-                                log.warn("Comando desconhecido: {}", comando);
+    public void consumirAtrasadas(List<Update> updates) {
+        List<ResultadoLote.Grupo> grupos = new ArrayList<>();
+        Map<Long, Boolean> permitidos = new HashMap<>();
+        Message primeira = null;
+        for (Update update : updates) {
+            Message message = update.getMessage();
+            MessageEntity entidadeComando = message == null || !message.hasText() ? null : encontrarComando(message);
+            if (entidadeComando == null) {
+                continue;
+            }
+            Comando comando = comandos.buscar(message.getText(), entidadeComando.getOffset(),
+                    entidadeComando.getOffset() + entidadeComando.getLength());
+            if (comando != null && !comando.nome().equals(COMANDO_ROLAR)) {
+                if (permitido(message)) {
+                    executar(message, entidadeComando, comando.nome(), comando.acao());
+                }
+                continue;
+            }
+            Long remetente = message.getFrom() != null ? message.getFrom().getId() : null;
+            Boolean permitida = permitidos.get(remetente);
+            if (permitida == null) {
+                permitida = permitido(message);
+                permitidos.put(remetente, permitida);
+            }
+            if (!permitida) {
+                continue;
+            }
+            Optional<MacroService.MacroCompilada> macro = comando == null
+                    ? buscarMacro(message, entidadeComando)
+                    : Optional.empty();
+            if (comando == null && macro.isEmpty()) {
+                metricas.comando("desconhecido");
+                log.debug("Comando desconhecido no chat {}", message.getChatId());
+                continue;
+            }
+            if (primeira == null) {
+                primeira = message;
+            }
+            metricas.comando(comando != null ? COMANDO_ROLAR : COMANDO_MACRO);
+            try {
+                String rotulo = nomeSimples(message) + ": ";
+                if (macro.isPresent()) {
+                    ResultadoDados resultado = rolarDadosService.rolar(macro.get().plano());
+                    registrarHistorico(message, macro.get().expressao(), resultado);
+                    grupos.add(new ResultadoLote.Grupo(rotulo + "/" + macro.get().nome(), List.of(resultado)));
+                } else {
+                    String expressao = message.getText()
+                            .substring(entidadeComando.getOffset() + entidadeComando.getLength()).trim();
+                    ResultadoLote lote = RolarDadosService.isLote(expressao)
+                            ? rolarDadosService.rolarLote(expressao)
+                            : new ResultadoLote(List.of(new ResultadoLote.Grupo(expressao,
+                                    List.of(rolarDadosService.rolarExpressao(expressao)))));
+                    for (ResultadoLote.Grupo grupo : lote.getGrupos()) {
+                        for (ResultadoDados resultado : grupo.rolagens()) {
+                            registrarHistorico(message, grupo.expressao(), resultado);
                         }
-                    } catch (IllegalArgumentException e) {
-                        enviarMensagemErro(message, e.getMessage());
-                    } catch (Exception e) {
-                        enviarMensagemErro(message, "Erro ao processar o comando.");
+                        grupos.add(new ResultadoLote.Grupo(rotulo + grupo.expressao(), grupo.rolagens()));
                     }
-                    return;
                 }
+            } catch (IllegalArgumentException e) {
+                metricas.erro(e);
+                enviarMensagemErro(message, e.getMessage());
+            } catch (Exception e) {
+                metricas.erro(e);
+                enviarMensagemErro(message, "Erro ao processar o comando.");
+            }
+        }
+        if (!grupos.isEmpty()) {
+            long inicioRenderizacao = System.nanoTime();
+            String texto = new ResultadoLote(grupos).toString();
+            metricas.registrar(MetricasBot.Etapa.RENDERIZACAO, inicioRenderizacao);
+            enviarMensagem(primeira, texto);
+        }
+    }
+
+    /**
+     * Tipo de uma atualização sem mensagem, para as métricas e o log.
+     */
+    private static String tipo(Update update) {
+        if (update.hasEditedMessage()) {
+            return "edited_message";
+        }
+        if (update.hasCallbackQuery()) {
+            return "callback_query";
+        }
+        if (update.hasChosenInlineQuery()) {
+            return "chosen_inline_result";
+        }
+        if (update.hasChannelPost() || update.hasEditedChannelPost()) {
+            return "channel_post";
+        }
+        if (update.hasMyChatMember() || update.hasChatMember()) {
+            return "chat_member";
+        }
+        return "outra";
+    }
+
+    /**
+     * Procura a macro do chat com o nome do comando.
+     *
+     * @param message Mensagem recebida
+     * @param entidadeComando Entidade do comando na mensagem
+     * @return a macro, ou vazio se o chat não tiver macro com esse nome
+     */
+    private Optional<MacroService.MacroCompilada> buscarMacro(Message message, MessageEntity entidadeComando) {
+        String nome = comandos.nome(message.getText(), entidadeComando.getOffset(),
+                entidadeComando.getOffset() + entidadeComando.getLength());
+        if (nome == null) {
+            return Optional.empty();
+        }
+        try {
+            return macroService.buscar(message.getChatId(), nome);
+        } catch (Exception e) {
+            metricas.erro(e);
+            log.error("Erro ao buscar a macro /{} do chat {}", nome, message.getChatId(), e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Verifica os limites de mensagens do usuário e do chat. Na primeira mensagem
+     * acima do limite envia um aviso; as seguintes são ignoradas em silêncio.
+     *
+     * @param message Mensagem recebida
+     * @return {@code true} se a mensagem pode ser processada
+     */
+    private boolean permitido(Message message) {
+        Long usuarioId = message.getFrom() != null ? message.getFrom().getId() : null;
+        ControleTaxa.Resultado resultado = controleTaxa.verificar(usuarioId, message.getChatId());
+        switch (resultado) {
+            case PERMITIDO:
+                return true;
+            case AVISAR_USUARIO:
+                log.warn("Usuário {} passou do limite de mensagens", usuarioId);
+                enviarMensagem(message, obterNomeExibicao(message)
+                        + ", você está enviando comandos rápido demais. Aguarde um pouco antes de tentar de novo.");
+                break;
+            case AVISAR_CHAT:
+                log.warn("Chat {} passou do limite de mensagens", message.getChatId());
+                enviarMensagem(message, "Muitos comandos neste chat. Aguarde um pouco antes de tentar de novo.");
+                break;
+            case BLOQUEADO:
+                break;
+        }
+        metricas.limitada(resultado.name().toLowerCase());
+        return false;
+    }
+
+    /**
+     * Encontra a primeira entidade de comando da mensagem.
+     *
+     * @param message Mensagem recebida
+     * @return a entidade, ou {@code null} se a mensagem não tiver comando
+     */
+    private static MessageEntity encontrarComando(Message message) {
+        if (message.getEntities() == null) {
+            return null;
+        }
+        for (MessageEntity entity : message.getEntities()) {
+            if ("bot_command".equals(entity.getType())) {
+                return entity;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Executa o comando e envia a resposta.
+     *
+     * @param message Mensagem contendo o comando
+     * @param entidadeComando Entidade do comando na mensagem
+     * @param nome Nome do comando, para o log e as métricas
+     * @param acao Ação do comando
+     */
+    private void executar(Message message, MessageEntity entidadeComando, String nome, Comando.Acao acao) {
+        log.info("Comando detectado: {}", nome);
+        metricas.comando(nome);
+        try {
+            String argumentos = message.getText().substring(entidadeComando.getOffset() + entidadeComando.getLength()).trim();
+            String resposta = acao.executar(message, argumentos);
+            if (resposta != null) {
+                enviarMensagem(message, resposta);
+            }
+        } catch (IllegalArgumentException e) {
+            metricas.erro(e);
+            enviarMensagemErro(message, e.getMessage());
+        } catch (Exception e) {
+            metricas.erro(e);
+            enviarMensagemErro(message, "Erro ao processar o comando.");
+        }
+    }
+
+    /**
+     * Rola a expressão, ou o lote de expressões, e guarda as rolagens no histórico.
+     *
+     * @param message Mensagem com o comando de rolagem
+     * @param expressao Expressão depois do comando
+     * @return o resultado em HTML
+     */
+    private String rolar(Message message, String expressao) {
+        if (RolarDadosService.isLote(expressao)) {
+            ResultadoLote lote = rolarDadosService.rolarLote(expressao);
+            long inicioRenderizacao = System.nanoTime();
+            String texto = lote.toString();
+            metricas.registrar(MetricasBot.Etapa.RENDERIZACAO, inicioRenderizacao);
+            for (ResultadoLote.Grupo grupo : lote.getGrupos()) {
+                for (ResultadoDados resultado : grupo.rolagens()) {
+                    registrarHistorico(message, grupo.expressao(), resultado);
+                }
+            }
+            return texto;
+        }
+        return responderRolagem(message, expressao, rolarDadosService.rolarExpressao(expressao));
+    }
+
+    /**
+     * Rola o plano já preparado da macro, sem consultar o banco, analisar o texto nem estimar o custo.
+     *
+     * @param message Mensagem com o comando da macro
+     * @param macro Macro encontrada no chat
+     * @return o resultado em HTML
+     */
+    private String rolarMacro(Message message, MacroService.MacroCompilada macro) {
+        return responderRolagem(message, macro.expressao(), rolarDadosService.rolar(macro.plano()));
+    }
+
+    /**
+     * Monta a resposta da rolagem e guarda a rolagem no histórico.
+     *
+     * @param message Mensagem com o comando de rolagem
+     * @param expressao Expressão rolada
+     * @param resultado Resultado da rolagem
+     * @return o resultado em HTML
+     */
+    private String responderRolagem(Message message, String expressao, ResultadoDados resultado) {
+        long inicioRenderizacao = System.nanoTime();
+        String texto = resultado.toString();
+        metricas.registrar(MetricasBot.Etapa.RENDERIZACAO, inicioRenderizacao);
+        registrarHistorico(message, expressao, resultado);
+        return texto;
+    }
+
+    /**
+     * Trata /macro: sem argumentos lista as macros do chat, com {@code nome = expressão} cria
+     * ou altera e com {@code apagar nome} apaga.
+     *
+     * @param message Mensagem com o comando
+     * @param argumentos Texto depois do comando
+     * @return a resposta em HTML
+     */
+    private String macro(Message message, String argumentos) {
+        long chatId = message.getChatId();
+        if (argumentos.isEmpty()) {
+            List<MacroRolagem> macros = macroService.listar(chatId);
+            if (macros.isEmpty()) {
+                return "Este chat ainda não tem macros. Crie uma com /macro ataque = 1d20+7.";
+            }
+            StringBuilder texto = new StringBuilder("<b>Macros do chat</b>\n");
+            for (MacroRolagem macro : macros) {
+                TextoHtml.escapar(texto.append("\n/").append(macro.getNome()).append(" = "), macro.getExpressao());
+            }
+            return texto.toString();
+        }
+        int igual = argumentos.indexOf('=');
+        if (igual < 0) {
+            if (argumentos.regionMatches(true, 0, MACRO_APAGAR + " ", 0, MACRO_APAGAR.length() + 1)) {
+                String nome = MacroService.normalizarNome(argumentos.substring(MACRO_APAGAR.length()));
+                return macroService.apagar(chatId, nome)
+                        ? "Macro /" + nome + " apagada."
+                        : "Este chat não tem a macro /" + nome + ".";
             }
+            throw new IllegalArgumentException("Use /macro nome = expressão, por exemplo /macro ataque = 1d20+7.");
+        }
+        String nome = MacroService.normalizarNome(argumentos.substring(0, igual));
+        if (comandos.buscar("/" + nome, 0, nome.length() + 1) != null) {
+            throw new IllegalArgumentException("/" + nome + " já é um comando do bot.");
         }
+        MacroService.MacroCompilada macro = macroService.salvar(chatId, nome, argumentos.substring(igual + 1));
+        return TextoHtml.escapar(new StringBuilder("Macro /").append(nome).append(" = "), macro.expressao())
+                .append(" salva.").toString();
     }
 
+    /**
+     * Trata /init: sem argumentos mostra a ordem, {@code add nome expressão} rola a iniciativa e
+     * inclui o combatente, {@code next} passa a vez, {@code remover nome} tira um combatente e
+     * {@code limpar} encerra o combate.
+     *
+     * @param message Mensagem com o comando
+     * @param argumentos Texto depois do comando
+     * @return a resposta em HTML
+     */
+    private String iniciativa(Message message, String argumentos) {
+        int espaco = fimPalavra(argumentos);
+        String acao = argumentos.substring(0, espaco).toLowerCase();
+        String resto = argumentos.substring(espaco).trim();
+        if (acao.equals(INIT_LIMPAR)) {
+            sessaoService.encerrar(message.getChatId());
+            return "Iniciativa encerrada.";
+        }
+        SessaoChat sessao = sessaoService.sessao(message.getChatId());
+        return switch (acao) {
+            case "" -> sessao.iniciativa(RPGBot::renderizarIniciativa);
+            case INIT_ADICIONAR -> adicionarIniciativa(message, sessao, resto);
+            case INIT_PROXIMO -> sessao.iniciativa(ordem -> {
+                ordem.avancar();
+                return renderizarIniciativa(ordem);
+            });
+            case INIT_REMOVER -> {
+                String nome = SessaoService.normalizarCombatente(resto);
+                String ordem = sessao.iniciativa(iniciativa -> iniciativa.remover(nome)
+                        ? renderizarIniciativa(iniciativa)
+                        : null);
+                yield ordem != null ? ordem : TextoHtml.escapar(nome) + " não está na iniciativa.";
+            }
+            default -> throw new IllegalArgumentException(MENSAGEM_INIT);
+        };
+    }
+
+    /**
+     * Rola a iniciativa do combatente e o inclui na ordem do chat.
+     *
+     * @param message Mensagem com o comando
+     * @param sessao Sessão do chat
+     * @param argumentos Nome do combatente e, opcionalmente, a expressão (padrão 1d20)
+     * @return a rolagem e a ordem atualizada, em HTML
+     */
+    private String adicionarIniciativa(Message message, SessaoChat sessao, String argumentos) {
+        if (argumentos.isEmpty()) {
+            throw new IllegalArgumentException(MENSAGEM_INIT);
+        }
+        int espaco = fimPalavra(argumentos);
+        String nome = SessaoService.normalizarCombatente(argumentos.substring(0, espaco));
+        String expressao = argumentos.substring(espaco).trim();
+        if (expressao.isEmpty()) {
+            expressao = INIT_EXPRESSAO_PADRAO;
+        } else if (RolarDadosService.isLote(expressao)) {
+            throw new IllegalArgumentException("A iniciativa rola uma única expressão, sem # ou ;.");
+        }
+        ResultadoDados resultado = rolarDadosService.rolarExpressao(expressao);
+        String ordem = sessao.iniciativa(iniciativa -> {
+            iniciativa.adicionar(nome, resultado.getTotal());
+            return renderizarIniciativa(iniciativa);
+        });
+        registrarHistorico(message, expressao, resultado);
+        return TextoHtml.escapar(new StringBuilder("<b>"), nome).append("</b> ").append(resultado)
+                .append("\n\n").append(ordem).toString();
+    }
+
+    /**
+     * Monta a ordem de iniciativa, marcando o combatente da vez. Chamado com o bloqueio da sessão.
+     *
+     * @param ordem Ordem de iniciativa do chat
+     * @return a ordem em HTML
+     */
+    private static String renderizarIniciativa(OrdemIniciativa ordem) {
+        if (ordem.getQuantidade() == 0) {
+            return "Ninguém na iniciativa. " + MENSAGEM_INIT;
+        }
+        StringBuilder texto = new StringBuilder("<b>Iniciativa</b>");
+        if (ordem.getRodada() > 0) {
+            texto.append(" (rodada ").append(ordem.getRodada()).append(')');
+        }
+        for (int i = 0; i < ordem.getQuantidade(); i++) {
+            texto.append('\n').append(i == ordem.getVez() ? "▶ " : "    ").append(ordem.getValor(i)).append(' ');
+            TextoHtml.escapar(texto, ordem.getNome(i));
+        }
+        return texto.toString();
+    }
+
+    /**
+     * @return o índice do primeiro espaço em branco do texto, ou o tamanho dele
+     */
+    private static int fimPalavra(String texto) {
+        int i = 0;
+        while (i < texto.length() && !Character.isWhitespace(texto.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Guarda a rolagem no histórico, sem esperar a gravação, e na auditoria, com a semente.
+     *
+     * @param message Mensagem com o comando de rolagem
+     * @param expressao Expressão rolada
+     * @param resultado Resultado da rolagem
+     */
+    private void registrarHistorico(Message message, String expressao, ResultadoDados resultado) {
+        Long usuarioId = message.getFrom() != null ? message.getFrom().getId() : null;
+        historicoRolagem.registrar(message.getChatId(), usuarioId, expressao, resultado.getTotal(), resultado.getVisual());
+        auditoria.registrar(message.getChatId(), usuarioId, expressao, resultado);
+    }
 
     /**
      * Envia mensagem de erro para o usuário.
@@ -103,24 +618,38 @@ public class RPGBot implements LongPollingSingleThreadUpdateConsumer {
         String textoErro = String.format(
                 "%s, aconteceu um erro interno...%n%s",
                 nomeUsuario,
-                erro
+                TextoHtml.escapar(erro)
         );
         enviarMensagem(message, textoErro);
     }
 
     /**
-     * Obtém o nome de exibição do usuário.
+     * Obtém o nome de exibição do usuário, já escapado para HTML.
      *
      * @param message Mensagem do usuário
      * @return Nome de exibição
      */
     private String obterNomeExibicao(Message message) {
         String userName = message.getFrom().getUserName();
-        return (userName != null) ? "@" + userName : message.getFrom().getFirstName();
+        return (userName != null) ? "@" + userName : TextoHtml.escapar(message.getFrom().getFirstName());
     }
 
     /**
-     * Envia mensagem para o chat do Telegram.
+     * Obtém o nome do usuário sem escape, para textos que ainda serão escapados.
+     *
+     * @param message Mensagem do usuário
+     * @return {@code @usuario} ou o primeiro nome
+     */
+    private static String nomeSimples(Message message) {
+        if (message.getFrom() == null) {
+            return "?";
+        }
+        String userName = message.getFrom().getUserName();
+        return userName != null ? "@" + userName : message.getFrom().getFirstName();
+    }
+
+    /**
+     * Enfileira a mensagem para envio assíncrono ao chat do Telegram.
      *
      * @param message Mensagem original
      * @param texto Texto a ser enviado
@@ -132,10 +661,8 @@ public class RPGBot implements LongPollingSingleThreadUpdateConsumer {
                 .parseMode("HTML")
                 .build();
 
-        try {
-            telegramClient.execute(response);
-        } catch (Exception e) {
-            log.error("Erro ao enviar mensagem", e);
-        }
+        long inicio = System.nanoTime();
+        filaEnvio.enviar(message.getChatId(), response);
+        metricas.registrar(MetricasBot.Etapa.ENVIO, inicio);
     }
 }
\ No newline at end of file
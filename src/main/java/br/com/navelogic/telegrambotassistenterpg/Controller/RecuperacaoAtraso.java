@@ -0,0 +1,220 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import br.com.navelogic.telegrambotassistenterpg.Service.MetricasBot;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Recuperação das atualizações acumuladas enquanto o bot estava fora do ar.
+ *
+ * <p>No primeiro lote do long polling depois do início, a data da mensagem mais antiga é
+ * comparada com o relógio. Se ela tiver mais de {@code bot.atraso.limiar-s} segundos, o bot
+ * entra no modo de recuperação, que vale até chegar um lote cuja mensagem mais nova esteja
+ * dentro do limiar. Atualizações sem data, como consultas inline, não contam nessas
+ * comparações. Nesse modo:</p>
+ * <ul>
+ *   <li>mensagens com mais de {@code bot.atraso.descartar-apos-s} segundos são descartadas;</li>
+ *   <li>as atrasadas de um mesmo chat no lote são entregues juntas, para que as rolagens sejam
+ *   respondidas em uma única mensagem ({@link RPGBot#consumirAtrasadas});</li>
+ *   <li>as que já estão dentro do limiar seguem uma a uma, como sempre.</li>
+ * </ul>
+ *
+ * <p>Fora do modo de recuperação só descarta, no primeiro lote, as atualizações já recebidas antes
+ * de um reinício, pelo {@link RegistroOffset}, e grava o maior id de cada lote. Depois disso os
+ * ids não são comparados com os anteriores, porque o Telegram pode recomeçar a numeração de
+ * um número menor. Os contadores ficam em {@code bot.atraso.atualizacoes} (tag
+ * {@code resultado}).</p>
+ */
+@Slf4j
+@Component
+public class RecuperacaoAtraso {
+
+    private enum Estado { DETECTANDO, RECUPERANDO, CONCLUIDO }
+
+    private final long limiarS;
+    private final long descartarAposS;
+    private final LongSupplier relogioSegundos;
+    private final RegistroOffset offset;
+    private volatile Estado estado = Estado.DETECTANDO;
+    private volatile boolean primeiroLote = true;
+
+    private final AtomicLong agrupadas = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private final AtomicLong repetidas = new AtomicLong();
+
+    @Autowired
+    public RecuperacaoAtraso(RegistroOffset offset, MetricasBot metricas,
+            @Value("${bot.atraso.limiar-s:60}") long limiarS,
+            @Value("${bot.atraso.descartar-apos-s:900}") long descartarAposS) {
+        this(offset, limiarS, descartarAposS, () -> System.currentTimeMillis() / 1000);
+        MeterRegistry registro = metricas.getRegistro();
+        registrarContador(registro, "agrupada", agrupadas);
+        registrarContador(registro, "descartada", descartadas);
+        registrarContador(registro, "repetida", repetidas);
+    }
+
+    /**
+     * @param relogioSegundos instante atual em segundos desde a época, como a data das mensagens
+     */
+    public RecuperacaoAtraso(RegistroOffset offset, long limiarS, long descartarAposS, LongSupplier relogioSegundos) {
+        if (limiarS < 0 || descartarAposS < limiarS) {
+            throw new IllegalArgumentException("O limiar deve ser positivo e menor que o tempo para descartar.");
+        }
+        this.offset = offset;
+        this.limiarS = limiarS;
+        this.descartarAposS = descartarAposS;
+        this.relogioSegundos = relogioSegundos;
+    }
+
+    /**
+     * Próximo offset pedido ao {@code getUpdates}: depois do último recebido nesta execução ou,
+     * antes da primeira atualização, do gravado por uma execução anterior.
+     */
+    public int proximoOffset(int ultimoRecebido) {
+        return (ultimoRecebido > 0 ? ultimoRecebido : offset.getUltimo()) + 1;
+    }
+
+    /**
+     * Distribui um lote do long polling, na ordem recebida, e grava o offset.
+     *
+     * @param individual recebe cada atualização que segue sozinha
+     * @param atrasadas  recebe as atualizações atrasadas de um chat, juntas
+     */
+    public void distribuir(List<Update> updates, Consumer<Update> individual, Consumer<List<Update>> atrasadas) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        List<Update> novas = updates;
+        if (primeiroLote) {
+            primeiroLote = false;
+            int ultimoAnterior = offset.getUltimo();
+            novas = updates.stream().filter(update -> update.getUpdateId() > ultimoAnterior).toList();
+            repetidas.addAndGet(updates.size() - novas.size());
+        }
+
+        long agora = relogioSegundos.getAsLong();
+        OptionalLong maisAntiga = estado == Estado.DETECTANDO ? idade(novas, agora, true) : OptionalLong.empty();
+        if (maisAntiga.isPresent()) {
+            if (maisAntiga.getAsLong() > limiarS) {
+                log.warn("Atualizações acumuladas desde o reinício, a mais antiga de {} s: modo de recuperação",
+                        maisAntiga.getAsLong());
+                estado = Estado.RECUPERANDO;
+            } else {
+                estado = Estado.CONCLUIDO;
+            }
+        }
+        if (estado == Estado.RECUPERANDO) {
+            recuperar(novas, agora, individual, atrasadas);
+            if (idade(novas, agora, false).orElse(Long.MAX_VALUE) <= limiarS) {
+                estado = Estado.CONCLUIDO;
+                log.info("Recuperação concluída: {} atualizações agrupadas, {} descartadas",
+                        agrupadas.get(), descartadas.get());
+            }
+        } else {
+            novas.forEach(individual);
+        }
+        offset.gravar(updates.stream().mapToInt(Update::getUpdateId).max().getAsInt());
+    }
+
+    public boolean isRecuperando() {
+        return estado == Estado.RECUPERANDO;
+    }
+
+    public long getAgrupadas() {
+        return agrupadas.get();
+    }
+
+    public long getDescartadas() {
+        return descartadas.get();
+    }
+
+    public long getRepetidas() {
+        return repetidas.get();
+    }
+
+    /**
+     * Descarta as expiradas e junta as atrasadas por chat. Cada grupo é entregue na posição da
+     * primeira atualização dele; como as atrasadas de um chat vêm antes das recentes do mesmo
+     * chat, a ordem dentro de cada chat se mantém.
+     */
+    private void recuperar(List<Update> updates, long agora, Consumer<Update> individual,
+            Consumer<List<Update>> atrasadas) {
+        Map<Long, List<Update>> grupos = new LinkedHashMap<>();
+        for (Update update : updates) {
+            long idade = idade(update, agora);
+            if (idade > descartarAposS) {
+                descartadas.incrementAndGet();
+            } else if (idade > limiarS) {
+                grupos.computeIfAbsent(update.getMessage().getChatId(), chat -> new ArrayList<>()).add(update);
+            }
+        }
+        for (Update update : updates) {
+            long idade = idade(update, agora);
+            if (idade > descartarAposS) {
+                continue;
+            }
+            if (idade <= limiarS) {
+                individual.accept(update);
+                continue;
+            }
+            List<Update> grupo = grupos.remove(update.getMessage().getChatId());
+            if (grupo != null) {
+                agrupadas.addAndGet(grupo.size());
+                atrasadas.accept(grupo);
+            }
+        }
+    }
+
+    /**
+     * Idade da mensagem mais antiga ou da mais nova do lote. Atualizações sem data, como consultas
+     * inline e callbacks, ficam de fora: um lote só com elas não decide nada.
+     *
+     * @param maisAntiga {@code true} para a idade da mensagem mais antiga, {@code false} para a mais nova
+     * @return a idade, ou vazio se nenhuma atualização do lote tiver data
+     */
+    private static OptionalLong idade(List<Update> updates, long agora, boolean maisAntiga) {
+        long resultado = maisAntiga ? Long.MIN_VALUE : Long.MAX_VALUE;
+        boolean datada = false;
+        for (Update update : updates) {
+            Message message = update.getMessage();
+            if (message == null || message.getDate() == null) {
+                continue;
+            }
+            long idade = agora - message.getDate();
+            resultado = maisAntiga ? Math.max(resultado, idade) : Math.min(resultado, idade);
+            datada = true;
+        }
+        return datada ? OptionalLong.of(resultado) : OptionalLong.empty();
+    }
+
+    /**
+     * Idade da mensagem em segundos. Atualizações sem mensagem, como consultas inline, contam
+     * como recentes e nunca são agrupadas.
+     */
+    private static long idade(Update update, long agora) {
+        Message message = update.getMessage();
+        return message == null || message.getDate() == null ? 0 : agora - message.getDate();
+    }
+
+    private static void registrarContador(MeterRegistry registro, String resultado, AtomicLong contador) {
+        FunctionCounter.builder("bot.atraso.atualizacoes", contador, AtomicLong::get)
+                .description("Atualizações tratadas pela recuperação depois de um reinício")
+                .tag("resultado", resultado)
+                .register(registro);
+    }
+}
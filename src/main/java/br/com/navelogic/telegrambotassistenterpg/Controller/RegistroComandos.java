@@ -0,0 +1,162 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import br.com.navelogic.telegrambotassistenterpg.Util.TextoHtml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tabela de comandos do bot, consultada direto no texto da mensagem.
+ *
+ * <p>Nomes e apelidos ficam em uma tabela hash de endereçamento aberto, sem diferenciar
+ * maiúsculas. {@link #buscar} calcula o hash do trecho do comando no próprio texto, ignorando
+ * o sufixo {@code @nomedobot}, e compara com {@link String#regionMatches}: nenhuma substring é
+ * criada para achar o comando. A tabela fica no máximo meio cheia, então a busca costuma
+ * parar na primeira posição.</p>
+ *
+ * <p>Os comandos são registrados na construção do bot, antes de qualquer mensagem;
+ * depois disso a tabela só é lida e pode ser consultada por várias threads.</p>
+ */
+final class RegistroComandos {
+
+    private final String usuarioBot;
+    private final List<Comando> comandos = new ArrayList<>();
+    private String[] chaves = new String[16];
+    private Comando[] valores = new Comando[16];
+    private int quantidade;
+
+    /**
+     * @param usuarioBot nome de usuário do bot, sem {@code @}; se vazio, aceita comandos
+     *                   endereçados a qualquer bot ({@code /r@QualquerBot})
+     */
+    RegistroComandos(String usuarioBot) {
+        this.usuarioBot = usuarioBot == null ? "" : usuarioBot.trim();
+    }
+
+    /**
+     * Registra o comando com o nome e os apelidos dele.
+     *
+     * @throws IllegalArgumentException se algum nome já estiver registrado
+     */
+    void registrar(Comando comando) {
+        colocar(comando.nome(), comando);
+        for (String apelido : comando.apelidos()) {
+            colocar(apelido, comando);
+        }
+        comandos.add(comando);
+    }
+
+    /**
+     * Procura o comando no trecho {@code [inicio, fim)} do texto, no formato {@code /nome}
+     * ou {@code /nome@bot}.
+     *
+     * @return o comando, ou {@code null} se não existir ou se for endereçado a outro bot
+     */
+    Comando buscar(String texto, int inicio, int fim) {
+        int fimNome = fimNome(texto, inicio, fim);
+        if (fimNome < 0) {
+            return null;
+        }
+        int tamanho = fimNome - inicio;
+        int mascara = chaves.length - 1;
+        for (int i = hash(texto, inicio, fimNome) & mascara; chaves[i] != null; i = (i + 1) & mascara) {
+            if (chaves[i].length() == tamanho && texto.regionMatches(true, inicio, chaves[i], 0, tamanho)) {
+                return valores[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extrai o nome do comando no trecho {@code [inicio, fim)}, para os comandos que não estão
+     * no registro, como as macros de cada chat.
+     *
+     * @return o nome sem a barra e sem o {@code @bot}, em minúsculas, ou {@code null} se o
+     *         trecho não for um comando ou for endereçado a outro bot
+     */
+    String nome(String texto, int inicio, int fim) {
+        int fimNome = fimNome(texto, inicio, fim);
+        return fimNome < 0 ? null : texto.substring(inicio + 1, fimNome).toLowerCase();
+    }
+
+    /**
+     * Monta a lista de comandos, na ordem em que foram registrados, para /comandos.
+     */
+    String ajuda() {
+        StringBuilder texto = new StringBuilder("<b>Comandos disponíveis</b>\n");
+        for (Comando comando : comandos) {
+            texto.append('\n').append(comando.nome());
+            for (String apelido : comando.apelidos()) {
+                texto.append(", ").append(apelido);
+            }
+            TextoHtml.escapar(texto.append(": "), comando.descricao());
+        }
+        return texto.toString();
+    }
+
+    /**
+     * @return o fim do nome do comando (antes do {@code @bot}), ou -1 se o trecho não for
+     *         um comando ou for endereçado a outro bot
+     */
+    private int fimNome(String texto, int inicio, int fim) {
+        if (fim - inicio < 2 || texto.charAt(inicio) != '/') {
+            return -1;
+        }
+        int fimNome = fim;
+        for (int i = inicio + 1; i < fim; i++) {
+            if (texto.charAt(i) == '@') {
+                fimNome = i;
+                break;
+            }
+        }
+        if (fimNome < fim && !usuarioBot.isEmpty()
+                && (fim - fimNome - 1 != usuarioBot.length()
+                        || !texto.regionMatches(true, fimNome + 1, usuarioBot, 0, usuarioBot.length()))) {
+            return -1;
+        }
+        return fimNome == inicio + 1 ? -1 : fimNome;
+    }
+
+    private void colocar(String nome, Comando comando) {
+        String chave = nome.toLowerCase();
+        if (chave.length() < 2 || chave.charAt(0) != '/' || chave.indexOf('@') >= 0
+                || buscar(chave, 0, chave.length()) != null) {
+            throw new IllegalArgumentException("Comando inválido ou já registrado: " + nome);
+        }
+        if (2 * (quantidade + 1) > chaves.length) {
+            redimensionar();
+        }
+        inserir(chaves, valores, chave, comando);
+        quantidade++;
+    }
+
+    private void redimensionar() {
+        String[] novasChaves = new String[chaves.length * 2];
+        Comando[] novosValores = new Comando[valores.length * 2];
+        for (int i = 0; i < chaves.length; i++) {
+            if (chaves[i] != null) {
+                inserir(novasChaves, novosValores, chaves[i], valores[i]);
+            }
+        }
+        chaves = novasChaves;
+        valores = novosValores;
+    }
+
+    private static void inserir(String[] chaves, Comando[] valores, String chave, Comando comando) {
+        int mascara = chaves.length - 1;
+        int i = hash(chave, 0, chave.length()) & mascara;
+        while (chaves[i] != null) {
+            i = (i + 1) & mascara;
+        }
+        chaves[i] = chave;
+        valores[i] = comando;
+    }
+
+    private static int hash(String texto, int inicio, int fim) {
+        int h = 0;
+        for (int i = inicio; i < fim; i++) {
+            h = 31 * h + Character.toLowerCase(texto.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+}
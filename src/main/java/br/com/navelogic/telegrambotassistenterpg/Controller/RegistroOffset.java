@@ -0,0 +1,115 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Guarda em um arquivo local o maior {@code update_id} recebido pelo long polling
+ * ({@code bot.offset.arquivo}), junto com o instante em que foi recebido.
+ *
+ * <p>O Telegram só confirma as atualizações de um {@code getUpdates} no pedido seguinte, então
+ * sem este arquivo o último lote antes de um reinício seria entregue e respondido de novo. O
+ * id é gravado assim que o lote entra nas filas: se o processo morrer com atualizações ainda
+ * nas filas, elas se perdem, o que é preferível a responder duas vezes. A gravação vai para um
+ * arquivo temporário e o substitui com uma troca atômica, para que um arquivo pela metade
+ * nunca seja lido.</p>
+ *
+ * <p>Depois de uma semana sem atualizações o Telegram sorteia o próximo {@code update_id}, que
+ * pode ser menor que o gravado. Por isso um arquivo com mais de {@link #VALIDADE} é ignorado:
+ * pedir as atualizações a partir de um id antigo e maior confirmaria e descartaria as novas.</p>
+ *
+ * <p>Com o nome do arquivo vazio nada é gravado e só o id em memória é usado.</p>
+ */
+@Slf4j
+@Component
+public class RegistroOffset {
+
+    /** Idade máxima do arquivo, com folga em relação à semana depois da qual os ids recomeçam. */
+    public static final Duration VALIDADE = Duration.ofDays(6);
+
+    private final Path arquivo;
+    private final LongSupplier relogioSegundos;
+    private volatile int ultimo;
+
+    @Autowired
+    public RegistroOffset(@Value("${bot.offset.arquivo:offset-atualizacoes}") String arquivo) {
+        this(arquivo.isBlank() ? null : Path.of(arquivo));
+    }
+
+    /**
+     * @param arquivo arquivo do offset, ou {@code null} para não gravar
+     */
+    public RegistroOffset(Path arquivo) {
+        this(arquivo, () -> System.currentTimeMillis() / 1000);
+    }
+
+    /**
+     * @param relogioSegundos instante atual em segundos desde a época
+     */
+    public RegistroOffset(Path arquivo, LongSupplier relogioSegundos) {
+        this.arquivo = arquivo;
+        this.relogioSegundos = relogioSegundos;
+        this.ultimo = ler(arquivo, relogioSegundos.getAsLong());
+    }
+
+    /**
+     * @return o último {@code update_id} gravado, ou zero
+     */
+    public int getUltimo() {
+        return ultimo;
+    }
+
+    /**
+     * Grava o maior id de um lote com o instante atual, mesmo que seja menor que o anterior,
+     * como acontece quando o Telegram recomeça a numeração.
+     */
+    public synchronized void gravar(int updateId) {
+        ultimo = updateId;
+        if (arquivo == null) {
+            return;
+        }
+        try {
+            Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+            Files.writeString(temporario, updateId + " " + relogioSegundos.getAsLong());
+            Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Erro ao gravar o offset {} em {}", updateId, arquivo, e);
+        }
+    }
+
+    /**
+     * Lê o id e o instante gravados. Arquivos de versões anteriores, só com o id, usam a data de
+     * modificação do arquivo como instante.
+     */
+    private static int ler(Path arquivo, long agora) {
+        if (arquivo == null || !Files.exists(arquivo)) {
+            return 0;
+        }
+        try {
+            String[] partes = Files.readString(arquivo).trim().split(" ");
+            int ultimo = Integer.parseInt(partes[0]);
+            long instante = partes.length > 1
+                    ? Long.parseLong(partes[1])
+                    : Files.getLastModifiedTime(arquivo).toMillis() / 1000;
+            if (agora - instante > VALIDADE.toSeconds()) {
+                log.warn("Offset {} em {} gravado há mais de {} dias, recebendo desde o início",
+                        ultimo, arquivo, VALIDADE.toDays());
+                return 0;
+            }
+            log.info("Continuando depois da atualização {} ({})", ultimo, arquivo);
+            return ultimo;
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Offset ilegível em {}, recebendo desde o início: {}", arquivo, e.getMessage());
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Recebe as atualizações do Telegram por webhook, como alternativa ao long polling.
+ *
+ * <p>Responde apenas com {@code bot.modo=webhook}; nos outros modos devolve 404. O modo é
+ * conferido aqui, e não por uma condição no bean, porque com o Spring AOT as condições são
+ * avaliadas no build. A atualização é colocada no
+ * {@link ProcessadorAtualizacoes}, o mesmo caminho usado pelo long polling, e a
+ * resposta HTTP é devolvida logo em seguida, antes do processamento. Se a fila
+ * estiver cheia, responde 503 para que o Telegram reenvie a atualização depois.</p>
+ *
+ * <p>O cabeçalho {@code X-Telegram-Bot-Api-Secret-Token} precisa ter o valor de
+ * {@code bot.webhook.segredo}. Sem segredo, qualquer um que descubra o caminho poderia enviar
+ * atualizações em nome de outro usuário, então a aplicação não sobe em {@code bot.modo=webhook}
+ * sem ele.</p>
+ */
+@Slf4j
+@RestController
+public class WebhookController {
+
+    private final ProcessadorAtualizacoes processadorAtualizacoes;
+    private final boolean ativo;
+    private final byte[] segredo;
+
+    public WebhookController(ProcessadorAtualizacoes processadorAtualizacoes,
+            @Value("${bot.modo:polling}") String modo,
+            @Value("${bot.webhook.segredo:}") String segredo) {
+        this.processadorAtualizacoes = processadorAtualizacoes;
+        this.ativo = "webhook".equals(modo);
+        if (ativo && segredo.isBlank()) {
+            throw new IllegalArgumentException("bot.modo=webhook exige bot.webhook.segredo (BOT_WEBHOOK_SEGREDO).");
+        }
+        this.segredo = segredo.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PostMapping("${bot.webhook.caminho:/telegram/webhook}")
+    public ResponseEntity<Void> receber(
+            @RequestHeader(name = "X-Telegram-Bot-Api-Secret-Token", required = false) String token,
+            @RequestBody Update update) {
+        if (!ativo) {
+            return ResponseEntity.notFound().build();
+        }
+        if (token == null || !MessageDigest.isEqual(segredo, token.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Webhook recebido com segredo inválido");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (!processadorAtualizacoes.enfileirar(update)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+}
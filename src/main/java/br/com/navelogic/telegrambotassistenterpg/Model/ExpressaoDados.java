@@ -0,0 +1,95 @@
+package br.com.navelogic.telegrambotassistenterpg.Model;
+
+/**
+ * Árvore imutável de uma expressão de dados já analisada.
+ *
+ * <p>Uma expressão como {@code 4d6sm1 + 2} é compilada uma única vez pelo
+ * analisador e depois apenas avaliada a cada rolagem. As operações são
+ * avaliadas da esquerda para a direita, sem precedência entre operadores,
+ * exatamente como o comando {@code /r} sempre funcionou.</p>
+ *
+ * <p>Exemplo da árvore gerada para {@code 1d20 + 5 * 2}:</p>
+ * <pre>
+ * Operacao('*',
+ *     Operacao('+', Dados(1, 20), Constante(5)),
+ *     Constante(2))
+ * </pre>
+ */
+public sealed interface ExpressaoDados
+        permits ExpressaoDados.Constante, ExpressaoDados.Dados, ExpressaoDados.Operacao {
+
+    /**
+     * Valor numérico fixo, como o {@code 5} de {@code 1d20+5}.
+     *
+     * @param valor o valor da constante
+     */
+    record Constante(int valor) implements ExpressaoDados {
+    }
+
+    /**
+     * Rolagem de {@code quantidade} dados de {@code lados} lados, com um modificador opcional
+     * de manter/soltar resultados e, para paradas de dados, rerrolagem, explosão e contagem de
+     * sucessos ({@code 10d10!>=8}). Os três últimos valem zero quando não são usados.
+     *
+     * @param quantidade            quantidade de dados rolados
+     * @param lados                 número de lados de cada dado
+     * @param modificador           modificador aplicado, ou {@code null}
+     * @param quantidadeModificador quantos dados o modificador mantém ou solta
+     * @param rerrolarAte           dados com este resultado ou menos são rolados de novo, uma vez
+     * @param explodirDe            dados com este resultado ou mais rolam um dado a mais
+     * @param sucessoDe             o total passa a ser quantos dados mantidos tiveram este resultado ou mais
+     */
+    record Dados(int quantidade, int lados, Modificador modificador, int quantidadeModificador,
+            int rerrolarAte, int explodirDe, int sucessoDe) implements ExpressaoDados {
+
+        public Dados(int quantidade, int lados, Modificador modificador, int quantidadeModificador) {
+            this(quantidade, lados, modificador, quantidadeModificador, 0, 0, 0);
+        }
+
+        public Dados(int quantidade, int lados) {
+            this(quantidade, lados, null, 0);
+        }
+
+        /**
+         * @return {@code true} se o termo usa rerrolagem, explosão ou sucessos, que são avaliados
+         *         só sobre as contagens de cada face
+         */
+        public boolean porFaces() {
+            return rerrolarAte > 0 || explodirDe > 0 || sucessoDe > 0;
+        }
+
+        /**
+         * @return o termo como é exibido na resposta, por exemplo {@code 4d6sm1} ou {@code 10d10!≥8}
+         */
+        public String rotulo() {
+            StringBuilder rotulo = new StringBuilder().append(quantidade).append('d').append(lados);
+            if (rerrolarAte > 0) {
+                rotulo.append('r').append(rerrolarAte);
+            }
+            if (explodirDe > 0) {
+                rotulo.append('!');
+                if (explodirDe < lados) {
+                    rotulo.append(explodirDe);
+                }
+            }
+            if (modificador != null) {
+                rotulo.append(modificador.simbolo()).append(quantidadeModificador);
+            }
+            if (sucessoDe > 0) {
+                rotulo.append('≥').append(sucessoDe);
+            }
+            return rotulo.toString();
+        }
+    }
+
+    /**
+     * Operação aritmética entre duas subexpressões.
+     *
+     * @param operador um de {@code + - * /}
+     * @param esquerda operando da esquerda
+     * @param direita  operando da direita
+     */
+    record Operacao(char operador, ExpressaoDados esquerda, ExpressaoDados direita)
+            implements ExpressaoDados {
+    }
+}
@@ -0,0 +1,66 @@
+package br.com.navelogic.telegrambotassistenterpg.Model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Registro de uma rolagem feita em um chat, guardado no histórico.
+ *
+ * <p>O id vem de uma sequência com alocação em blocos (no MySQL, emulada por tabela) em vez
+ * de {@code IDENTITY}, que obrigaria o Hibernate a inserir uma linha por vez e impediria
+ * os lotes JDBC.</p>
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "historico_rolagem", indexes = @Index(name = "idx_historico_rolagem_chat", columnList = "chatId, criadoEm"))
+public class HistoricoRolagem {
+
+    public static final int TAMANHO_EXPRESSAO = 255;
+    public static final int TAMANHO_DADOS = 4096;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "historico_rolagem_seq")
+    @SequenceGenerator(name = "historico_rolagem_seq", allocationSize = 100)
+    private Long id;
+
+    @Column(nullable = false)
+    private long chatId;
+
+    private Long usuarioId;
+
+    @Column(nullable = false, length = TAMANHO_EXPRESSAO)
+    private String expressao;
+
+    @Column(nullable = false)
+    private int total;
+
+    @Column(nullable = false, length = TAMANHO_DADOS)
+    private String dados;
+
+    @Column(nullable = false)
+    private Instant criadoEm;
+
+    public HistoricoRolagem(long chatId, Long usuarioId, String expressao, int total, String dados, Instant criadoEm) {
+        this.chatId = chatId;
+        this.usuarioId = usuarioId;
+        this.expressao = limitar(expressao, TAMANHO_EXPRESSAO);
+        this.total = total;
+        this.dados = limitar(dados, TAMANHO_DADOS);
+        this.criadoEm = criadoEm;
+    }
+
+    private static String limitar(String texto, int tamanho) {
+        return texto.length() <= tamanho ? texto : texto.substring(0, tamanho - 1) + "…";
+    }
+}
@@ -0,0 +1,56 @@
+package br.com.navelogic.telegrambotassistenterpg.Model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Macro de um chat: um nome que vira comando ({@code /ataque}) para uma expressão de dados
+ * ({@code 1d20+7}). O nome é único dentro do chat.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "macro_rolagem", uniqueConstraints = @UniqueConstraint(name = "uk_macro_rolagem_chat_nome",
+        columnNames = {"chatId", "nome"}))
+public class MacroRolagem {
+
+    public static final int TAMANHO_NOME = 32;
+    public static final int TAMANHO_EXPRESSAO = 255;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private long chatId;
+
+    @Column(nullable = false, length = TAMANHO_NOME)
+    private String nome;
+
+    @Column(nullable = false, length = TAMANHO_EXPRESSAO)
+    private String expressao;
+
+    @Column(nullable = false)
+    private Instant atualizadoEm;
+
+    public MacroRolagem(long chatId, String nome, String expressao, Instant atualizadoEm) {
+        this.chatId = chatId;
+        this.nome = nome;
+        this.expressao = expressao;
+        this.atualizadoEm = atualizadoEm;
+    }
+
+    public void alterar(String expressao, Instant atualizadoEm) {
+        this.expressao = expressao;
+        this.atualizadoEm = atualizadoEm;
+    }
+}
@@ -1,20 +1,51 @@
 package br.com.navelogic.telegrambotassistenterpg.Model;
 
-import java.util.Comparator;
-
+/**
+ * Modificadores de manter/soltar resultados de uma rolagem.
+ *
+ * <p>Todos se reduzem a manter os {@code t} maiores ou os {@code t} menores
+ * dados, o que permite selecioná-los sem ordenar a rolagem inteira.</p>
+ */
 public enum Modificador {
-    MANTER_MAIOR(Comparator.naturalOrder()),
-    MANTER_MENOR(Comparator.naturalOrder()),
-    SOLTAR_MAIOR(Comparator.reverseOrder()),
-    SOLTAR_MENOR(Comparator.reverseOrder());
+    MANTER_MAIOR("m", true),
+    MANTER_MENOR("mm", false),
+    SOLTAR_MAIOR("sM", false),
+    SOLTAR_MENOR("sm", true);
+
+    private final String simbolo;
+    private final boolean mantemMaiores;
 
-    private final Comparator<Integer> comparator;
+    Modificador(String simbolo, boolean mantemMaiores) {
+        this.simbolo = simbolo;
+        this.mantemMaiores = mantemMaiores;
+    }
+
+    /**
+     * @return o modificador como é escrito na expressão, por exemplo {@code sm}
+     */
+    public String simbolo() {
+        return simbolo;
+    }
 
-    Modificador(Comparator<Integer> comparator) {
-        this.comparator = comparator;
+    /**
+     * @return {@code true} se os dados mantidos são os maiores resultados
+     */
+    public boolean mantemMaiores() {
+        return mantemMaiores;
     }
 
-    public Comparator<Integer> getComparator() {
-        return comparator;
+    /**
+     * Calcula quantos dados permanecem após aplicar o modificador.
+     *
+     * @param quantidadeDados       quantidade de dados rolados
+     * @param quantidadeModificador valor informado após o modificador (o {@code 1} de {@code sm1})
+     * @return quantidade de dados mantidos
+     */
+    public int quantidadeMantida(int quantidadeDados, int quantidadeModificador) {
+        int limite = Math.min(quantidadeModificador, quantidadeDados);
+        return switch (this) {
+            case MANTER_MAIOR, MANTER_MENOR -> limite;
+            case SOLTAR_MAIOR, SOLTAR_MENOR -> quantidadeDados - limite;
+        };
     }
 }
@@ -0,0 +1,203 @@
+package br.com.navelogic.telegrambotassistenterpg.Model;
+
+import java.util.Arrays;
+
+/**
+ * Ordem de iniciativa de um combate ({@code /init add Goblin 1d20+2}, {@code /init next}).
+ *
+ * <p>Os combatentes ficam em dois vetores paralelos, nomes e valores, sempre em ordem
+ * decrescente de iniciativa. Cada inclusão acha a posição por busca binária e desloca só o
+ * final dos vetores, então a ordem nunca é refeita do zero; passar a vez só avança um índice.
+ * Empates ficam na ordem de chegada. Os vetores começam pequenos e crescem até o máximo de
+ * combatentes, que limita a memória de cada sessão.</p>
+ *
+ * <p>Não é segura para threads; o acesso é sincronizado pela {@link SessaoChat}.</p>
+ */
+public class OrdemIniciativa {
+
+    private static final int CAPACIDADE_INICIAL = 4;
+
+    private final int maximo;
+    private String[] nomes;
+    private int[] valores;
+    private int quantidade;
+    /** Índice do combatente da vez, ou -1 antes do primeiro turno. */
+    private int vez = -1;
+    /** Quem estava na vez saiu: o próximo {@link #avancar()} entrega a vez a quem está em {@link #vez}. */
+    private boolean vezVaga;
+    private int rodada;
+
+    /**
+     * @param maximo quantidade máxima de combatentes
+     */
+    public OrdemIniciativa(int maximo) {
+        if (maximo <= 0) {
+            throw new IllegalArgumentException("O máximo de combatentes deve ser maior que zero.");
+        }
+        this.maximo = maximo;
+        int capacidade = Math.min(CAPACIDADE_INICIAL, maximo);
+        this.nomes = new String[capacidade];
+        this.valores = new int[capacidade];
+    }
+
+    /**
+     * Inclui o combatente na posição da iniciativa. Um combatente com o mesmo nome (sem
+     * diferenciar maiúsculas) é substituído. Quem já estava na vez continua na vez, inclusive
+     * quando é ele mesmo que rola de novo e muda de posição.
+     *
+     * @return a posição do combatente na ordem, a partir de zero
+     * @throws IllegalArgumentException se a ordem já tiver o máximo de combatentes
+     */
+    public int adicionar(String nome, int valor) {
+        int anterior = indice(nome);
+        boolean naVez = anterior >= 0 && anterior == vez;
+        boolean vagaAntes = vezVaga;
+        remover(nome);
+        vezVaga = vagaAntes;
+        if (quantidade == maximo) {
+            throw new IllegalArgumentException("A iniciativa já tem o máximo de " + maximo + " combatentes.");
+        }
+        if (quantidade == nomes.length) {
+            int capacidade = Math.min(maximo, nomes.length * 2);
+            nomes = Arrays.copyOf(nomes, capacidade);
+            valores = Arrays.copyOf(valores, capacidade);
+        }
+        int posicao = posicaoInclusao(valor);
+        System.arraycopy(nomes, posicao, nomes, posicao + 1, quantidade - posicao);
+        System.arraycopy(valores, posicao, valores, posicao + 1, quantidade - posicao);
+        nomes[posicao] = nome;
+        valores[posicao] = valor;
+        quantidade++;
+        if (naVez) {
+            vez = posicao;
+        } else if (posicao <= vez) {
+            vez++;
+        }
+        return posicao;
+    }
+
+    /**
+     * Tira o combatente da ordem. Se era a vez dele, a vez passa ao seguinte no próximo
+     * {@link #avancar()}; até lá, {@link #getVez()} já aponta para esse seguinte.
+     *
+     * @return {@code true} se o combatente estava na ordem
+     */
+    public boolean remover(String nome) {
+        int posicao = indice(nome);
+        if (posicao < 0) {
+            return false;
+        }
+        System.arraycopy(nomes, posicao + 1, nomes, posicao, quantidade - posicao - 1);
+        System.arraycopy(valores, posicao + 1, valores, posicao, quantidade - posicao - 1);
+        quantidade--;
+        nomes[quantidade] = null;
+        if (posicao < vez) {
+            vez--;
+        } else if (posicao == vez) {
+            vezVaga = true;
+        }
+        return true;
+    }
+
+    /**
+     * Passa a vez ao próximo combatente, voltando ao primeiro e contando uma rodada no fim da ordem.
+     *
+     * @return a posição do combatente da vez
+     * @throws IllegalArgumentException se a ordem estiver vazia
+     */
+    public int avancar() {
+        if (quantidade == 0) {
+            throw new IllegalArgumentException("Não há ninguém na iniciativa. Use /init add nome expressão.");
+        }
+        if (rodada == 0) {
+            rodada = 1;
+        }
+        if (vezVaga) {
+            vezVaga = false;
+        } else {
+            vez++;
+        }
+        if (vez >= quantidade) {
+            vez = 0;
+            rodada++;
+        }
+        return vez;
+    }
+
+    public void limpar() {
+        Arrays.fill(nomes, 0, quantidade, null);
+        quantidade = 0;
+        vez = -1;
+        vezVaga = false;
+        rodada = 0;
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    public String getNome(int posicao) {
+        return nomes[verificar(posicao)];
+    }
+
+    public int getValor(int posicao) {
+        return valores[verificar(posicao)];
+    }
+
+    /**
+     * @return a posição do combatente da vez, ou -1 se o combate ainda não começou ou a ordem
+     * ficou vazia. Se quem estava na vez saiu, é a posição de quem a recebe no próximo
+     * {@link #avancar()}.
+     */
+    public int getVez() {
+        if (vez < 0 || quantidade == 0) {
+            return -1;
+        }
+        return vez < quantidade ? vez : 0;
+    }
+
+    /**
+     * @return a rodada atual, a partir de 1, ou zero se o combate ainda não começou
+     */
+    public int getRodada() {
+        return rodada;
+    }
+
+    public int getMaximo() {
+        return maximo;
+    }
+
+    /**
+     * Primeira posição com valor menor que o informado, para que empates fiquem depois de
+     * quem chegou antes.
+     */
+    private int posicaoInclusao(int valor) {
+        int inicio = 0;
+        int fim = quantidade;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (valores[meio] >= valor) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    private int indice(String nome) {
+        for (int i = 0; i < quantidade; i++) {
+            if (nomes[i].equalsIgnoreCase(nome)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int verificar(int posicao) {
+        if (posicao < 0 || posicao >= quantidade) {
+            throw new IndexOutOfBoundsException(posicao);
+        }
+        return posicao;
+    }
+}
@@ -0,0 +1,49 @@
+package br.com.navelogic.telegrambotassistenterpg.Model;
+
+/**
+ * Pedaço da representação de uma rolagem, na ordem em que aparece na expressão.
+ *
+ * <p>Os dados ficam guardados como números, e não como texto já montado, para que o
+ * {@link ResultadoDados} decida na hora de renderizar entre a lista completa e um resumo.</p>
+ */
+public sealed interface ParteResultado {
+
+    /**
+     * Texto literal: uma constante ou um operador com os espaços em volta.
+     */
+    record Texto(String texto) implements ParteResultado {
+    }
+
+    /**
+     * Um termo de dados já rolado.
+     *
+     * @param rotulo    o termo como foi escrito, por exemplo {@code 4d6sm1}
+     * @param total     soma dos dados mantidos, ou a quantidade de sucessos
+     * @param lados     lados de cada dado
+     * @param dados     dados mantidos, na ordem da rolagem; {@code null} se o termo foi rolado em histograma
+     * @param contagens para termos rolados em histograma, quantos dados mantidos saíram em cada face
+     *                  (índice = face); senão {@code null}
+     * @param sucessos  se o total é a quantidade de sucessos ({@code 10d10>=8}) e não a soma
+     */
+    record Termo(String rotulo, int total, int lados, int[] dados, int[] contagens, boolean sucessos)
+            implements ParteResultado {
+
+        public Termo(String rotulo, int total, int lados, int[] dados, int[] contagens) {
+            this(rotulo, total, lados, dados, contagens, false);
+        }
+
+        /**
+         * @return quantidade de dados mantidos no termo
+         */
+        public int quantidade() {
+            if (dados != null) {
+                return dados.length;
+            }
+            int quantidade = 0;
+            for (int contagem : contagens) {
+                quantidade += contagem;
+            }
+            return quantidade;
+        }
+    }
+}
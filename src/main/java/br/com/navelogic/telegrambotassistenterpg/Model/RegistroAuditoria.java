@@ -0,0 +1,22 @@
+package br.com.navelogic.telegrambotassistenterpg.Model;
+
+import java.time.Instant;
+
+/**
+ * Uma rolagem lida de um segmento da auditoria.
+ *
+ * @param instante       quando a rolagem foi registrada
+ * @param chatId         chat da rolagem
+ * @param usuarioId      quem rolou, ou {@code null} se desconhecido
+ * @param semente        semente que gerou os dados
+ * @param expressao      expressão rolada, sem o comando, cortada se {@code expressaoCortada}
+ * @param total          total da rolagem
+ * @param dados          os primeiros dados mantidos, na ordem da expressão
+ * @param dadosCompletos se {@code dados} traz todos os dados mantidos da rolagem
+ * @param reproduzivel   se os dados saíram da semente; as rolagens com {@code dados.aleatorio.tipo=seguro}
+ *                       só podem ser conferidas pelos dados guardados
+ * @param expressaoCortada se a expressão passava do limite da auditoria e foi guardada só no começo
+ */
+public record RegistroAuditoria(Instant instante, long chatId, Long usuarioId, long semente, String expressao,
+        int total, int[] dados, boolean dadosCompletos, boolean reproduzivel, boolean expressaoCortada) {
+}
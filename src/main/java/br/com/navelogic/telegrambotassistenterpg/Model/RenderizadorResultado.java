@@ -0,0 +1,368 @@
+package br.com.navelogic.telegrambotassistenterpg.Model;
+
+import br.com.navelogic.telegrambotassistenterpg.Util.TextoHtml;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Monta a mensagem HTML de um {@link ResultadoDados} ou de um {@link ResultadoLote} dentro do
+ * limite de caracteres do Telegram.
+ *
+ * <p>O tamanho da mensagem completa é calculado antes, a partir dos números, e o texto é escrito
+ * uma única vez em um {@link StringBuilder} já com esse tamanho. Se a mensagem completa não couber
+ * em {@link #LIMITE_MENSAGEM} caracteres, ou se a rolagem foi marcada como resumo, a resposta
+ * passa a ter:</p>
+ * <ul>
+ *   <li>o subtotal de cada termo no lugar dos dados ({@code [1000d6 = 3512]});</li>
+ *   <li>para cada termo com muitos dados, os maiores e os menores e, em dados de até
+ *   {@link #MAXIMO_FACES_CONTAGEM} lados, a contagem de cada face;</li>
+ *   <li>a lista completa em um bloco recolhido ({@code <blockquote expandable>}), cortada com
+ *   {@code …} no que sobrar do limite.</li>
+ * </ul>
+ */
+final class RenderizadorResultado {
+
+    /** Tamanho máximo de uma mensagem do Telegram. */
+    static final int LIMITE_MENSAGEM = 4096;
+    /** Termos com até esta quantidade de dados são listados inteiros no resumo. */
+    static final int MAXIMO_DADOS_LISTADOS = 10;
+    /** Quantos maiores e menores dados são mostrados no resumo. */
+    static final int EXTREMOS = 5;
+    /** Até quantos lados o resumo mostra a contagem de cada face. */
+    static final int MAXIMO_FACES_CONTAGEM = 20;
+
+    private static final String CABECALHO = "🎲 Total: ";
+    private static final String DADOS = "\n\nDados: ";
+    private static final String ABRE_LISTA = "\n\n<blockquote expandable>";
+    private static final String FECHA_LISTA = "</blockquote>";
+    private static final String CORTE = "…";
+    private static final int MINIMO_LISTA = 64;
+
+    private RenderizadorResultado() {
+    }
+
+    static String renderizar(ResultadoDados resultado) {
+        if (!resultado.isResumo()) {
+            long tamanho = CABECALHO.length() + digitos(resultado.getTotal()) + DADOS.length()
+                    + tamanhoVisual(resultado, false) + 1 + tamanhoCritico(resultado);
+            if (tamanho <= LIMITE_MENSAGEM) {
+                StringBuilder texto = new StringBuilder((int) tamanho);
+                texto.append(CABECALHO).append(resultado.getTotal()).append(DADOS);
+                escreverVisual(texto, resultado, false, Integer.MAX_VALUE);
+                texto.append('\n');
+                escreverCritico(texto, resultado);
+                return texto.toString();
+            }
+        }
+        return renderizarResumo(resultado);
+    }
+
+    /**
+     * Texto simples dos dados, sem HTML e sem limite, como no histórico de rolagens.
+     */
+    static String visual(ResultadoDados resultado) {
+        StringBuilder texto = new StringBuilder((int) Math.min(Integer.MAX_VALUE, tamanhoVisual(resultado, resultado.isResumo())));
+        for (ParteResultado parte : resultado.getPartes()) {
+            switch (parte) {
+                case ParteResultado.Texto literal -> texto.append(literal.texto());
+                case ParteResultado.Termo termo -> escreverTermo(texto, termo, resultado.isResumo(), Integer.MAX_VALUE);
+            }
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Monta a mensagem de um lote: cada rolagem com o total e os dados ou, se não couber,
+     * só os totais de cada expressão, cortados com {@code …} no limite.
+     */
+    static String renderizarLote(ResultadoLote lote) {
+        StringBuilder texto = new StringBuilder(LIMITE_MENSAGEM);
+        if (escreverLote(texto, lote, true)) {
+            return texto.toString();
+        }
+        texto.setLength(0);
+        escreverLote(texto, lote, false);
+        return texto.toString();
+    }
+
+    private static String renderizarResumo(ResultadoDados resultado) {
+        int reservado = tamanhoCritico(resultado) + 1;
+        int limite = LIMITE_MENSAGEM - reservado;
+        StringBuilder texto = new StringBuilder(LIMITE_MENSAGEM);
+        texto.append(CABECALHO).append(resultado.getTotal()).append(DADOS);
+        escreverVisual(texto, resultado, true, limite);
+
+        for (ParteResultado parte : resultado.getPartes()) {
+            if (parte instanceof ParteResultado.Termo termo && !escreverDetalhes(texto, termo, limite)) {
+                break;
+            }
+        }
+
+        if (limite - texto.length() >= MINIMO_LISTA + ABRE_LISTA.length() + FECHA_LISTA.length()) {
+            texto.append(ABRE_LISTA);
+            escreverVisual(texto, resultado, false, limite - FECHA_LISTA.length());
+            texto.append(FECHA_LISTA);
+        }
+        texto.append('\n');
+        escreverCritico(texto, resultado);
+        return texto.toString();
+    }
+
+    /**
+     * Escreve os grupos do lote. No modo detalhado para ao passar do limite; no modo só com os
+     * totais, corta o último total que não couber e termina com {@code …}.
+     *
+     * @return {@code false} se o limite foi atingido
+     */
+    private static boolean escreverLote(StringBuilder texto, ResultadoLote lote, boolean detalhado) {
+        int limiteItens = LIMITE_MENSAGEM - CORTE.length();
+        for (ResultadoLote.Grupo grupo : lote.getGrupos()) {
+            List<ResultadoDados> rolagens = grupo.rolagens();
+            if (!texto.isEmpty()) {
+                texto.append("\n\n");
+            }
+            TextoHtml.escapar(texto.append("🎲 <b>"), grupo.expressao()).append("</b>");
+            if (rolagens.size() > 1) {
+                texto.append(" ×").append(rolagens.size());
+            }
+            for (int i = 0; i < rolagens.size(); i++) {
+                int inicio = texto.length();
+                ResultadoDados rolagem = rolagens.get(i);
+                if (detalhado) {
+                    texto.append('\n');
+                    if (rolagens.size() > 1) {
+                        texto.append(i + 1).append(". ");
+                    }
+                    texto.append("<b>").append(rolagem.getTotal()).append("</b>: ");
+                    TextoHtml.escapar(texto, visual(rolagem));
+                } else {
+                    texto.append(i == 0 ? "\n" : ", ").append(rolagem.getTotal());
+                }
+                if (texto.length() > limiteItens) {
+                    if (!detalhado) {
+                        texto.setLength(inicio);
+                        texto.append(CORTE);
+                    }
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Escreve os dados de cada parte até o limite; ao atingi-lo, termina com {@code …}.
+     *
+     * @return {@code false} se o texto foi cortado
+     */
+    private static boolean escreverVisual(StringBuilder texto, ResultadoDados resultado, boolean resumo, int limite) {
+        int limiteItens = limite == Integer.MAX_VALUE ? limite : limite - CORTE.length();
+        for (ParteResultado parte : resultado.getPartes()) {
+            boolean completo = switch (parte) {
+                case ParteResultado.Texto literal -> {
+                    if (texto.length() + TextoHtml.tamanhoEscapado(literal.texto()) > limiteItens) {
+                        yield false;
+                    }
+                    TextoHtml.escapar(texto, literal.texto());
+                    yield true;
+                }
+                case ParteResultado.Termo termo -> escreverTermo(texto, termo, resumo, limiteItens);
+            };
+            if (!completo) {
+                texto.append(CORTE);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean escreverTermo(StringBuilder texto, ParteResultado.Termo termo, boolean resumo, int limite) {
+        if (resumo) {
+            if (texto.length() + termo.rotulo().length() + digitos(termo.total()) + 5 > limite) {
+                return false;
+            }
+            texto.append('[').append(termo.rotulo()).append(" = ").append(termo.total()).append(']');
+            return true;
+        }
+        if (termo.dados() != null) {
+            int[] dados = termo.dados();
+            for (int i = 0; i < dados.length; i++) {
+                if (texto.length() + digitos(dados[i]) + 3 > limite) {
+                    return false;
+                }
+                if (i > 0) {
+                    texto.append(" + ");
+                }
+                texto.append(dados[i]);
+            }
+            return true;
+        }
+        if (!escreverContagens(texto, termo.contagens(), limite)) {
+            return false;
+        }
+        if (termo.sucessos()) {
+            if (texto.length() + tamanhoSucessos(termo) > limite) {
+                return false;
+            }
+            texto.append(" (").append(termo.total()).append(termo.total() == 1 ? " sucesso)" : " sucessos)");
+        }
+        return true;
+    }
+
+    /**
+     * Escreve os maiores e menores dados e a contagem de faces de um termo.
+     *
+     * @return {@code false} se o limite foi atingido
+     */
+    private static boolean escreverDetalhes(StringBuilder texto, ParteResultado.Termo termo, int limite) {
+        int quantidade = termo.quantidade();
+        int inicio = texto.length();
+        texto.append("\n\n<b>").append(termo.rotulo()).append("</b>");
+        if (termo.dados() != null && quantidade <= MAXIMO_DADOS_LISTADOS) {
+            texto.append(": ");
+            escreverTermo(texto, termo, false, Integer.MAX_VALUE);
+        } else if (quantidade > 0) {
+            int[] maiores = new int[Math.min(EXTREMOS, quantidade)];
+            int[] menores = new int[maiores.length];
+            extremos(termo, maiores, menores);
+            escreverLista(texto.append("\nMaiores: "), maiores);
+            escreverLista(texto.append("\nMenores: "), menores);
+            if (termo.lados() <= MAXIMO_FACES_CONTAGEM) {
+                escreverContagens(texto.append("\nFaces: "), contagens(termo), Integer.MAX_VALUE);
+            }
+        }
+        if (texto.length() > limite - CORTE.length()) {
+            texto.setLength(inicio);
+            texto.append(CORTE);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Preenche os maiores (em ordem decrescente) e os menores (em ordem crescente) dados do termo.
+     */
+    private static void extremos(ParteResultado.Termo termo, int[] maiores, int[] menores) {
+        int[] contagens = termo.contagens();
+        if (contagens == null) {
+            int[] ordenados = termo.dados().clone();
+            Arrays.sort(ordenados);
+            for (int i = 0; i < maiores.length; i++) {
+                maiores[i] = ordenados[ordenados.length - 1 - i];
+                menores[i] = ordenados[i];
+            }
+            return;
+        }
+        for (int face = contagens.length - 1, i = 0; face >= 1 && i < maiores.length; face--) {
+            for (int vezes = contagens[face]; vezes > 0 && i < maiores.length; vezes--) {
+                maiores[i++] = face;
+            }
+        }
+        for (int face = 1, i = 0; face < contagens.length && i < menores.length; face++) {
+            for (int vezes = contagens[face]; vezes > 0 && i < menores.length; vezes--) {
+                menores[i++] = face;
+            }
+        }
+    }
+
+    private static int[] contagens(ParteResultado.Termo termo) {
+        if (termo.contagens() != null) {
+            return termo.contagens();
+        }
+        int[] contagens = new int[termo.lados() + 1];
+        for (int dado : termo.dados()) {
+            contagens[dado]++;
+        }
+        return contagens;
+    }
+
+    /**
+     * Escreve as faces que saíram no formato {@code 1×1667, 2×1650, ...}.
+     */
+    private static boolean escreverContagens(StringBuilder texto, int[] contagens, int limite) {
+        boolean primeira = true;
+        for (int face = 1; face < contagens.length; face++) {
+            if (contagens[face] == 0) {
+                continue;
+            }
+            if (texto.length() + digitos(face) + digitos(contagens[face]) + 3 > limite) {
+                return false;
+            }
+            if (!primeira) {
+                texto.append(", ");
+            }
+            texto.append(face).append('×').append(contagens[face]);
+            primeira = false;
+        }
+        return true;
+    }
+
+    private static void escreverLista(StringBuilder texto, int[] valores) {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                texto.append(", ");
+            }
+            texto.append(valores[i]);
+        }
+    }
+
+    private static void escreverCritico(StringBuilder texto, ResultadoDados resultado) {
+        if (!resultado.getCritico().isEmpty()) {
+            TextoHtml.escapar(texto.append('\n'), resultado.getCritico());
+        }
+    }
+
+    private static int tamanhoCritico(ResultadoDados resultado) {
+        return resultado.getCritico().isEmpty() ? 0 : 1 + TextoHtml.tamanhoEscapado(resultado.getCritico());
+    }
+
+    /**
+     * Calcula o tamanho exato dos dados escritos por {@link #escreverVisual} sem limite.
+     */
+    private static long tamanhoVisual(ResultadoDados resultado, boolean resumo) {
+        long tamanho = 0;
+        for (ParteResultado parte : resultado.getPartes()) {
+            tamanho += switch (parte) {
+                case ParteResultado.Texto literal -> TextoHtml.tamanhoEscapado(literal.texto());
+                case ParteResultado.Termo termo -> tamanhoTermo(termo, resumo);
+            };
+        }
+        return tamanho;
+    }
+
+    private static long tamanhoTermo(ParteResultado.Termo termo, boolean resumo) {
+        if (resumo) {
+            return termo.rotulo().length() + digitos(termo.total()) + 5;
+        }
+        long tamanho = 0;
+        if (termo.dados() != null) {
+            for (int dado : termo.dados()) {
+                tamanho += digitos(dado) + 3;
+            }
+            return Math.max(0, tamanho - 3);
+        }
+        int[] contagens = termo.contagens();
+        for (int face = 1; face < contagens.length; face++) {
+            if (contagens[face] > 0) {
+                tamanho += digitos(face) + digitos(contagens[face]) + 3;
+            }
+        }
+        return Math.max(0, tamanho - 2) + (termo.sucessos() ? tamanhoSucessos(termo) : 0);
+    }
+
+    /**
+     * Tamanho de {@code " (3 sucessos)"}.
+     */
+    private static int tamanhoSucessos(ParteResultado.Termo termo) {
+        return digitos(termo.total()) + (termo.total() == 1 ? 11 : 12);
+    }
+
+    private static int digitos(long valor) {
+        int digitos = valor < 0 ? 2 : 1;
+        for (long resto = Math.abs(valor) / 10; resto > 0; resto /= 10) {
+            digitos++;
+        }
+        return digitos;
+    }
+}
@@ -1,80 +1,110 @@
 package br.com.navelogic.telegrambotassistenterpg.Model;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.List;
+
 /**
  * Uma classe que representa o resultado de uma rolagem de dados em um jogo de RPG.
- * Ela contém o valor total da rolagem, uma representação visual da rolagem,
- * e uma descrição opcional de acerto crítico.
- * 
+ * Ela contém o valor total da rolagem, as partes da expressão rolada (constantes,
+ * operadores e os dados de cada termo) e uma descrição opcional de acerto crítico.
+ *
  * <p>Esta classe fornece construtores para criar um objeto ResultadoDados com
  * o total e a representação visual especificados, e opcionalmente uma descrição de acerto crítico.
- * Também sobrescreve o método toString para fornecer uma representação de string formatada
- * do resultado.</p>
- * 
+ * O método toString monta a mensagem em HTML para o Telegram pelo {@link RenderizadorResultado},
+ * que respeita o limite de 4096 caracteres e resume a rolagem quando ela não cabe.</p>
+ *
  * <p>Exemplo de uso:</p>
  * <pre>
  * {@code
- * ResultadoDados resultado = new ResultadoDados(15, "(5+5+5)");
+ * ResultadoDados resultado = new ResultadoDados(15, "5 + 5 + 5");
  * System.out.println(resultado);
  * }
  * </pre>
- * 
+ *
  * <p>Saída:</p>
  * <pre>
  * 🎲 Total: 15
- * 
- * Dados: 5+5+5
+ *
+ * Dados: 5 + 5 + 5
  * </pre>
- * 
+ *
  * <p>Se uma descrição de acerto crítico for fornecida, ela será incluída na saída.</p>
- * 
+ *
  * <p>Exemplo de uso com acerto crítico:</p>
  * <pre>
  * {@code
- * ResultadoDados resultado = new ResultadoDados(20, "(10+10)", "Acerto Crítico!");
+ * ResultadoDados resultado = new ResultadoDados(20, "10 + 10", "Acerto Crítico!");
  * System.out.println(resultado);
  * }
  * </pre>
- * 
+ *
  * <p>Saída:</p>
  * <pre>
  * 🎲 Total: 20
- * 
- * Dados: 10+10
- * 
+ *
+ * Dados: 10 + 10
+ *
  * Acerto Crítico!
  * </pre>
- * 
+ *
  * @param total  o valor total da rolagem de dados
- * @param visual a representação visual da rolagem de dados
+ * @param partes as partes da expressão rolada, na ordem
+ * @param resumo se a resposta deve mostrar só o subtotal de cada termo
  * @param critico a descrição de um acerto crítico (opcional)
+ * @param semente a semente que gerou os dados, para repetir a rolagem na auditoria
+ * @param reproduzivel se os dados saíram da semente; com {@code dados.aleatorio.tipo=seguro} eles
+ *        vêm direto do SecureRandom e a rolagem não pode ser repetida
  */
 @Data
-@AllArgsConstructor
 public class ResultadoDados {
     private final Integer total;
-    private final String visual;
+    private final List<ParteResultado> partes;
+    private final boolean resumo;
     private final String critico;
+    private final long semente;
+    private final boolean reproduzivel;
 
-    public ResultadoDados(int total, String visual) {
+    public ResultadoDados(int total, List<ParteResultado> partes, boolean resumo, long semente,
+            boolean reproduzivel) {
         this.total = total;
-        this.visual = visual;
+        this.partes = partes;
+        this.resumo = resumo;
         this.critico = "";
+        this.semente = semente;
+        this.reproduzivel = reproduzivel;
+    }
+
+    public ResultadoDados(int total, List<ParteResultado> partes, boolean resumo, long semente) {
+        this(total, partes, resumo, semente, true);
+    }
+
+    public ResultadoDados(int total, List<ParteResultado> partes, boolean resumo) {
+        this(total, partes, resumo, 0);
+    }
+
+    public ResultadoDados(int total, String visual, String critico) {
+        this.total = total;
+        this.partes = List.of(new ParteResultado.Texto(visual));
+        this.resumo = false;
+        this.critico = critico;
+        this.semente = 0;
+        this.reproduzivel = false;
+    }
+
+    public ResultadoDados(int total, String visual) {
+        this(total, visual, "");
+    }
+
+    /**
+     * @return a representação dos dados em texto simples, sem HTML e sem limite de tamanho
+     */
+    public String getVisual() {
+        return RenderizadorResultado.visual(this);
     }
 
-        @Override
-        public String toString() {
-            String resultado = String.format("🎲 Total: %d\n\nDados: %s\n", 
-                total, 
-                visual.replaceAll("[()]", "")
-            );
-            
-            if (!critico.isEmpty()) {
-                resultado += "\n" + critico;
-            }
-            
-            return resultado;
-        }
+    @Override
+    public String toString() {
+        return RenderizadorResultado.renderizar(this);
     }
+}
@@ -0,0 +1,40 @@
+package br.com.navelogic.telegrambotassistenterpg.Model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Resultado de um lote de rolagens ({@code /r 6# 1d20+5; 2d6}), respondido em uma única mensagem.
+ *
+ * <p>Cada grupo guarda a expressão como foi digitada e as rolagens dela, na ordem. O método
+ * toString monta a mensagem em HTML pelo {@link RenderizadorResultado}: cada rolagem com o
+ * total e os dados e, se não couber no limite do Telegram, só os totais.</p>
+ *
+ * <p>Saída de {@code /r 3# 1d20+5}:</p>
+ * <pre>
+ * 🎲 1d20+5 ×3
+ * 1. 17: 12 + 5
+ * 2. 9: 4 + 5
+ * 3. 25: 20 + 5
+ * </pre>
+ */
+@Data
+public class ResultadoLote {
+
+    /**
+     * Rolagens de uma expressão do lote.
+     *
+     * @param expressao a expressão, sem o número de repetições
+     * @param rolagens  os resultados, um por repetição
+     */
+    public record Grupo(String expressao, List<ResultadoDados> rolagens) {
+    }
+
+    private final List<Grupo> grupos;
+
+    @Override
+    public String toString() {
+        return RenderizadorResultado.renderizarLote(this);
+    }
+}
@@ -0,0 +1,60 @@
+package br.com.navelogic.telegrambotassistenterpg.Model;
+
+import br.com.navelogic.telegrambotassistenterpg.Util.TextoHtml;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Locale;
+
+/**
+ * Resumo da distribuição exata de uma expressão de dados, respondido pelo comando /prob.
+ *
+ * <p>Exemplo de saída para {@code /prob 4d6sm1}:</p>
+ * <pre>
+ * 📊 Probabilidades de 4d6sm1
+ *
+ * Média: 12,24
+ * Desvio padrão: 2,85
+ * Mínimo: 3 | Máximo: 18
+ * Mais provável: 13 (13,27%)
+ *
+ * Percentis:
+ * 5%: 8 | 25%: 10 | 50%: 12 | 75%: 14 | 95%: 16
+ * </pre>
+ */
+@Data
+@AllArgsConstructor
+public class ResultadoProbabilidade {
+
+    /** Frações dos percentis exibidos, na ordem de {@link #percentis}. */
+    public static final double[] FRACOES_PERCENTIS = {0.05, 0.25, 0.5, 0.75, 0.95};
+
+    private static final Locale LOCALE = Locale.of("pt", "BR");
+
+    private final String expressao;
+    private final double media;
+    private final double desvioPadrao;
+    private final int minimo;
+    private final int maximo;
+    private final int moda;
+    private final double probabilidadeModa;
+    private final int[] percentis;
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder(256);
+        TextoHtml.escapar(texto.append("📊 Probabilidades de "), expressao).append("\n\n");
+        texto.append(String.format(LOCALE, "Média: %.2f\n", media));
+        texto.append(String.format(LOCALE, "Desvio padrão: %.2f\n", desvioPadrao));
+        texto.append("Mínimo: ").append(minimo).append(" | Máximo: ").append(maximo).append('\n');
+        texto.append(String.format(LOCALE, "Mais provável: %d (%.2f%%)\n", moda, probabilidadeModa * 100));
+        texto.append("\nPercentis:\n");
+        for (int i = 0; i < percentis.length; i++) {
+            if (i > 0) {
+                texto.append(" | ");
+            }
+            texto.append(Math.round(FRACOES_PERCENTIS[i] * 100)).append("%: ").append(percentis[i]);
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.navelogic.telegrambotassistenterpg.Model;
+
+import java.util.function.Function;
+
+/**
+ * Estado de um chat mantido em memória entre mensagens, como a ordem de iniciativa.
+ *
+ * <p>As mensagens de um chat já são processadas em ordem, mas o estado é alterado só dentro
+ * de {@link #iniciativa(Function)}, com o bloqueio da sessão, para continuar correto se duas
+ * atualizações do mesmo chat chegarem ao mesmo tempo. A ordem de iniciativa só é criada no
+ * primeiro uso.</p>
+ */
+public class SessaoChat {
+
+    private final long chatId;
+    private final int maximoCombatentes;
+    private OrdemIniciativa iniciativa;
+
+    public SessaoChat(long chatId, int maximoCombatentes) {
+        this.chatId = chatId;
+        this.maximoCombatentes = maximoCombatentes;
+    }
+
+    public long getChatId() {
+        return chatId;
+    }
+
+    /**
+     * Executa a operação sobre a ordem de iniciativa do chat, com o bloqueio da sessão.
+     *
+     * @return o resultado da operação
+     */
+    public synchronized <T> T iniciativa(Function<OrdemIniciativa, T> operacao) {
+        if (iniciativa == null) {
+            iniciativa = new OrdemIniciativa(maximoCombatentes);
+        }
+        return operacao.apply(iniciativa);
+    }
+}
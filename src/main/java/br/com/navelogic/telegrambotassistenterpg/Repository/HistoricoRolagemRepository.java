@@ -0,0 +1,11 @@
+package br.com.navelogic.telegrambotassistenterpg.Repository;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.HistoricoRolagem;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface HistoricoRolagemRepository extends JpaRepository<HistoricoRolagem, Long> {
+
+    List<HistoricoRolagem> findByChatIdOrderByCriadoEmAsc(long chatId);
+}
@@ -0,0 +1,16 @@
+package br.com.navelogic.telegrambotassistenterpg.Repository;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.MacroRolagem;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface MacroRolagemRepository extends JpaRepository<MacroRolagem, Long> {
+
+    Optional<MacroRolagem> findByChatIdAndNome(long chatId, String nome);
+
+    List<MacroRolagem> findByChatIdOrderByNomeAsc(long chatId);
+
+    long countByChatId(long chatId);
+}
@@ -0,0 +1,109 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Sorteio de variáveis binomiais em tempo esperado constante.
+ *
+ * <p>Usado para rolar grandes quantidades de dados direto em um histograma:
+ * a contagem de cada face é sorteada de uma só vez, em vez de rolar dado a dado.</p>
+ *
+ * <ul>
+ *   <li>para {@code n·p < 10}, inversão sequencial da distribuição (custo proporcional a {@code n·p});</li>
+ *   <li>caso contrário, o algoritmo BTRS de Hörmann (rejeição transformada com compressão),
+ *   com custo constante independente de {@code n}.</li>
+ * </ul>
+ */
+final class AmostragemBinomial {
+
+    private static final int TAMANHO_TABELA = 256;
+    private static final double[] LOG_FATORIAL = new double[TAMANHO_TABELA];
+
+    static {
+        for (int i = 1; i < TAMANHO_TABELA; i++) {
+            LOG_FATORIAL[i] = LOG_FATORIAL[i - 1] + Math.log(i);
+        }
+    }
+
+    private AmostragemBinomial() {
+    }
+
+    /**
+     * Sorteia o número de sucessos em {@code n} tentativas com probabilidade {@code p}.
+     *
+     * @param random gerador de números aleatórios
+     * @param n      número de tentativas
+     * @param p      probabilidade de sucesso de cada tentativa
+     * @return um valor entre {@code 0} e {@code n}
+     */
+    static int amostrar(RandomGenerator random, int n, double p) {
+        if (n == 0 || p <= 0.0) {
+            return 0;
+        }
+        if (p >= 1.0) {
+            return n;
+        }
+        if (p > 0.5) {
+            return n - amostrar(random, n, 1.0 - p);
+        }
+        return n * p < 10.0 ? inversao(random, n, p) : btrs(random, n, p);
+    }
+
+    private static int inversao(RandomGenerator random, int n, double p) {
+        double q = 1.0 - p;
+        double s = p / q;
+        double a = (n + 1) * s;
+        double r = Math.pow(q, n);
+        double u = random.nextDouble();
+        int x = 0;
+        while (u > r && x < n) {
+            u -= r;
+            x++;
+            r *= (a / x) - s;
+        }
+        return x;
+    }
+
+    private static int btrs(RandomGenerator random, int n, double p) {
+        double spq = Math.sqrt(n * p * (1.0 - p));
+        double b = 1.15 + 2.53 * spq;
+        double a = -0.0873 + 0.0248 * b + 0.01 * p;
+        double c = n * p + 0.5;
+        double vr = 0.92 - 4.2 / b;
+        double alfa = (2.83 + 5.1 / b) * spq;
+        double lpq = Math.log(p / (1.0 - p));
+        int m = (int) Math.floor((n + 1) * p);
+        double h = logFatorial(m) + logFatorial(n - m);
+
+        while (true) {
+            double u = random.nextDouble() - 0.5;
+            double v = random.nextDouble();
+            double us = 0.5 - Math.abs(u);
+            int k = (int) Math.floor((2.0 * a / us + b) * u + c);
+            if (k < 0 || k > n) {
+                continue;
+            }
+            if (us >= 0.07 && v <= vr) {
+                return k;
+            }
+            v = Math.log(v * alfa / (a / (us * us) + b));
+            if (v <= h - logFatorial(k) - logFatorial(n - k) + (k - m) * lpq) {
+                return k;
+            }
+        }
+    }
+
+    /**
+     * {@code ln(k!)}: tabela para valores pequenos, série de Stirling para os demais.
+     */
+    static double logFatorial(int k) {
+        if (k < TAMANHO_TABELA) {
+            return LOG_FATORIAL[k];
+        }
+        double x = k;
+        double inverso = 1.0 / x;
+        double inverso2 = inverso * inverso;
+        return x * Math.log(x) - x + 0.5 * Math.log(2.0 * Math.PI * x)
+                + inverso * (1.0 / 12.0 - inverso2 * (1.0 / 360.0 - inverso2 / 1260.0));
+    }
+}
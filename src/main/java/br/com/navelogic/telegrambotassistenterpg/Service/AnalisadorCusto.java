@@ -0,0 +1,203 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.ExpressaoDados;
+
+/**
+ * Análise estática de uma expressão compilada, feita antes de sortear qualquer número.
+ *
+ * <ul>
+ *   <li>{@link #simplificar}: dobra as subexpressões só de constantes ({@code 2*3+1d6} vira {@code 6+1d6})
+ *   para a estimativa; a expressão rolada e mostrada continua a original;</li>
+ *   <li>{@link #estimar}: soma, por todos os termos, o custo de CPU (números sorteados e
+ *   operações de seleção) e o tamanho do texto da resposta, e calcula os limites mínimo e
+ *   máximo de cada subexpressão por aritmética de intervalos. Como toda conta da rolagem é
+ *   feita em {@code int}, qualquer limite fora dessa faixa indica um possível estouro.</li>
+ * </ul>
+ *
+ * <p>A decisão de recusar ou resumir a resposta fica com o {@link RolarDadosService},
+ * que compara o {@link Custo} com o orçamento configurado.</p>
+ */
+final class AnalisadorCusto {
+
+    private static final String MENSAGEM_DIVISAO_POR_ZERO = "Não é possível dividir por zero.";
+
+    /**
+     * Custo estimado de uma expressão.
+     *
+     * @param operacoes        números sorteados mais operações de seleção e de aritmética
+     * @param caracteres       tamanho do texto dos dados, mostrando cada dado (ou cada face, no histograma)
+     * @param caracteresResumo tamanho do texto dos dados mostrando só o subtotal de cada termo
+     * @param minimo           menor resultado possível
+     * @param maximo           maior resultado possível
+     */
+    record Custo(long operacoes, long caracteres, long caracteresResumo, long minimo, long maximo) {
+    }
+
+    private AnalisadorCusto() {
+    }
+
+    /**
+     * Dobra as operações entre constantes, com a mesma aritmética inteira da rolagem.
+     *
+     * @return a expressão simplificada (a mesma instância, se nada mudou)
+     * @throws IllegalArgumentException em divisão por zero ou estouro entre constantes
+     */
+    static ExpressaoDados simplificar(ExpressaoDados expressao) {
+        if (!(expressao instanceof ExpressaoDados.Operacao operacao)) {
+            return expressao;
+        }
+        ExpressaoDados esquerda = simplificar(operacao.esquerda());
+        ExpressaoDados direita = simplificar(operacao.direita());
+        if (esquerda instanceof ExpressaoDados.Constante a && direita instanceof ExpressaoDados.Constante b) {
+            if (operacao.operador() == '/' && b.valor() == 0) {
+                throw new IllegalArgumentException(MENSAGEM_DIVISAO_POR_ZERO);
+            }
+            long valor = aplicar(a.valor(), b.valor(), operacao.operador());
+            verificarFaixa(valor, valor);
+            return new ExpressaoDados.Constante((int) valor);
+        }
+        if (esquerda == operacao.esquerda() && direita == operacao.direita()) {
+            return operacao;
+        }
+        return new ExpressaoDados.Operacao(operacao.operador(), esquerda, direita);
+    }
+
+    /**
+     * Estima o custo de rolar a expressão.
+     *
+     * @param maxDadosLista termos com mais dados que isso são rolados e exibidos como histograma
+     * @throws IllegalArgumentException se algum resultado intermediário puder estourar {@code int}
+     *                                  ou se uma divisão for sempre por zero
+     */
+    static Custo estimar(ExpressaoDados expressao, int maxDadosLista) {
+        return switch (expressao) {
+            case ExpressaoDados.Constante constante -> {
+                int digitos = digitos(constante.valor());
+                yield new Custo(1, digitos, digitos, constante.valor(), constante.valor());
+            }
+            case ExpressaoDados.Dados dados -> estimarDados(dados, maxDadosLista);
+            case ExpressaoDados.Operacao operacao -> {
+                Custo esquerda = estimar(operacao.esquerda(), maxDadosLista);
+                Custo direita = estimar(operacao.direita(), maxDadosLista);
+                long[] limites = limites(esquerda, direita, operacao.operador());
+                verificarFaixa(limites[0], limites[1]);
+                yield new Custo(esquerda.operacoes() + direita.operacoes() + 1,
+                        esquerda.caracteres() + direita.caracteres() + 3,
+                        esquerda.caracteresResumo() + direita.caracteresResumo() + 3,
+                        limites[0], limites[1]);
+            }
+        };
+    }
+
+    private static Custo estimarDados(ExpressaoDados.Dados dados, int maxDadosLista) {
+        if (dados.porFaces()) {
+            return estimarParada(dados);
+        }
+        long quantidade = dados.quantidade();
+        long lados = dados.lados();
+        long mantidos = dados.modificador() == null ? quantidade
+                : dados.modificador().quantidadeMantida(dados.quantidade(), dados.quantidadeModificador());
+        long maximo = mantidos * lados;
+        verificarFaixa(mantidos, maximo);
+
+        long operacoes;
+        long caracteres;
+        if (quantidade > maxDadosLista) {
+            // Uma binomial por face, mais uma passada pelo histograma para recortar os mantidos.
+            operacoes = 2 * lados;
+            caracteres = Math.min(lados, mantidos) * (digitos(lados) + digitos(quantidade) + 3);
+        } else {
+            // Um sorteio por dado, mais a seleção dos mantidos quando há modificador.
+            operacoes = dados.modificador() == null ? quantidade : 2 * quantidade;
+            caracteres = mantidos * (digitos(lados) + 3);
+        }
+        return new Custo(operacoes, caracteres, caracteresResumo(dados, maximo), mantidos, maximo);
+    }
+
+    /**
+     * Parada de dados com rerrolagem, explosão ou sucessos, no pior caso: todos os dados
+     * explodindo em todas as rodadas permitidas.
+     */
+    private static Custo estimarParada(ExpressaoDados.Dados dados) {
+        long quantidade = dados.quantidade();
+        long lados = dados.lados();
+        long rodadas = dados.explodirDe() > 0 ? MotorRolagem.MAX_RODADAS_EXPLOSAO + 1 : 1;
+        long parada = Math.min(Integer.MAX_VALUE, quantidade * rodadas);
+        long minimoMantidos = quantidade;
+        long mantidos = parada;
+        if (dados.modificador() != null) {
+            minimoMantidos = dados.modificador().quantidadeMantida(dados.quantidade(), dados.quantidadeModificador());
+            mantidos = dados.modificador().quantidadeMantida((int) parada, dados.quantidadeModificador());
+        }
+        long minimo = dados.sucessoDe() > 0 ? 0 : minimoMantidos;
+        long maximo = dados.sucessoDe() > 0 ? mantidos : mantidos * lados;
+        verificarFaixa(minimo, maximo);
+
+        // Por rodada: o sorteio (um por dado ou uma binomial por face), a rerrolagem e duas
+        // passadas pelo histograma; depois o recorte dos mantidos e a soma de prefixo.
+        long sorteio = Math.min(quantidade, lados);
+        long operacoes = rodadas * (sorteio * (dados.rerrolarAte() > 0 ? 2 : 1) + 2 * lados) + 2 * lados;
+        long caracteres = Math.min(lados, mantidos) * (digitos(lados) + digitos(mantidos) + 3)
+                + (dados.sucessoDe() > 0 ? digitos(mantidos) + 12 : 0);
+        return new Custo(operacoes, caracteres, caracteresResumo(dados, maximo), minimo, maximo);
+    }
+
+    /**
+     * Tamanho de {@code [NdXsmK = total]}.
+     */
+    private static long caracteresResumo(ExpressaoDados.Dados dados, long maximo) {
+        return dados.rotulo().length() + digitos(maximo) + 5;
+    }
+
+    private static long[] limites(Custo a, Custo b, char operador) {
+        return switch (operador) {
+            case '+' -> new long[]{a.minimo() + b.minimo(), a.maximo() + b.maximo()};
+            case '-' -> new long[]{a.minimo() - b.maximo(), a.maximo() - b.minimo()};
+            case '*', '/' -> {
+                if (operador == '/' && b.minimo() == 0 && b.maximo() == 0) {
+                    throw new IllegalArgumentException(MENSAGEM_DIVISAO_POR_ZERO);
+                }
+                // Os extremos ficam nas pontas de a combinadas com as pontas de b ou, na divisão, com ±1.
+                long minimo = Long.MAX_VALUE;
+                long maximo = Long.MIN_VALUE;
+                for (long x : new long[]{a.minimo(), a.maximo()}) {
+                    for (long y : new long[]{b.minimo(), b.maximo(), -1, 1}) {
+                        if (y < b.minimo() || y > b.maximo() || (y == 0 && operador == '/')) {
+                            continue;
+                        }
+                        long valor = aplicar(x, y, operador);
+                        minimo = Math.min(minimo, valor);
+                        maximo = Math.max(maximo, valor);
+                    }
+                }
+                yield new long[]{minimo, maximo};
+            }
+            default -> new long[]{b.minimo(), b.maximo()};
+        };
+    }
+
+    private static long aplicar(long a, long b, char operador) {
+        return switch (operador) {
+            case '+' -> a + b;
+            case '-' -> a - b;
+            case '*' -> a * b;
+            case '/' -> a / b;
+            default -> b;
+        };
+    }
+
+    private static void verificarFaixa(long minimo, long maximo) {
+        if (minimo < Integer.MIN_VALUE || maximo > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("O resultado da expressão pode ultrapassar o limite de "
+                    + Integer.MAX_VALUE + " e não pode ser calculado.");
+        }
+    }
+
+    private static int digitos(long valor) {
+        int digitos = valor < 0 ? 2 : 1;
+        for (long resto = Math.abs(valor) / 10; resto > 0; resto /= 10) {
+            digitos++;
+        }
+        return digitos;
+    }
+}
@@ -0,0 +1,223 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.ExpressaoDados;
+import br.com.navelogic.telegrambotassistenterpg.Model.Modificador;
+
+/**
+ * Analisador léxico e sintático das expressões de dados.
+ *
+ * <p>Percorre a expressão caractere a caractere, sem expressões regulares nem
+ * {@code split}, e monta uma {@link ExpressaoDados} imutável. A gramática é:</p>
+ * <pre>
+ * expressao   := [+|-] termo (operador termo)*
+ * operador    := + | - | * | /
+ * termo       := numero | [numero] d numero [r numero] [! [numero]] [modificador numero] [sucesso]
+ * modificador := m | mm | sM | sm
+ * sucesso     := >= numero | > numero
+ * </pre>
+ *
+ * <p>{@code r2} rerrola uma vez os dados até 2, {@code !} explode no maior resultado
+ * ({@code !8} a partir do 8) e {@code >=8} conta os sucessos em vez de somar.</p>
+ *
+ * <p>Espaços entre os termos são ignorados. Qualquer erro de sintaxe gera
+ * {@link IllegalArgumentException} com uma mensagem para o usuário.</p>
+ */
+final class AnalisadorExpressao {
+
+    private final String texto;
+    private int posicao;
+
+    private AnalisadorExpressao(String texto) {
+        this.texto = texto;
+    }
+
+    /**
+     * Analisa a expressão e devolve a árvore correspondente.
+     *
+     * @param expressao expressão sem o comando, por exemplo {@code 4d6sm1+2}
+     * @return a árvore da expressão
+     * @throws IllegalArgumentException se a expressão for inválida
+     */
+    static ExpressaoDados analisar(String expressao) {
+        return new AnalisadorExpressao(expressao).expressao();
+    }
+
+    /**
+     * Normaliza a expressão para uso como chave de cache: remove espaços e
+     * troca {@code D} por {@code d}. Os modificadores diferenciam maiúsculas
+     * ({@code sM} e {@code sm}), por isso o restante é mantido.
+     *
+     * @param expressao expressão digitada pelo usuário
+     * @return a expressão normalizada
+     */
+    static String normalizar(String expressao) {
+        StringBuilder normalizada = new StringBuilder(expressao.length());
+        for (int i = 0; i < expressao.length(); i++) {
+            char c = expressao.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            normalizada.append(c == 'D' ? 'd' : c);
+        }
+        return normalizada.toString();
+    }
+
+    private ExpressaoDados expressao() {
+        pularEspacos();
+        ExpressaoDados resultado;
+        char inicial = atual();
+        if (inicial == '+' || inicial == '-') {
+            posicao++;
+            resultado = new ExpressaoDados.Operacao(inicial, new ExpressaoDados.Constante(0), termo());
+        } else {
+            resultado = termo();
+        }
+
+        pularEspacos();
+        while (posicao < texto.length()) {
+            char operador = atual();
+            if (!ehOperador(operador)) {
+                throw erroSintaxe();
+            }
+            posicao++;
+            resultado = new ExpressaoDados.Operacao(operador, resultado, termo());
+            pularEspacos();
+        }
+        return resultado;
+    }
+
+    private ExpressaoDados termo() {
+        pularEspacos();
+        int quantidade = numeroOpcional(-1);
+        char c = atual();
+        if (c != 'd' && c != 'D') {
+            if (quantidade < 0) {
+                throw erroSintaxe();
+            }
+            return new ExpressaoDados.Constante(quantidade);
+        }
+        posicao++;
+
+        int lados = numeroOpcional(-1);
+        if (lados < 0) {
+            throw erroSintaxe();
+        }
+        if (lados == 0) {
+            throw new IllegalArgumentException("O número de lados deve ser maior que zero.");
+        }
+        if (quantidade < 0) {
+            quantidade = 1;
+        }
+
+        int rerrolarAte = 0;
+        if (atual() == 'r') {
+            posicao++;
+            rerrolarAte = numeroOpcional(-1);
+            if (rerrolarAte < 0) {
+                throw erroSintaxe();
+            }
+            if (rerrolarAte == 0 || rerrolarAte >= lados) {
+                throw new IllegalArgumentException("Só é possível rerrolar resultados menores que o número de lados, por exemplo 2d6r1.");
+            }
+        }
+        int explodirDe = 0;
+        if (atual() == '!') {
+            posicao++;
+            explodirDe = numeroOpcional(lados);
+            if (explodirDe < 2 || explodirDe > lados) {
+                throw new IllegalArgumentException("A explosão deve começar entre 2 e " + lados + ", por exemplo 10d10!8.");
+            }
+        }
+
+        Modificador modificador = modificador();
+        int quantidadeModificador = 0;
+        if (modificador != null) {
+            quantidadeModificador = numeroOpcional(-1);
+            if (quantidadeModificador < 0) {
+                throw erroSintaxe();
+            }
+        }
+        int sucessoDe = sucesso(lados);
+        return new ExpressaoDados.Dados(quantidade, lados, modificador, quantidadeModificador,
+                rerrolarAte, explodirDe, sucessoDe);
+    }
+
+    /**
+     * Lê {@code >=N} ou {@code >N}.
+     *
+     * @return o menor resultado que conta como sucesso, ou zero se não houver contagem de sucessos
+     */
+    private int sucesso(int lados) {
+        if (atual() != '>') {
+            return 0;
+        }
+        posicao++;
+        boolean igual = atual() == '=';
+        if (igual) {
+            posicao++;
+        }
+        int alvo = numeroOpcional(-1);
+        if (alvo < 0) {
+            throw erroSintaxe();
+        }
+        long minimo = igual ? alvo : alvo + 1L;
+        if (minimo < 1 || minimo > lados) {
+            throw new IllegalArgumentException("O sucesso deve ser um resultado entre 1 e " + lados + ", por exemplo 10d10>=8.");
+        }
+        return (int) minimo;
+    }
+
+    private Modificador modificador() {
+        char primeiro = atual();
+        if (primeiro == 'm') {
+            posicao++;
+            if (atual() == 'm') {
+                posicao++;
+                return Modificador.MANTER_MENOR;
+            }
+            return Modificador.MANTER_MAIOR;
+        }
+        if (primeiro == 's') {
+            posicao++;
+            char segundo = atual();
+            posicao++;
+            return switch (segundo) {
+                case 'M' -> Modificador.SOLTAR_MAIOR;
+                case 'm' -> Modificador.SOLTAR_MENOR;
+                default -> throw new IllegalArgumentException("Modificador inválido: s" + (segundo == 0 ? "" : segundo));
+            };
+        }
+        return null;
+    }
+
+    private int numeroOpcional(int padrao) {
+        int inicio = posicao;
+        long valor = 0;
+        while (posicao < texto.length() && texto.charAt(posicao) >= '0' && texto.charAt(posicao) <= '9') {
+            valor = valor * 10 + (texto.charAt(posicao) - '0');
+            if (valor > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Número muito grande: " + texto.substring(inicio, posicao + 1) + "...");
+            }
+            posicao++;
+        }
+        return posicao == inicio ? padrao : (int) valor;
+    }
+
+    private void pularEspacos() {
+        while (posicao < texto.length() && Character.isWhitespace(texto.charAt(posicao))) {
+            posicao++;
+        }
+    }
+
+    private char atual() {
+        return posicao < texto.length() ? texto.charAt(posicao) : 0;
+    }
+
+    private static boolean ehOperador(char c) {
+        return c == '+' || c == '-' || c == '*' || c == '/';
+    }
+
+    private IllegalArgumentException erroSintaxe() {
+        return new IllegalArgumentException(RolarDadosService.mensagemErro());
+    }
+}
@@ -0,0 +1,412 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.ParteResultado;
+import br.com.navelogic.telegrambotassistenterpg.Model.RegistroAuditoria;
+import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoDados;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Auditoria das rolagens: um registro binário compacto de cada rolagem, acrescentado a
+ * arquivos de segmento mapeados em memória, para resolver disputas ("o bot roubou!").
+ *
+ * <p>Cada segmento ({@code auditoria-00000001.bin}, ...) tem {@code auditoria.segmento-mb} MB
+ * e começa com um cabeçalho de 24 bytes: o número mágico {@code ARTA}, a versão, o número do
+ * segmento e o encadeamento em que ele começa. Depois vêm os registros, em big-endian:</p>
+ * <pre>
+ * int    tamanho do registro, escrito por último (0 marca o fim do segmento)
+ * long   instante, em milissegundos desde 1970
+ * long   chat
+ * long   usuário (0 se desconhecido)
+ * long   semente da rolagem
+ * int    total
+ * short  bytes da expressão, com o bit {@code 0x4000} se a rolagem não é reproduzível e o bit
+ *        {@code 0x8000} se a expressão foi cortada, seguidos da expressão em UTF-8
+ * byte   quantidade de dados guardados, com o bit 0x80 se a rolagem tinha mais
+ * varint os primeiros {@value #MAX_DADOS} dados mantidos
+ * long   encadeamento
+ * </pre>
+ *
+ * <p>O encadeamento mistura o do registro anterior com todos os bytes do registro, e cada
+ * segmento começa com o encadeamento final do anterior: alterar, apagar ou reordenar um
+ * registro quebra a conferência dali em diante. O hash não tem chave, então isso evidencia
+ * edições no arquivo, mas não impede quem conhece o formato de recalcular tudo; o encadeamento
+ * final de cada segmento vai para o log na rotação, fora do arquivo.</p>
+ *
+ * <p>A expressão é guardada inteira, e não só um hash, para que o {@link LeitorAuditoria}
+ * repita a rolagem a partir da semente sem depender do banco. Com {@code dados.aleatorio.tipo=seguro}
+ * os dados não saem da semente: o registro é marcado como não reproduzível e só guarda o total e
+ * os dados mantidos. Um registro típico tem menos de
+ * 80 bytes e é escrito direto no mapeamento, sob um único bloqueio, sem chamada de sistema; o
+ * sistema operacional grava as páginas no disco. Um registro interrompido no meio nunca
+ * aparece para o leitor, porque o tamanho só é escrito no fim. Cada início da aplicação abre
+ * um segmento novo, continuando o encadeamento do último.</p>
+ */
+@Slf4j
+@Service
+public class AuditoriaRolagens implements AutoCloseable {
+
+    static final int MAGICO = 0x41525441;
+    static final short VERSAO = 1;
+    static final int TAMANHO_CABECALHO = 24;
+    static final int MAX_DADOS = 32;
+    static final int MAX_EXPRESSAO = 4096;
+    static final int NAO_REPRODUZIVEL = 0x4000;
+    static final int EXPRESSAO_CORTADA = 0x8000;
+    private static final int MASCARA_EXPRESSAO = 0x1FFF;
+    private static final int TAMANHO_FIXO = 4 + 8 + 8 + 8 + 8 + 4 + 2 + 1 + 8;
+    private static final int TAMANHO_MINIMO_SEGMENTO = 64 * 1024;
+    private static final String PREFIXO = "auditoria-";
+    private static final String SUFIXO = ".bin";
+
+    /**
+     * Um segmento lido do disco.
+     *
+     * @param numero              número do segmento
+     * @param encadeamentoInicial encadeamento do cabeçalho (o final do segmento anterior)
+     * @param encadeamentoFinal   encadeamento do último registro
+     * @param registros           as rolagens, na ordem em que foram gravadas
+     * @param primeiroAdulterado  índice do primeiro registro que não confere, ou -1
+     */
+    public record Segmento(long numero, long encadeamentoInicial, long encadeamentoFinal,
+            List<RegistroAuditoria> registros, int primeiroAdulterado) {
+    }
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private MappedByteBuffer segmento;
+    private long numeroSegmento;
+    private long encadeamento;
+    private int registrosSegmento;
+    private boolean fechada;
+
+    private final AtomicLong gravadas = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+
+    @Autowired
+    public AuditoriaRolagens(MetricasBot metricas,
+            @Value("${auditoria.ativa:true}") boolean ativa,
+            @Value("${auditoria.diretorio:auditoria}") String diretorio,
+            @Value("${auditoria.segmento-mb:64}") int segmentoMb) throws IOException {
+        this(ativa ? Path.of(diretorio) : null, segmentoMb << 20);
+        MeterRegistry registro = metricas.getRegistro();
+        FunctionCounter.builder("auditoria.rolagens", gravadas, AtomicLong::get)
+                .description("Rolagens registradas na auditoria").tag("resultado", "gravada").register(registro);
+        FunctionCounter.builder("auditoria.rolagens", descartadas, AtomicLong::get)
+                .description("Rolagens registradas na auditoria").tag("resultado", "descartada").register(registro);
+    }
+
+    /**
+     * @param diretorio       onde ficam os segmentos; {@code null} desativa a auditoria
+     * @param tamanhoSegmento tamanho de cada segmento, em bytes
+     */
+    public AuditoriaRolagens(Path diretorio, int tamanhoSegmento) throws IOException {
+        if (tamanhoSegmento < TAMANHO_MINIMO_SEGMENTO) {
+            throw new IllegalArgumentException("O segmento de auditoria deve ter pelo menos "
+                    + TAMANHO_MINIMO_SEGMENTO + " bytes.");
+        }
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = tamanhoSegmento;
+        if (diretorio == null) {
+            log.info("Auditoria de rolagens desativada");
+            return;
+        }
+        Files.createDirectories(diretorio);
+        List<Path> existentes = segmentos(diretorio);
+        if (existentes.isEmpty()) {
+            abrirSegmento(1, 0);
+        } else {
+            Segmento ultimo = ler(existentes.get(existentes.size() - 1));
+            abrirSegmento(ultimo.numero() + 1, ultimo.encadeamentoFinal());
+        }
+    }
+
+    /**
+     * Acrescenta a rolagem à auditoria. Se a rotação do segmento falhar, o registro é
+     * descartado e contado, sem interromper a rolagem.
+     *
+     * @param expressao expressão rolada, sem o comando
+     */
+    public void registrar(long chatId, Long usuarioId, String expressao, ResultadoDados resultado) {
+        if (diretorio == null) {
+            return;
+        }
+        byte[] texto = expressao.getBytes(StandardCharsets.UTF_8);
+        int tamanhoTexto = texto.length;
+        boolean cortada = tamanhoTexto > MAX_EXPRESSAO;
+        if (cortada) {
+            // Recua até o início de um caractere, para não guardar metade de um caractere UTF-8.
+            tamanhoTexto = MAX_EXPRESSAO;
+            while (tamanhoTexto > 0 && (texto[tamanhoTexto] & 0xC0) == 0x80) {
+                tamanhoTexto--;
+            }
+        }
+        long instante = System.currentTimeMillis();
+        synchronized (this) {
+            if (fechada) {
+                descartadas.incrementAndGet();
+                return;
+            }
+            if (segmento.remaining() < TAMANHO_FIXO + tamanhoTexto + MAX_DADOS * 5) {
+                try {
+                    rotacionar();
+                } catch (IOException e) {
+                    descartadas.incrementAndGet();
+                    log.error("Erro ao abrir o segmento de auditoria {}", numeroSegmento + 1, e);
+                    return;
+                }
+            }
+            MappedByteBuffer buffer = segmento;
+            int inicio = buffer.position();
+            buffer.position(inicio + 4);
+            buffer.putLong(instante)
+                    .putLong(chatId)
+                    .putLong(usuarioId == null ? 0 : usuarioId)
+                    .putLong(resultado.getSemente())
+                    .putInt(resultado.getTotal())
+                    .putShort((short) (tamanhoTexto | (resultado.isReproduzivel() ? 0 : NAO_REPRODUZIVEL)
+                            | (cortada ? EXPRESSAO_CORTADA : 0)))
+                    .put(texto, 0, tamanhoTexto);
+            escreverDados(buffer, resultado.getPartes());
+            int fim = buffer.position() + 8;
+            encadeamento = encadear(encadeamento, buffer, inicio + 4, fim - 8, fim - inicio);
+            buffer.putLong(encadeamento);
+            buffer.putInt(inicio, fim - inicio);
+            registrosSegmento++;
+        }
+        gravadas.incrementAndGet();
+    }
+
+    public long getGravadas() {
+        return gravadas.get();
+    }
+
+    public long getDescartadas() {
+        return descartadas.get();
+    }
+
+    /**
+     * Grava as páginas do segmento atual no disco e recusa novos registros.
+     */
+    @Override
+    public synchronized void close() {
+        if (fechada || segmento == null) {
+            fechada = true;
+            return;
+        }
+        fechada = true;
+        segmento.force();
+        log.info("Auditoria encerrada no segmento {} com {} rolagens, encadeamento final {}",
+                numeroSegmento, registrosSegmento, String.format("%016x", encadeamento));
+    }
+
+    /**
+     * Lê um segmento inteiro e confere o encadeamento de cada registro.
+     *
+     * @throws IOException se o arquivo não puder ser lido ou não for um segmento de auditoria
+     */
+    public static Segmento ler(Path arquivo) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        if (buffer.limit() < TAMANHO_CABECALHO || buffer.getInt(0) != MAGICO || buffer.getShort(4) != VERSAO) {
+            throw new IOException("Não é um segmento de auditoria: " + arquivo);
+        }
+        long numero = buffer.getLong(8);
+        long inicial = buffer.getLong(16);
+        long anterior = inicial;
+        List<RegistroAuditoria> registros = new ArrayList<>();
+        int adulterado = -1;
+        int posicao = TAMANHO_CABECALHO;
+        while (posicao + 4 <= buffer.limit()) {
+            int tamanho = buffer.getInt(posicao);
+            if (tamanho == 0) {
+                break;
+            }
+            if (tamanho < TAMANHO_FIXO || tamanho > buffer.limit() - posicao) {
+                adulterado = adulterado < 0 ? registros.size() : adulterado;
+                break;
+            }
+            int fim = posicao + tamanho;
+            long gravado = buffer.getLong(fim - 8);
+            if (gravado != encadear(anterior, buffer, posicao + 4, fim - 8, tamanho) && adulterado < 0) {
+                adulterado = registros.size();
+            }
+            try {
+                registros.add(decodificar(buffer.duplicate().position(posicao + 4).limit(fim - 8)));
+            } catch (RuntimeException e) {
+                adulterado = adulterado < 0 ? registros.size() : adulterado;
+                break;
+            }
+            anterior = gravado;
+            posicao = fim;
+        }
+        return new Segmento(numero, inicial, anterior, registros, adulterado);
+    }
+
+    /**
+     * @return os segmentos do diretório, em ordem
+     */
+    public static List<Path> segmentos(Path diretorio) throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.filter(arquivo -> {
+                        String nome = arquivo.getFileName().toString();
+                        return nome.startsWith(PREFIXO) && nome.endsWith(SUFIXO);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Confere uma rolagem repetida com o que foi registrado: o total e os dados guardados.
+     */
+    public static boolean confere(RegistroAuditoria registro, ResultadoDados reproduzido) {
+        if (registro.total() != reproduzido.getTotal()) {
+            return false;
+        }
+        int[] dados = new int[MAX_DADOS + 1];
+        int quantidade = 0;
+        for (ParteResultado parte : reproduzido.getPartes()) {
+            if (parte instanceof ParteResultado.Termo termo && termo.dados() != null) {
+                for (int i = 0; i < termo.dados().length && quantidade < dados.length; i++) {
+                    dados[quantidade++] = termo.dados()[i];
+                }
+            }
+        }
+        int guardados = registro.dados().length;
+        return quantidade >= guardados && Arrays.equals(registro.dados(), 0, guardados, dados, 0, guardados);
+    }
+
+    private void rotacionar() throws IOException {
+        // O segmento cheio vai para o disco em outra thread, sem segurar quem está rolando.
+        MappedByteBuffer cheio = segmento;
+        Thread.ofVirtual().name("auditoria-sincronizacao").start(cheio::force);
+        log.info("Segmento de auditoria {} fechado com {} rolagens, encadeamento final {}",
+                numeroSegmento, registrosSegmento, String.format("%016x", encadeamento));
+        abrirSegmento(numeroSegmento + 1, encadeamento);
+    }
+
+    private void abrirSegmento(long numero, long encadeamentoInicial) throws IOException {
+        Path arquivo = diretorio.resolve(String.format("%s%08d%s", PREFIXO, numero, SUFIXO));
+        try (FileChannel canal = FileChannel.open(arquivo,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoSegmento);
+        }
+        segmento.putInt(MAGICO).putShort(VERSAO).putShort((short) 0).putLong(numero).putLong(encadeamentoInicial);
+        numeroSegmento = numero;
+        encadeamento = encadeamentoInicial;
+        registrosSegmento = 0;
+    }
+
+    /**
+     * Escreve os primeiros dados mantidos da rolagem, na ordem dos termos. Termos rolados em
+     * histograma não têm a ordem dos dados e só marcam a rolagem como incompleta.
+     */
+    private static void escreverDados(ByteBuffer buffer, List<ParteResultado> partes) {
+        int posicaoQuantidade = buffer.position();
+        buffer.put((byte) 0);
+        int quantidade = 0;
+        boolean completos = true;
+        for (ParteResultado parte : partes) {
+            if (!(parte instanceof ParteResultado.Termo termo)) {
+                continue;
+            }
+            if (termo.dados() == null) {
+                completos = false;
+                continue;
+            }
+            for (int dado : termo.dados()) {
+                if (quantidade == MAX_DADOS) {
+                    completos = false;
+                    break;
+                }
+                escreverVarint(buffer, dado);
+                quantidade++;
+            }
+        }
+        buffer.put(posicaoQuantidade, (byte) (quantidade | (completos ? 0 : 0x80)));
+    }
+
+    private static RegistroAuditoria decodificar(ByteBuffer buffer) {
+        long instante = buffer.getLong();
+        long chatId = buffer.getLong();
+        long usuarioId = buffer.getLong();
+        long semente = buffer.getLong();
+        int total = buffer.getInt();
+        int cabecalhoTexto = Short.toUnsignedInt(buffer.getShort());
+        byte[] texto = new byte[cabecalhoTexto & MASCARA_EXPRESSAO];
+        buffer.get(texto);
+        int cabecalhoDados = Byte.toUnsignedInt(buffer.get());
+        int[] dados = new int[cabecalhoDados & 0x7F];
+        for (int i = 0; i < dados.length; i++) {
+            dados[i] = lerVarint(buffer);
+        }
+        return new RegistroAuditoria(Instant.ofEpochMilli(instante), chatId, usuarioId == 0 ? null : usuarioId,
+                semente, new String(texto, StandardCharsets.UTF_8), total, dados, (cabecalhoDados & 0x80) == 0,
+                (cabecalhoTexto & NAO_REPRODUZIVEL) == 0, (cabecalhoTexto & EXPRESSAO_CORTADA) != 0);
+    }
+
+    private static void escreverVarint(ByteBuffer buffer, int valor) {
+        while ((valor & ~0x7F) != 0) {
+            buffer.put((byte) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        buffer.put((byte) valor);
+    }
+
+    private static int lerVarint(ByteBuffer buffer) {
+        int valor = 0;
+        for (int deslocamento = 0; deslocamento < 35; deslocamento += 7) {
+            byte b = buffer.get();
+            valor |= (b & 0x7F) << deslocamento;
+            if (b >= 0) {
+                return valor;
+            }
+        }
+        throw new IllegalStateException("Varint inválido na auditoria.");
+    }
+
+    /**
+     * Mistura o encadeamento anterior com os bytes {@code [inicio, fim)} do registro e o
+     * tamanho dele, de 8 em 8 bytes.
+     */
+    static long encadear(long anterior, ByteBuffer buffer, int inicio, int fim, int tamanho) {
+        long h = anterior ^ (tamanho * 0x9E3779B97F4A7C15L);
+        int i = inicio;
+        for (; i + 8 <= fim; i += 8) {
+            h = misturar(h ^ buffer.getLong(i));
+        }
+        long resto = 0;
+        for (; i < fim; i++) {
+            resto = (resto << 8) | (buffer.get(i) & 0xFF);
+        }
+        return misturar(h ^ resto);
+    }
+
+    private static long misturar(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,136 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+/**
+ * Distribuição de probabilidade exata de um resultado inteiro.
+ *
+ * <p>Guarda o menor valor possível e a probabilidade de cada valor a partir dele.
+ * É imutável depois de criada, então pode ser compartilhada pelo cache do
+ * {@link ProbabilidadeService} entre threads.</p>
+ */
+final class Distribuicao {
+
+    private final int minimo;
+    private final double[] probabilidades;
+
+    private Distribuicao(int minimo, double[] probabilidades) {
+        this.minimo = minimo;
+        this.probabilidades = probabilidades;
+    }
+
+    static Distribuicao constante(int valor) {
+        return new Distribuicao(valor, new double[]{1.0});
+    }
+
+    /**
+     * Cria a distribuição descartando os valores sem probabilidade nas pontas.
+     * O vetor passa a pertencer à distribuição e não deve mais ser alterado.
+     */
+    static Distribuicao de(int minimo, double[] probabilidades) {
+        int inicio = 0;
+        int fim = probabilidades.length;
+        while (inicio < fim && probabilidades[inicio] <= 0) {
+            inicio++;
+        }
+        while (fim > inicio && probabilidades[fim - 1] <= 0) {
+            fim--;
+        }
+        if (inicio == fim) {
+            throw new IllegalStateException("Distribuição sem valores possíveis.");
+        }
+        if (inicio == 0 && fim == probabilidades.length) {
+            return new Distribuicao(minimo, probabilidades);
+        }
+        double[] aparadas = new double[fim - inicio];
+        System.arraycopy(probabilidades, inicio, aparadas, 0, aparadas.length);
+        return new Distribuicao(minimo + inicio, aparadas);
+    }
+
+    int minimo() {
+        return minimo;
+    }
+
+    int maximo() {
+        return minimo + probabilidades.length - 1;
+    }
+
+    int tamanho() {
+        return probabilidades.length;
+    }
+
+    double probabilidade(int valor) {
+        int indice = valor - minimo;
+        return indice < 0 || indice >= probabilidades.length ? 0 : probabilidades[indice];
+    }
+
+    /**
+     * @return a distribuição de {@code soma - X}
+     */
+    Distribuicao refletir(int soma) {
+        double[] refletidas = new double[probabilidades.length];
+        for (int i = 0; i < probabilidades.length; i++) {
+            refletidas[probabilidades.length - 1 - i] = probabilidades[i];
+        }
+        return new Distribuicao(soma - maximo(), refletidas);
+    }
+
+    double media() {
+        double total = 0;
+        double media = 0;
+        for (int i = 0; i < probabilidades.length; i++) {
+            total += probabilidades[i];
+            media += probabilidades[i] * i;
+        }
+        return minimo + media / total;
+    }
+
+    double desvioPadrao() {
+        double deslocamento = media() - minimo;
+        double total = 0;
+        double variancia = 0;
+        for (int i = 0; i < probabilidades.length; i++) {
+            double diferenca = i - deslocamento;
+            total += probabilidades[i];
+            variancia += probabilidades[i] * diferenca * diferenca;
+        }
+        return Math.sqrt(variancia / total);
+    }
+
+    /**
+     * @return o valor mais provável (o menor, em caso de empate)
+     */
+    int moda() {
+        int melhor = 0;
+        for (int i = 1; i < probabilidades.length; i++) {
+            if (probabilidades[i] > probabilidades[melhor]) {
+                melhor = i;
+            }
+        }
+        return minimo + melhor;
+    }
+
+    /**
+     * Calcula vários percentis em uma única passada pela distribuição acumulada.
+     *
+     * @param fracoes frações em ordem crescente, por exemplo {@code 0.05, 0.5, 0.95}
+     * @return o menor valor cuja probabilidade acumulada atinge cada fração
+     */
+    int[] percentis(double... fracoes) {
+        double total = 0;
+        for (double probabilidade : probabilidades) {
+            total += probabilidade;
+        }
+        int[] valores = new int[fracoes.length];
+        int proxima = 0;
+        double acumulada = 0;
+        for (int i = 0; i < probabilidades.length && proxima < fracoes.length; i++) {
+            acumulada += probabilidades[i];
+            while (proxima < fracoes.length && acumulada >= fracoes[proxima] * total * (1 - 1e-12)) {
+                valores[proxima++] = minimo + i;
+            }
+        }
+        while (proxima < fracoes.length) {
+            valores[proxima++] = maximo();
+        }
+        return valores;
+    }
+}
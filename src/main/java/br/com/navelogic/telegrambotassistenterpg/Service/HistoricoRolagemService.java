@@ -0,0 +1,199 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.HistoricoRolagem;
+import br.com.navelogic.telegrambotassistenterpg.Repository.HistoricoRolagemRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Grava o histórico de rolagens sem bloquear quem rola os dados (write-behind).
+ *
+ * <p>{@link #registrar} só coloca o registro em um buffer limitado em memória
+ * ({@code historico.buffer}). Uma thread virtual esvazia o buffer e grava em lotes JDBC
+ * quando junta {@code historico.lote} registros ou quando o primeiro registro pendente
+ * completa {@code historico.intervalo-ms}, o que vier antes.</p>
+ *
+ * <p>Com o buffer cheio o registro é descartado e contado, sem segurar a thread de
+ * processamento. Um lote que falha ao gravar também é descartado, com log de erro.
+ * Os contadores são publicados em {@code historico.rolagens} (tag {@code resultado}).</p>
+ *
+ * <p>O repositório é injetado com {@link Lazy} (e {@code spring.data.jpa.repositories.bootstrap-mode=lazy}
+ * faz o mesmo sem AOT), então só é criado no primeiro uso, e o Spring não cria beans enquanto destrói os outros. Por isso o repositório é
+ * usado uma vez no início do encerramento ({@link #prepararEncerramento()}), para que o último
+ * lote ainda possa ser gravado no {@link #close()}.</p>
+ */
+@Slf4j
+@Service
+public class HistoricoRolagemService implements AutoCloseable {
+
+    private static final long ESPERA_ENCERRAMENTO_MS = 10_000;
+
+    private final HistoricoRolagemRepository repositorio;
+    private final BlockingQueue<HistoricoRolagem> buffer;
+    private final int tamanhoLote;
+    private final long intervaloNanos;
+    private final Thread gravador;
+    private volatile boolean encerrado;
+
+    private final AtomicLong gravadas = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+
+    @Autowired
+    public HistoricoRolagemService(@Lazy HistoricoRolagemRepository repositorio, MetricasBot metricas,
+            @Value("${historico.buffer:10000}") int capacidadeBuffer,
+            @Value("${historico.lote:100}") int tamanhoLote,
+            @Value("${historico.intervalo-ms:1000}") long intervaloMs) {
+        this(repositorio, capacidadeBuffer, tamanhoLote, intervaloMs);
+        MeterRegistry registro = metricas.getRegistro();
+        registrarContador(registro, "gravada", gravadas);
+        registrarContador(registro, "descartada", descartadas);
+        registrarContador(registro, "falha", falhas);
+        Gauge.builder("historico.buffer", buffer, BlockingQueue::size)
+                .description("Rolagens aguardando gravação no histórico")
+                .register(registro);
+    }
+
+    public HistoricoRolagemService(HistoricoRolagemRepository repositorio, int capacidadeBuffer, int tamanhoLote,
+            long intervaloMs) {
+        if (capacidadeBuffer <= 0 || tamanhoLote <= 0) {
+            throw new IllegalArgumentException("A capacidade do buffer e o tamanho do lote devem ser maiores que zero.");
+        }
+        this.repositorio = repositorio;
+        this.buffer = new ArrayBlockingQueue<>(capacidadeBuffer);
+        this.tamanhoLote = tamanhoLote;
+        this.intervaloNanos = TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+        this.gravador = Thread.ofVirtual().name("gravador-historico").start(this::gravar);
+    }
+
+    /**
+     * Coloca uma rolagem no buffer do histórico. Nunca bloqueia.
+     *
+     * @param chatId    Chat onde a rolagem foi feita
+     * @param usuarioId Usuário que rolou, se conhecido
+     * @param expressao Expressão rolada
+     * @param total     Total obtido
+     * @param dados     Dados mantidos, como exibidos ao usuário
+     * @return {@code false} se o registro foi descartado
+     */
+    public boolean registrar(long chatId, Long usuarioId, String expressao, int total, String dados) {
+        if (encerrado || !buffer.offer(new HistoricoRolagem(chatId, usuarioId, expressao, total, dados, Instant.now()))) {
+            if (descartadas.getAndIncrement() % 1000 == 0) {
+                log.warn("Buffer do histórico cheio, rolagem descartada ({} descartadas até agora)", descartadas.get());
+            }
+            return false;
+        }
+        return true;
+    }
+
+    public int getTamanhoBuffer() {
+        return buffer.size();
+    }
+
+    public long getGravadas() {
+        return gravadas.get();
+    }
+
+    public long getDescartadas() {
+        return descartadas.get();
+    }
+
+    public long getFalhas() {
+        return falhas.get();
+    }
+
+    /**
+     * Para de aceitar registros e grava o que ainda está no buffer.
+     */
+    @Override
+    public void close() {
+        if (encerrado) {
+            return;
+        }
+        encerrado = true;
+        log.info("Encerrando histórico de rolagens ({} pendentes)", buffer.size());
+        try {
+            if (!gravador.join(Duration.ofMillis(ESPERA_ENCERRAMENTO_MS))) {
+                gravador.interrupt();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            gravador.interrupt();
+        }
+    }
+
+    /**
+     * Garante que o repositório exista antes da destruição dos beans, com uma consulta pela chave
+     * primária. Se o banco estiver fora do ar, o último lote falhará de qualquer forma.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void prepararEncerramento() {
+        try {
+            repositorio.existsById(0L);
+        } catch (Exception e) {
+            log.warn("Banco indisponível no encerramento; o histórico pendente pode ser perdido: {}", e.getMessage());
+        }
+    }
+
+    private void gravar() {
+        List<HistoricoRolagem> lote = new ArrayList<>(tamanhoLote);
+        try {
+            while (!encerrado || !buffer.isEmpty()) {
+                HistoricoRolagem primeiro = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                lote.add(primeiro);
+                long prazo = System.nanoTime() + intervaloNanos;
+                while (lote.size() < tamanhoLote) {
+                    long espera = encerrado ? 0 : prazo - System.nanoTime();
+                    HistoricoRolagem proximo = espera > 0 ? buffer.poll(espera, TimeUnit.NANOSECONDS) : buffer.poll();
+                    if (proximo == null) {
+                        break;
+                    }
+                    lote.add(proximo);
+                    buffer.drainTo(lote, tamanhoLote - lote.size());
+                }
+                gravarLote(lote);
+                lote.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            descartadas.addAndGet(lote.size() + buffer.size());
+        }
+    }
+
+    private void gravarLote(List<HistoricoRolagem> lote) {
+        try {
+            repositorio.saveAll(lote);
+            gravadas.addAndGet(lote.size());
+        } catch (Exception e) {
+            falhas.addAndGet(lote.size());
+            log.error("Erro ao gravar {} rolagens no histórico", lote.size(), e);
+        }
+    }
+
+    private static void registrarContador(MeterRegistry registro, String resultado, AtomicLong contador) {
+        FunctionCounter.builder("historico.rolagens", contador, AtomicLong::get)
+                .description("Rolagens do histórico por resultado")
+                .tag("resultado", resultado)
+                .register(registro);
+    }
+}
@@ -0,0 +1,105 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.RegistroAuditoria;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaPorThread;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ferramenta de linha de comando que lê os segmentos da {@link AuditoriaRolagens}, confere o
+ * encadeamento e, com {@code --reproduzir}, repete cada rolagem a partir da semente registrada,
+ * comparando o total e os dados com o que foi gravado.
+ *
+ * <pre>
+ * ./mvnw compile exec:java -Dexec.mainClass=br.com.navelogic.telegrambotassistenterpg.Service.LeitorAuditoria \
+ *     -Dexec.args="auditoria --reproduzir"
+ * </pre>
+ * <p>O primeiro argumento é um segmento ou o diretório da auditoria. A saída é uma linha por
+ * rolagem; o código de saída é 1 se algum registro não conferir. As rolagens feitas com
+ * {@code dados.aleatorio.tipo=seguro} não têm semente que as repita: aparecem como não
+ * reproduzíveis, sem contar como falha, e valem pelo encadeamento e pelos dados guardados. O
+ * mesmo vale para as expressões longas demais, que a auditoria guarda cortadas.</p>
+ */
+public final class LeitorAuditoria {
+
+    private LeitorAuditoria() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Uso: LeitorAuditoria <segmento ou diretório> [--reproduzir]");
+            System.exit(2);
+        }
+        Path caminho = Path.of(args[0]);
+        List<Path> arquivos = Files.isDirectory(caminho) ? AuditoriaRolagens.segmentos(caminho) : List.of(caminho);
+        boolean reproduzir = Arrays.asList(args).contains("--reproduzir");
+        System.exit(verificar(arquivos, reproduzir, System.out) ? 0 : 1);
+    }
+
+    /**
+     * Lê os segmentos em ordem e escreve cada rolagem na saída.
+     *
+     * @param reproduzir se cada rolagem deve ser repetida pela semente
+     * @return {@code true} se todos os encadeamentos e reproduções conferirem
+     */
+    static boolean verificar(List<Path> arquivos, boolean reproduzir, PrintStream saida) throws IOException {
+        RolarDadosService rolarDadosService = reproduzir ? new RolarDadosService(new FonteAleatoriaPorThread(),
+                new MetricasBot(new SimpleMeterRegistry()), 1024, Long.MAX_VALUE, Long.MAX_VALUE) : null;
+        boolean confere = true;
+        Long encadeamentoAnterior = null;
+        for (Path arquivo : arquivos) {
+            AuditoriaRolagens.Segmento segmento = AuditoriaRolagens.ler(arquivo);
+            saida.printf("Segmento %d (%s): %d rolagens%n", segmento.numero(), arquivo.getFileName(),
+                    segmento.registros().size());
+            if (encadeamentoAnterior != null && segmento.encadeamentoInicial() != encadeamentoAnterior) {
+                saida.println("  ENCADEAMENTO: o segmento não continua o anterior");
+                confere = false;
+            }
+            List<RegistroAuditoria> registros = segmento.registros();
+            for (int i = 0; i < registros.size(); i++) {
+                RegistroAuditoria registro = registros.get(i);
+                String situacao = "";
+                if (i == segmento.primeiroAdulterado()) {
+                    situacao = " ADULTERADO";
+                    confere = false;
+                } else if (reproduzir) {
+                    situacao = reproduzir(rolarDadosService, registro);
+                    confere &= !registro.reproduzivel() || registro.expressaoCortada()
+                            || situacao.equals(" reproduzida");
+                }
+                saida.printf("  #%d %s chat=%d usuario=%s semente=%016x %s = %d %s%s%s%n", i, registro.instante(),
+                        registro.chatId(), registro.usuarioId(), registro.semente(), registro.expressao(),
+                        registro.total(), Arrays.toString(registro.dados()), registro.dadosCompletos() ? "" : "…",
+                        situacao);
+            }
+            if (segmento.primeiroAdulterado() >= registros.size()) {
+                saida.printf("  ADULTERADO: registro ilegível depois do #%d%n", registros.size() - 1);
+                confere = false;
+            }
+            encadeamentoAnterior = segmento.encadeamentoFinal();
+        }
+        return confere;
+    }
+
+    private static String reproduzir(RolarDadosService rolarDadosService, RegistroAuditoria registro) {
+        if (!registro.reproduzivel()) {
+            return " não reproduzível (dados do SecureRandom)";
+        }
+        if (registro.expressaoCortada()) {
+            return " não reproduzível (expressão cortada na auditoria)";
+        }
+        try {
+            return AuditoriaRolagens.confere(registro, rolarDadosService.reproduzir(registro.expressao(), registro.semente()))
+                    ? " reproduzida"
+                    : " DIVERGENTE";
+        } catch (IllegalArgumentException e) {
+            return " NÃO REPRODUZÍVEL (" + e.getMessage() + ")";
+        }
+    }
+}
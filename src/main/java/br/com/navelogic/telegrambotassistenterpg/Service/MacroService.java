@@ -0,0 +1,225 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.MacroRolagem;
+import br.com.navelogic.telegrambotassistenterpg.Repository.MacroRolagemRepository;
+import br.com.navelogic.telegrambotassistenterpg.Util.CacheLRU;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Macros de rolagem por chat ({@code /macro ataque = 1d20+7} e depois {@code /ataque}).
+ *
+ * <p>As macros ficam no banco, na tabela {@code macro_rolagem}. Na primeira busca de um chat
+ * todas as macros dele são carregadas com uma única consulta e guardadas em um {@link CacheLRU},
+ * já preparadas pelo {@link RolarDadosService}: uma macro em cache é rolada sem consultar o
+ * banco, analisar o texto nem estimar o custo. Como o cache tem o conjunto inteiro de nomes do
+ * chat, comandos desconhecidos, mesmo com nomes sempre novos, não consultam o banco de novo. As
+ * entradas saem pelo tamanho ({@code macros.cache.tamanho} chats) ou depois de
+ * {@code macros.cache.ociosidade-min} minutos sem uso.</p>
+ *
+ * <p>Se o banco falhar ao carregar um chat, as buscas de todos os chats respondem que não há
+ * macro por {@value #PAUSA_APOS_FALHA_S} segundos, em vez de prender a faixa de cada mensagem
+ * esperando a conexão.</p>
+ *
+ * <p>Salvar ou apagar uma macro troca a entrada do chat no cache logo depois da gravação. Como
+ * as mensagens de um chat são processadas em ordem, a consulta e a alteração das macros de um
+ * chat nunca correm ao mesmo tempo.</p>
+ *
+ * <p>O repositório é injetado com {@link Lazy} para que o início não espere o JPA, também com o
+ * Spring AOT, que não respeita os repositórios preguiçosos do Spring Data.</p>
+ */
+@Slf4j
+@Service
+public class MacroService {
+
+    static final long PAUSA_APOS_FALHA_S = 30;
+    private static final String MENSAGEM_FORMATO = "Use /macro nome = expressão, por exemplo /macro ataque = 1d20+7.";
+
+    /**
+     * Macro pronta para rolar.
+     *
+     * @param nome      nome da macro, sem a barra
+     * @param expressao expressão como foi salva
+     * @param plano     expressão compilada e já aprovada pela análise de custo
+     */
+    public record MacroCompilada(String nome, String expressao, RolarDadosService.Plano plano) {
+    }
+
+    private final MacroRolagemRepository repositorio;
+    private final RolarDadosService rolarDadosService;
+    private final CacheLRU<Long, Map<String, MacroCompilada>> cache;
+    private final LongSupplier relogio;
+    private final int maximoPorChat;
+    private volatile long pausaAte;
+    private volatile boolean pausado;
+
+    @Autowired
+    public MacroService(@Lazy MacroRolagemRepository repositorio, RolarDadosService rolarDadosService, MetricasBot metricas,
+            @Value("${macros.cache.tamanho:10000}") int tamanhoCache,
+            @Value("${macros.cache.ociosidade-min:60}") long ociosidadeMin,
+            @Value("${macros.maximo-por-chat:50}") int maximoPorChat) {
+        this(repositorio, rolarDadosService, tamanhoCache, Duration.ofMinutes(ociosidadeMin), System::nanoTime,
+                maximoPorChat);
+        MeterRegistry registro = metricas.getRegistro();
+        FunctionCounter.builder("macros.cache", cache, CacheLRU::getAcertos)
+                .description("Consultas ao cache de macros").tag("resultado", "acerto").register(registro);
+        FunctionCounter.builder("macros.cache", cache, CacheLRU::getFalhas)
+                .description("Consultas ao cache de macros").tag("resultado", "falha").register(registro);
+        Gauge.builder("macros.cache.tamanho", cache, CacheLRU::tamanho)
+                .description("Chats com as macros no cache").register(registro);
+    }
+
+    public MacroService(MacroRolagemRepository repositorio, RolarDadosService rolarDadosService, int tamanhoCache,
+            Duration ociosidade, LongSupplier relogio, int maximoPorChat) {
+        this.repositorio = repositorio;
+        this.rolarDadosService = rolarDadosService;
+        this.cache = new CacheLRU<>(tamanhoCache, ociosidade, relogio);
+        this.relogio = relogio;
+        this.maximoPorChat = maximoPorChat;
+    }
+
+    /**
+     * Procura a macro entre as do chat, carregando-as do banco se ainda não estiverem no cache.
+     *
+     * @param nome nome da macro em minúsculas, sem a barra
+     * @return a macro compilada, ou vazio se o chat não tiver macro com esse nome ou se o banco
+     *         falhou há menos de {@value #PAUSA_APOS_FALHA_S} segundos
+     */
+    public Optional<MacroCompilada> buscar(long chatId, String nome) {
+        if (pausado && relogio.getAsLong() - pausaAte < 0) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(macros(chatId).get(nome));
+        } catch (RuntimeException e) {
+            pausaAte = relogio.getAsLong() + TimeUnit.SECONDS.toNanos(PAUSA_APOS_FALHA_S);
+            pausado = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Cria a macro ou troca a expressão dela.
+     *
+     * @param nome      nome da macro, com ou sem a barra
+     * @param expressao expressão de dados, validada antes de gravar
+     * @return a macro salva, já compilada
+     * @throws IllegalArgumentException se o nome ou a expressão forem inválidos ou se o chat já
+     *                                  tiver o máximo de macros
+     */
+    public MacroCompilada salvar(long chatId, String nome, String expressao) {
+        String nomeMacro = normalizarNome(nome);
+        String texto = expressao.trim();
+        if (texto.isEmpty()) {
+            throw new IllegalArgumentException(MENSAGEM_FORMATO);
+        }
+        if (texto.length() > MacroRolagem.TAMANHO_EXPRESSAO) {
+            throw new IllegalArgumentException("A expressão de uma macro pode ter no máximo "
+                    + MacroRolagem.TAMANHO_EXPRESSAO + " caracteres.");
+        }
+        if (RolarDadosService.isLote(texto)) {
+            throw new IllegalArgumentException("Uma macro guarda uma única expressão, sem # ou ;.");
+        }
+        MacroCompilada compilada = compilar(nomeMacro, texto);
+
+        Instant agora = Instant.now();
+        MacroRolagem macro = repositorio.findByChatIdAndNome(chatId, nomeMacro).orElse(null);
+        if (macro != null) {
+            macro.alterar(texto, agora);
+        } else if (repositorio.countByChatId(chatId) >= maximoPorChat) {
+            throw new IllegalArgumentException("Este chat já tem o máximo de " + maximoPorChat + " macros.");
+        } else {
+            macro = new MacroRolagem(chatId, nomeMacro, texto, agora);
+        }
+        repositorio.save(macro);
+        Map<String, MacroCompilada> macros = new HashMap<>(macros(chatId));
+        macros.put(nomeMacro, compilada);
+        cache.colocar(chatId, Map.copyOf(macros));
+        log.debug("Macro /{} salva no chat {}", nomeMacro, chatId);
+        return compilada;
+    }
+
+    /**
+     * Apaga a macro do chat.
+     *
+     * @return {@code true} se a macro existia
+     */
+    public boolean apagar(long chatId, String nome) {
+        String nomeMacro = normalizarNome(nome);
+        Optional<MacroRolagem> macro = repositorio.findByChatIdAndNome(chatId, nomeMacro);
+        macro.ifPresent(repositorio::delete);
+        Map<String, MacroCompilada> macros = new HashMap<>(macros(chatId));
+        macros.remove(nomeMacro);
+        cache.colocar(chatId, Map.copyOf(macros));
+        return macro.isPresent();
+    }
+
+    /**
+     * @return as macros do chat, em ordem de nome
+     */
+    public List<MacroRolagem> listar(long chatId) {
+        return repositorio.findByChatIdOrderByNomeAsc(chatId);
+    }
+
+    /**
+     * Tira a barra inicial e passa para minúsculas, recusando nomes que o Telegram não
+     * reconheceria como comando.
+     *
+     * @throws IllegalArgumentException se o nome for inválido
+     */
+    public static String normalizarNome(String nome) {
+        String texto = nome.trim();
+        if (texto.startsWith("/")) {
+            texto = texto.substring(1);
+        }
+        texto = texto.toLowerCase();
+        if (texto.isEmpty() || texto.length() > MacroRolagem.TAMANHO_NOME) {
+            throw new IllegalArgumentException("O nome de uma macro deve ter de 1 a " + MacroRolagem.TAMANHO_NOME
+                    + " caracteres.");
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && !(c >= '0' && c <= '9') && c != '_') {
+                throw new IllegalArgumentException("O nome de uma macro só pode ter letras sem acento, números e _.");
+            }
+        }
+        return texto;
+    }
+
+    /**
+     * @return as macros do chat por nome, do cache ou carregadas com uma única consulta
+     */
+    private Map<String, MacroCompilada> macros(long chatId) {
+        return cache.obter(chatId, chat -> {
+            Map<String, MacroCompilada> macros = new HashMap<>();
+            for (MacroRolagem macro : repositorio.findByChatIdOrderByNomeAsc(chat)) {
+                try {
+                    macros.put(macro.getNome(), compilar(macro.getNome(), macro.getExpressao()));
+                } catch (IllegalArgumentException e) {
+                    // Uma macro gravada com limites antigos que já não passa na análise fica de fora.
+                    log.warn("Macro /{} do chat {} ignorada: {}", macro.getNome(), chat, e.getMessage());
+                }
+            }
+            return Map.copyOf(macros);
+        });
+    }
+
+    private MacroCompilada compilar(String nome, String expressao) {
+        return new MacroCompilada(nome, expressao, rolarDadosService.preparar(expressao));
+    }
+}
@@ -0,0 +1,127 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas do caminho quente do bot, publicadas pelo Micrometer em
+ * {@code /actuator/metrics} e {@code /actuator/prometheus}.
+ *
+ * <ul>
+ *   <li>{@code bot.etapa} (timer, tag {@code etapa}): duração de cada etapa de um comando;</li>
+ *   <li>{@code bot.comandos} (contador, tag {@code comando}): comandos recebidos;</li>
+ *   <li>{@code bot.erros} (contador, tag {@code tipo}): erros por tipo de exceção;</li>
+ *   <li>{@code bot.limitadas} (contador, tag {@code resultado}): mensagens barradas pelos limites de taxa;</li>
+ *   <li>{@code bot.atualizacoes.ignoradas} (contador, tag {@code tipo}): atualizações sem resposta, como callbacks;</li>
+ *   <li>{@code bot.dados.quantidade} (distribuição): dados rolados por termo.</li>
+ * </ul>
+ *
+ * <p>Os medidores são criados uma vez e guardados, então registrar uma medição
+ * não faz busca no registro.</p>
+ */
+@Component
+public class MetricasBot {
+
+    /**
+     * Etapas medidas no processamento de um comando.
+     */
+    public enum Etapa {
+        /** Busca da entidade {@code bot_command} na mensagem. */
+        ENTIDADES,
+        /** Obtenção da expressão compilada, do cache ou analisando-a. */
+        ANALISE,
+        /** Avaliação da expressão, incluindo a rolagem e os modificadores. */
+        ROLAGEM,
+        /** Seleção dos dados mantidos pelos modificadores (parte da rolagem). */
+        MODIFICADORES,
+        /** Cálculo da distribuição exata do /prob. */
+        PROBABILIDADE,
+        /** Montagem do texto da resposta. */
+        RENDERIZACAO,
+        /** Entrega da resposta à fila de envio. */
+        ENVIO,
+        /** Da chegada de uma consulta inline até a resposta, incluindo a espera. */
+        INLINE
+    }
+
+    private final MeterRegistry registro;
+    private final Timer[] etapas = new Timer[Etapa.values().length];
+    private final Map<String, Counter> comandos = new ConcurrentHashMap<>();
+    private final Map<String, Counter> erros = new ConcurrentHashMap<>();
+    private final Map<String, Counter> limitadas = new ConcurrentHashMap<>();
+    private final Map<String, Counter> ignoradas = new ConcurrentHashMap<>();
+    private final DistributionSummary quantidadeDados;
+
+    public MetricasBot(MeterRegistry registro) {
+        this.registro = registro;
+        for (Etapa etapa : Etapa.values()) {
+            etapas[etapa.ordinal()] = Timer.builder("bot.etapa")
+                    .description("Duração de cada etapa do processamento de um comando")
+                    .tag("etapa", etapa.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(registro);
+        }
+        this.quantidadeDados = DistributionSummary.builder("bot.dados.quantidade")
+                .description("Quantidade de dados rolados por termo")
+                .publishPercentileHistogram()
+                .register(registro);
+    }
+
+    public MeterRegistry getRegistro() {
+        return registro;
+    }
+
+    /**
+     * Registra a duração de uma etapa iniciada em {@code inicio} ({@link System#nanoTime()}).
+     */
+    public void registrar(Etapa etapa, long inicio) {
+        registrarNanos(etapa, System.nanoTime() - inicio);
+    }
+
+    public void registrarNanos(Etapa etapa, long nanos) {
+        etapas[etapa.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void comando(String nome) {
+        comandos.computeIfAbsent(nome, n -> Counter.builder("bot.comandos")
+                .description("Comandos recebidos")
+                .tag("comando", n)
+                .register(registro)).increment();
+    }
+
+    public void erro(Throwable erro) {
+        erro(erro.getClass().getSimpleName());
+    }
+
+    public void erro(String tipo) {
+        erros.computeIfAbsent(tipo, t -> Counter.builder("bot.erros")
+                .description("Erros no processamento de comandos, por tipo")
+                .tag("tipo", t)
+                .register(registro)).increment();
+    }
+
+    public void limitada(String resultado) {
+        limitadas.computeIfAbsent(resultado, r -> Counter.builder("bot.limitadas")
+                .description("Mensagens barradas pelos limites de taxa")
+                .tag("resultado", r)
+                .register(registro)).increment();
+    }
+
+    public void ignorada(String tipo) {
+        ignoradas.computeIfAbsent(tipo, t -> Counter.builder("bot.atualizacoes.ignoradas")
+                .description("Atualizações sem mensagem nem consulta inline, por tipo")
+                .tag("tipo", t)
+                .register(registro)).increment();
+    }
+
+    public void quantidadeDados(int quantidade) {
+        quantidadeDados.record(quantidade);
+    }
+}
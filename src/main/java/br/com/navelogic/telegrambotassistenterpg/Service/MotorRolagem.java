@@ -0,0 +1,367 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.Modificador;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Motor de rolagem que trabalha só com {@code int[]} reutilizáveis.
+ *
+ * <p>Cada thread tem o seu próprio motor (veja {@link #daThread()}), então os
+ * buffers são reaproveitados entre rolagens sem sincronização. Depois de
+ * {@link #rolar}, os dados mantidos ficam em {@code dados[0..quantidadeMantida)}
+ * até a próxima chamada.</p>
+ *
+ * <p>Para manter/soltar não é preciso ordenar a rolagem inteira:</p>
+ * <ul>
+ *   <li>com poucos lados, os dados vão direto para um histograma de faces e os
+ *   mantidos são lidos dele em ordem crescente;</li>
+ *   <li>com muitos lados, uma seleção parcial separa os mantidos e só eles são ordenados.</li>
+ * </ul>
+ *
+ * <p>Grandes quantidades de dados usam {@link #rolarHistograma}: a contagem de cada
+ * face é sorteada de uma distribuição multinomial e nenhum dado é guardado
+ * individualmente, então o custo cresce com o número de lados, não de dados.</p>
+ *
+ * <p>Paradas de dados com rerrolagem, explosão ou sucessos usam {@link #rolarParada}, também
+ * só com contagens: as explosões de uma rodada são roladas todas juntas na rodada seguinte e os
+ * sucessos saem de uma soma de prefixo do histograma, então a memória fica em O(lados) mesmo
+ * para um milhão de dados.</p>
+ */
+final class MotorRolagem {
+
+    /** Até quantos lados a seleção por histograma é usada. */
+    static final int LIMITE_HISTOGRAMA = 1024;
+    /** Máximo de rodadas de explosão depois da rolagem inicial. */
+    static final int MAX_RODADAS_EXPLOSAO = 100;
+
+    private static final ThreadLocal<MotorRolagem> POR_THREAD = ThreadLocal.withInitial(MotorRolagem::new);
+
+    private int[] dados = new int[64];
+    private final int[] contagens = new int[LIMITE_HISTOGRAMA + 1];
+    private final int[] rodada = new int[LIMITE_HISTOGRAMA + 1];
+    private int quantidadeMantida;
+    private int ladosHistograma;
+    private long nanosModificador;
+
+    private MotorRolagem() {
+    }
+
+    /**
+     * @return o motor da thread atual
+     */
+    static MotorRolagem daThread() {
+        return POR_THREAD.get();
+    }
+
+    /**
+     * Rola os dados, aplica o modificador e devolve a soma dos mantidos.
+     *
+     * @param random                gerador de números aleatórios
+     * @param quantidade            quantidade de dados
+     * @param lados                 lados de cada dado
+     * @param modificador           modificador, ou {@code null}
+     * @param quantidadeModificador valor do modificador
+     * @return soma dos dados mantidos
+     */
+    long rolar(RandomGenerator random, int quantidade, int lados, Modificador modificador, int quantidadeModificador) {
+        garantirCapacidade(quantidade);
+        nanosModificador = 0;
+        if (modificador == null) {
+            rolarTodos(random, quantidade, lados);
+        } else {
+            int mantidos = modificador.quantidadeMantida(quantidade, quantidadeModificador);
+            if (lados <= LIMITE_HISTOGRAMA) {
+                rolarPorHistograma(random, quantidade, lados, mantidos, modificador.mantemMaiores());
+            } else {
+                rolarPorSelecao(random, quantidade, lados, mantidos, modificador.mantemMaiores());
+            }
+        }
+        return somar();
+    }
+
+    /**
+     * Rola os dados só como contagens por face, aplica o modificador sobre o
+     * histograma e devolve a soma dos mantidos. As contagens mantidas ficam
+     * disponíveis para {@link #copiarContagens} até a próxima chamada.
+     *
+     * <p>As faces são sorteadas em sequência: a face {@code f} recebe
+     * {@code Binomial(restantes, 1 / (lados - f + 1))} dos dados que ainda não
+     * foram atribuídos, o que equivale a uma amostra multinomial uniforme.</p>
+     *
+     * @param random                gerador de números aleatórios
+     * @param quantidade            quantidade de dados
+     * @param lados                 lados de cada dado, no máximo {@link #LIMITE_HISTOGRAMA}
+     * @param modificador           modificador, ou {@code null}
+     * @param quantidadeModificador valor do modificador
+     * @return soma dos dados mantidos
+     */
+    long rolarHistograma(RandomGenerator random, int quantidade, int lados, Modificador modificador, int quantidadeModificador) {
+        Arrays.fill(contagens, 1, lados + 1, 0);
+        somarMultinomial(random, quantidade, lados, contagens);
+        ladosHistograma = lados;
+
+        nanosModificador = 0;
+        if (modificador != null) {
+            long inicioSelecao = System.nanoTime();
+            int mantidos = modificador.quantidadeMantida(quantidade, quantidadeModificador);
+            recortarHistograma(quantidade, mantidos, modificador.mantemMaiores());
+            nanosModificador = System.nanoTime() - inicioSelecao;
+        }
+
+        long soma = 0;
+        quantidadeMantida = 0;
+        for (int face = 1; face <= lados; face++) {
+            soma += (long) face * contagens[face];
+            quantidadeMantida += contagens[face];
+        }
+        return soma;
+    }
+
+    /**
+     * Rola uma parada de dados só como contagens por face, em rodadas:
+     * <ol>
+     *   <li>os dados da rodada são sorteados em um histograma próprio;</li>
+     *   <li>os que ficaram até {@code rerrolarAte} saem do histograma e são sorteados de novo,
+     *   todos de uma vez, e o novo resultado vale mesmo se for baixo;</li>
+     *   <li>os que ficaram a partir de {@code explodirDe} são a quantidade da próxima rodada.</li>
+     * </ol>
+     * <p>Cada rodada é somada às contagens da parada. As explosões param depois de
+     * {@value #MAX_RODADAS_EXPLOSAO} rodadas. O modificador é aplicado sobre a parada inteira,
+     * como em {@link #rolarHistograma}, e as contagens mantidas ficam em {@link #copiarContagens}.</p>
+     *
+     * @param random                gerador de números aleatórios
+     * @param quantidade            quantidade de dados da rolagem inicial
+     * @param lados                 lados de cada dado, no máximo {@link #LIMITE_HISTOGRAMA}
+     * @param rerrolarAte           maior resultado rerrolado, ou zero
+     * @param explodirDe            menor resultado que explode, ou zero
+     * @param modificador           modificador, ou {@code null}
+     * @param quantidadeModificador valor do modificador
+     * @return soma dos dados mantidos
+     */
+    long rolarParada(RandomGenerator random, int quantidade, int lados, int rerrolarAte, int explodirDe,
+            Modificador modificador, int quantidadeModificador) {
+        Arrays.fill(contagens, 1, lados + 1, 0);
+        ladosHistograma = lados;
+        int parada = 0;
+        int lancar = quantidade;
+        for (int rodadas = 0; lancar > 0; rodadas++) {
+            Arrays.fill(rodada, 1, lados + 1, 0);
+            sortear(random, lancar, lados, rodada);
+            if (rerrolarAte > 0) {
+                int rerrolar = 0;
+                for (int face = 1; face <= rerrolarAte; face++) {
+                    rerrolar += rodada[face];
+                    rodada[face] = 0;
+                }
+                sortear(random, rerrolar, lados, rodada);
+            }
+            int explodem = 0;
+            for (int face = 1; face <= lados; face++) {
+                contagens[face] += rodada[face];
+                if (explodirDe > 0 && face >= explodirDe) {
+                    explodem += rodada[face];
+                }
+            }
+            parada += lancar;
+            lancar = rodadas < MAX_RODADAS_EXPLOSAO ? explodem : 0;
+        }
+
+        nanosModificador = 0;
+        if (modificador != null) {
+            long inicioSelecao = System.nanoTime();
+            recortarHistograma(parada, modificador.quantidadeMantida(parada, quantidadeModificador),
+                    modificador.mantemMaiores());
+            nanosModificador = System.nanoTime() - inicioSelecao;
+        }
+
+        long soma = 0;
+        quantidadeMantida = 0;
+        for (int face = 1; face <= lados; face++) {
+            soma += (long) face * contagens[face];
+            quantidadeMantida += contagens[face];
+        }
+        return soma;
+    }
+
+    /**
+     * Conta os dados mantidos pela última {@link #rolarParada} com resultado {@code minimo} ou
+     * maior: todos os mantidos menos a soma de prefixo das faces abaixo do mínimo.
+     */
+    int contarSucessos(int minimo) {
+        int abaixo = 0;
+        for (int face = 1; face < minimo; face++) {
+            abaixo += contagens[face];
+        }
+        return quantidadeMantida - abaixo;
+    }
+
+    /**
+     * Copia as contagens mantidas por {@link #rolarHistograma} ou {@link #rolarParada}, indexadas pela face.
+     *
+     * @return vetor de tamanho {@code lados + 1}; a posição 0 não é usada
+     */
+    int[] copiarContagens() {
+        return Arrays.copyOf(contagens, ladosHistograma + 1);
+    }
+
+    /**
+     * Copia os dados mantidos por {@link #rolar}, na ordem em que ficaram no buffer.
+     */
+    int[] copiarDados() {
+        return Arrays.copyOf(dados, quantidadeMantida);
+    }
+
+    int getQuantidadeMantida() {
+        return quantidadeMantida;
+    }
+
+    /**
+     * @return tempo gasto selecionando os dados mantidos na última rolagem, em nanossegundos
+     */
+    long getNanosModificador() {
+        return nanosModificador;
+    }
+
+    private void rolarTodos(RandomGenerator random, int quantidade, int lados) {
+        for (int i = 0; i < quantidade; i++) {
+            dados[i] = random.nextInt(lados) + 1;
+        }
+        quantidadeMantida = quantidade;
+    }
+
+    /**
+     * Soma ao histograma {@code quantidade} dados: um sorteio por dado quando há menos dados
+     * que lados, senão uma amostra multinomial.
+     */
+    private static void sortear(RandomGenerator random, int quantidade, int lados, int[] destino) {
+        if (quantidade < lados) {
+            for (int i = 0; i < quantidade; i++) {
+                destino[random.nextInt(lados) + 1]++;
+            }
+        } else {
+            somarMultinomial(random, quantidade, lados, destino);
+        }
+    }
+
+    /**
+     * Soma ao histograma uma amostra multinomial uniforme: a face {@code f} recebe
+     * {@code Binomial(restantes, 1 / (lados - f + 1))} dos dados ainda não atribuídos.
+     */
+    private static void somarMultinomial(RandomGenerator random, int quantidade, int lados, int[] destino) {
+        int restantes = quantidade;
+        for (int face = 1; face < lados; face++) {
+            int vezes = AmostragemBinomial.amostrar(random, restantes, 1.0 / (lados - face + 1));
+            destino[face] += vezes;
+            restantes -= vezes;
+        }
+        destino[lados] += restantes;
+    }
+
+    private void rolarPorHistograma(RandomGenerator random, int quantidade, int lados, int mantidos, boolean maiores) {
+        Arrays.fill(contagens, 1, lados + 1, 0);
+        for (int i = 0; i < quantidade; i++) {
+            contagens[random.nextInt(lados) + 1]++;
+        }
+
+        long inicioSelecao = System.nanoTime();
+        int inicio = maiores ? quantidade - mantidos : 0;
+        int fim = inicio + mantidos;
+        int posicao = 0;
+        int escritos = 0;
+        for (int face = 1; face <= lados && posicao < fim; face++) {
+            int vezes = contagens[face];
+            int de = Math.max(posicao, inicio);
+            int ate = Math.min(posicao + vezes, fim);
+            for (int j = de; j < ate; j++) {
+                dados[escritos++] = face;
+            }
+            posicao += vezes;
+        }
+        quantidadeMantida = escritos;
+        nanosModificador = System.nanoTime() - inicioSelecao;
+    }
+
+    /**
+     * Zera as contagens fora da faixa mantida, percorrendo as faces em ordem crescente.
+     */
+    private void recortarHistograma(int quantidade, int mantidos, boolean maiores) {
+        int inicio = maiores ? quantidade - mantidos : 0;
+        int fim = inicio + mantidos;
+        int posicao = 0;
+        for (int face = 1; face <= ladosHistograma; face++) {
+            int vezes = contagens[face];
+            int de = Math.max(posicao, inicio);
+            int ate = Math.min(posicao + vezes, fim);
+            contagens[face] = Math.max(0, ate - de);
+            posicao += vezes;
+        }
+    }
+
+    private void rolarPorSelecao(RandomGenerator random, int quantidade, int lados, int mantidos, boolean maiores) {
+        rolarTodos(random, quantidade, lados);
+        long inicioSelecao = System.nanoTime();
+        if (mantidos > 0 && mantidos < quantidade) {
+            int inicio = quantidade - mantidos;
+            selecionar(dados, quantidade, maiores ? inicio : mantidos - 1);
+            if (maiores) {
+                System.arraycopy(dados, inicio, dados, 0, mantidos);
+            }
+        }
+        Arrays.sort(dados, 0, mantidos);
+        quantidadeMantida = mantidos;
+        nanosModificador = System.nanoTime() - inicioSelecao;
+    }
+
+    /**
+     * Seleção parcial (quickselect): reorganiza {@code a[0..n)} para que
+     * {@code a[k]} fique na posição que teria na ordem crescente, com os
+     * menores à esquerda e os maiores à direita.
+     */
+    private static void selecionar(int[] a, int n, int k) {
+        int esquerda = 0;
+        int direita = n - 1;
+        while (esquerda < direita) {
+            int pivo = a[(esquerda + direita) >>> 1];
+            int i = esquerda;
+            int j = direita;
+            while (i <= j) {
+                while (a[i] < pivo) {
+                    i++;
+                }
+                while (a[j] > pivo) {
+                    j--;
+                }
+                if (i <= j) {
+                    int troca = a[i];
+                    a[i] = a[j];
+                    a[j] = troca;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                direita = j;
+            } else if (k >= i) {
+                esquerda = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private long somar() {
+        long soma = 0;
+        for (int i = 0; i < quantidadeMantida; i++) {
+            soma += dados[i];
+        }
+        return soma;
+    }
+
+    private void garantirCapacidade(int quantidade) {
+        if (dados.length < quantidade) {
+            dados = new int[Math.max(quantidade, dados.length * 2)];
+        }
+    }
+}
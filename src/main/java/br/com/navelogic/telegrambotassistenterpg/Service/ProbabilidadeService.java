@@ -0,0 +1,417 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.ExpressaoDados;
+import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoProbabilidade;
+import br.com.navelogic.telegrambotassistenterpg.Util.CacheLRU;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calcula a distribuição exata de uma expressão de dados, sem simulação (comando /prob).
+ *
+ * <p>Usa a mesma gramática do /r, obtida já compilada pelo {@link RolarDadosService}:</p>
+ * <ul>
+ *   <li>{@code NdX} sem modificador: convolução de N dados uniformes, cada uma em tempo
+ *   linear com uma soma de janela deslizante;</li>
+ *   <li>{@code NdX} com manter/soltar: programação dinâmica pelas faces, da maior para a menor,
+ *   contando quantos dados já estão acima da face atual (com a binomial dos dados restantes)
+ *   e a soma dos mantidos. Manter os menores é o reflexo de manter os maiores;</li>
+ *   <li>operações entre termos: convolução para {@code +} e {@code -} e produto das
+ *   distribuições para {@code *} e {@code /}.</li>
+ * </ul>
+ *
+ * <p>Termos com rerrolagem, explosão ou sucessos ({@code 10d10!>=8}) ainda são recusados.</p>
+ *
+ * <p>A distribuição de cada termo de dados fica em um cache LRU ({@code prob.cache.tamanho}),
+ * com chave independente da forma do modificador ({@code 4d6sm1} e {@code 4d6m3} são o mesmo termo).
+ * Só entram no cache termos com até {@value #LIMITE_VALORES_CACHE} valores possíveis, para que o
+ * cache inteiro ocupe no máximo alguns MB por entrada permitida; os maiores são recalculados.
+ * Cada cálculo tem um prazo ({@code prob.orcamento-ms}) e um orçamento de
+ * {@value #LIMITE_CELULAS} células somando todos os vetores que aloca; expressões que não cabem
+ * neles são recusadas com uma mensagem em vez de ocupar a thread do chat. No máximo
+ * {@code prob.simultaneos} cálculos rodam ao mesmo tempo, para que as faixas de processamento
+ * juntas não passem de alguns orçamentos de memória.</p>
+ */
+@Slf4j
+@Service
+public class ProbabilidadeService {
+
+    static final int LIMITE_VALORES = 4_000_000;
+    /** Células (doubles) que um cálculo pode alocar ao todo, cerca de 16 MB. */
+    static final long LIMITE_CELULAS = 2_000_000;
+    /** Valores possíveis de um termo acima dos quais a distribuição não é guardada (128 KB). */
+    static final int LIMITE_VALORES_CACHE = 16_384;
+    private static final String MENSAGEM_FORMATO = "Formato de comando inválido. Exemplo: /prob 4d6sm1";
+    private static final String MENSAGEM_OCUPADO = "Muitos cálculos do /prob ao mesmo tempo. Tente de novo em instantes.";
+
+    private final RolarDadosService rolarDadosService;
+    private final MetricasBot metricas;
+    private final CacheLRU<String, Distribuicao> cacheDistribuicoes;
+    private final long orcamentoNanos;
+    private final Semaphore calculos;
+
+    @Autowired
+    public ProbabilidadeService(RolarDadosService rolarDadosService, MetricasBot metricas,
+            @Value("${prob.cache.tamanho:256}") int tamanhoCache,
+            @Value("${prob.orcamento-ms:2000}") long orcamentoMs,
+            @Value("${prob.simultaneos:4}") int simultaneos) {
+        this.rolarDadosService = rolarDadosService;
+        this.metricas = metricas;
+        this.cacheDistribuicoes = new CacheLRU<>(tamanhoCache);
+        this.orcamentoNanos = TimeUnit.MILLISECONDS.toNanos(orcamentoMs);
+        this.calculos = new Semaphore(simultaneos);
+
+        MeterRegistry registro = metricas.getRegistro();
+        FunctionCounter.builder("prob.cache.distribuicoes", cacheDistribuicoes, CacheLRU::getAcertos)
+                .description("Consultas ao cache de distribuições").tag("resultado", "acerto").register(registro);
+        FunctionCounter.builder("prob.cache.distribuicoes", cacheDistribuicoes, CacheLRU::getFalhas)
+                .description("Consultas ao cache de distribuições").tag("resultado", "falha").register(registro);
+    }
+
+    public ProbabilidadeService(RolarDadosService rolarDadosService, MetricasBot metricas, int tamanhoCache,
+            long orcamentoMs) {
+        this(rolarDadosService, metricas, tamanhoCache, orcamentoMs, 4);
+    }
+
+    /**
+     * Processa o comando /prob.
+     *
+     * @param comando texto da mensagem, por exemplo {@code /prob 4d6sm1}
+     * @return o resumo da distribuição
+     * @throws IllegalArgumentException se a expressão for inválida ou grande demais
+     */
+    public ResultadoProbabilidade calcular(String comando) {
+        return calcularExpressao(extrairExpressao(comando));
+    }
+
+    /**
+     * Calcula a distribuição de uma expressão já separada do comando, por exemplo {@code 4d6sm1}.
+     *
+     * @throws IllegalArgumentException se a expressão estiver vazia, for inválida ou grande demais
+     */
+    public ResultadoProbabilidade calcularExpressao(String expressao) {
+        if (expressao.isBlank()) {
+            throw new IllegalArgumentException(MENSAGEM_FORMATO);
+        }
+        ExpressaoDados arvore = rolarDadosService.compilar(expressao);
+
+        Distribuicao distribuicao;
+        try {
+            if (!calculos.tryAcquire(orcamentoNanos, TimeUnit.NANOSECONDS)) {
+                throw new IllegalArgumentException(MENSAGEM_OCUPADO);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException(MENSAGEM_OCUPADO);
+        }
+        try {
+            long inicio = System.nanoTime();
+            distribuicao = distribuicao(arvore, inicio + orcamentoNanos);
+            metricas.registrar(MetricasBot.Etapa.PROBABILIDADE, inicio);
+        } finally {
+            calculos.release();
+        }
+
+        int moda = distribuicao.moda();
+        return new ResultadoProbabilidade(AnalisadorExpressao.normalizar(expressao),
+                distribuicao.media(), distribuicao.desvioPadrao(),
+                distribuicao.minimo(), distribuicao.maximo(),
+                moda, distribuicao.probabilidade(moda),
+                distribuicao.percentis(ResultadoProbabilidade.FRACOES_PERCENTIS));
+    }
+
+    public long getAcertosCache() {
+        return cacheDistribuicoes.getAcertos();
+    }
+
+    public long getFalhasCache() {
+        return cacheDistribuicoes.getFalhas();
+    }
+
+    /**
+     * Calcula a distribuição exata de uma expressão já compilada.
+     *
+     * @param prazo instante limite em {@link System#nanoTime()}
+     */
+    Distribuicao distribuicao(ExpressaoDados expressao, long prazo) {
+        return distribuicao(expressao, new Calculo(prazo));
+    }
+
+    private Distribuicao distribuicao(ExpressaoDados expressao, Calculo calculo) {
+        return switch (expressao) {
+            case ExpressaoDados.Constante constante -> Distribuicao.constante(constante.valor());
+            case ExpressaoDados.Dados dados -> {
+                if (dados.porFaces()) {
+                    throw new IllegalArgumentException("O /prob ainda não calcula rerrolagens, explosões nem sucessos ("
+                            + dados.rotulo() + ").");
+                }
+                if ((long) mantidos(dados) * (dados.lados() - 1) + 1 > LIMITE_VALORES_CACHE) {
+                    yield distribuicaoDados(dados, calculo);
+                }
+                yield cacheDistribuicoes.obter(chave(dados), chave -> distribuicaoDados(dados, calculo));
+            }
+            case ExpressaoDados.Operacao operacao -> combinar(
+                    distribuicao(operacao.esquerda(), calculo),
+                    distribuicao(operacao.direita(), calculo),
+                    operacao.operador(), calculo);
+        };
+    }
+
+    private String extrairExpressao(String comando) {
+        int espaco = 0;
+        while (espaco < comando.length() && !Character.isWhitespace(comando.charAt(espaco))) {
+            espaco++;
+        }
+        if (espaco == comando.length() || !comando.substring(0, espaco).equalsIgnoreCase("/prob")) {
+            throw new IllegalArgumentException(MENSAGEM_FORMATO);
+        }
+        return comando.substring(espaco + 1).trim();
+    }
+
+    private static String chave(ExpressaoDados.Dados dados) {
+        int mantidos = mantidos(dados);
+        if (mantidos == dados.quantidade()) {
+            return dados.quantidade() + "d" + dados.lados();
+        }
+        return dados.quantidade() + "d" + dados.lados()
+                + (dados.modificador().mantemMaiores() ? "M" : "m") + mantidos;
+    }
+
+    private static int mantidos(ExpressaoDados.Dados dados) {
+        return dados.modificador() == null ? dados.quantidade()
+                : dados.modificador().quantidadeMantida(dados.quantidade(), dados.quantidadeModificador());
+    }
+
+    private Distribuicao distribuicaoDados(ExpressaoDados.Dados dados, Calculo calculo) {
+        int quantidade = dados.quantidade();
+        int lados = dados.lados();
+        int mantidos = mantidos(dados);
+        if (mantidos == 0) {
+            return Distribuicao.constante(0);
+        }
+        if (mantidos == quantidade) {
+            return soma(quantidade, lados, calculo);
+        }
+        Distribuicao maiores = maiores(quantidade, lados, mantidos, calculo);
+        // Os k menores de X valem k(lados + 1) menos os k maiores de (lados + 1 - X), que tem a mesma distribuição.
+        return dados.modificador().mantemMaiores() ? maiores : maiores.refletir(mantidos * (lados + 1));
+    }
+
+    /**
+     * Soma de {@code quantidade} dados de {@code lados} faces, um dado por vez: cada
+     * convolução com o dado uniforme é uma média móvel de largura {@code lados}.
+     */
+    private Distribuicao soma(int quantidade, int lados, Calculo calculo) {
+        long largura = (long) quantidade * (lados - 1) + 1;
+        verificarTamanho(largura);
+        calculo.reservar(2 * largura);
+        double[] atual = new double[(int) largura];
+        double[] proxima = new double[(int) largura];
+        atual[0] = 1.0;
+        double inverso = 1.0 / lados;
+        for (int dado = 1; dado <= quantidade; dado++) {
+            calculo.verificarPrazo();
+            int tamanhoAnterior = (dado - 1) * (lados - 1) + 1;
+            int tamanho = tamanhoAnterior + lados - 1;
+            double janela = 0;
+            for (int i = 0; i < tamanho; i++) {
+                if (i < tamanhoAnterior) {
+                    janela += atual[i];
+                }
+                if (i >= lados) {
+                    janela -= atual[i - lados];
+                }
+                proxima[i] = Math.max(0, janela * inverso);
+            }
+            double[] troca = atual;
+            atual = proxima;
+            proxima = troca;
+        }
+        return Distribuicao.de(quantidade, atual);
+    }
+
+    /**
+     * Soma dos {@code mantidos} maiores entre {@code quantidade} dados.
+     *
+     * <p>Percorre as faces da maior para a menor. O estado é {@code (j, s)}: {@code j < mantidos}
+     * dados já saíram acima da face atual, somando {@code s}. Os {@code quantidade - j} restantes são
+     * uniformes entre 1 e a face {@code v}, e quantos deles mostram {@code v} segue uma binomial
+     * {@code B(quantidade - j, 1/v)}. Quando os mantidos se completam, a soma não muda mais e a
+     * massa vai direto para o resultado.</p>
+     */
+    private Distribuicao maiores(int quantidade, int lados, int mantidos, Calculo calculo) {
+        int largura = mantidos * lados + 1;
+        verificarTamanho((long) mantidos * largura);
+        calculo.reservar(2L * mantidos * largura + largura);
+        double[] massa = new double[mantidos * largura];
+        double[] proxima = new double[mantidos * largura];
+        double[] resultado = new double[largura];
+        double[] binomial = new double[mantidos];
+        massa[0] = 1.0;
+
+        for (int face = lados; face >= 1; face--) {
+            Arrays.fill(proxima, 0);
+            for (int j = 0; j < mantidos; j++) {
+                // Cada j custa até j * lados * (mantidos - j) passos: uma face inteira pode levar segundos.
+                calculo.verificarPrazo();
+                int faltam = mantidos - j;
+                double cauda = probabilidadesFace(quantidade - j, face, faltam, binomial);
+                int base = j * largura;
+                int maiorSoma = j * lados;
+                for (int s = 0; s <= maiorSoma; s++) {
+                    double m = massa[base + s];
+                    if (m == 0) {
+                        continue;
+                    }
+                    for (int c = 0; c < faltam; c++) {
+                        proxima[(j + c) * largura + s + c * face] += m * binomial[c];
+                    }
+                    resultado[s + faltam * face] += m * cauda;
+                }
+            }
+            double[] troca = massa;
+            massa = proxima;
+            proxima = troca;
+        }
+        return Distribuicao.de(0, resultado);
+    }
+
+    /**
+     * Preenche {@code binomial[c]} com a probabilidade de exatamente {@code c < faltam} dos
+     * {@code restantes} dados mostrarem a face atual, em escala logarítmica para não zerar
+     * com muitos dados.
+     *
+     * @return a probabilidade de pelo menos {@code faltam} dados mostrarem a face
+     */
+    private static double probabilidadesFace(int restantes, int face, int faltam, double[] binomial) {
+        if (face == 1) {
+            Arrays.fill(binomial, 0, faltam, 0);
+            return 1.0;
+        }
+        double logP = -Math.log(face);
+        double logQ = Math.log1p(-1.0 / face);
+        double logFatorialRestantes = AmostragemBinomial.logFatorial(restantes);
+        double acumulada = 0;
+        for (int c = 0; c < faltam; c++) {
+            binomial[c] = c > restantes ? 0 : Math.exp(logFatorialRestantes
+                    - AmostragemBinomial.logFatorial(c) - AmostragemBinomial.logFatorial(restantes - c)
+                    + c * logP + (restantes - c) * logQ);
+            acumulada += binomial[c];
+        }
+        return Math.max(0, 1.0 - acumulada);
+    }
+
+    private Distribuicao combinar(Distribuicao a, Distribuicao b, char operador, Calculo calculo) {
+        return switch (operador) {
+            case '+' -> convoluir(a, b, calculo);
+            case '-' -> convoluir(a, b.refletir(0), calculo);
+            case '*', '/' -> produto(a, b, operador, calculo);
+            default -> b;
+        };
+    }
+
+    private Distribuicao convoluir(Distribuicao a, Distribuicao b, Calculo calculo) {
+        if (a.tamanho() < b.tamanho()) {
+            Distribuicao troca = a;
+            a = b;
+            b = troca;
+        }
+        long minimo = (long) a.minimo() + b.minimo();
+        long maximo = (long) a.maximo() + b.maximo();
+        verificarIntervalo(minimo, maximo);
+        calculo.reservar(maximo - minimo + 1);
+        double[] resultado = new double[(int) (maximo - minimo + 1)];
+        for (int j = 0; j < b.tamanho(); j++) {
+            calculo.verificarPrazo();
+            double pb = b.probabilidade(b.minimo() + j);
+            if (pb == 0) {
+                continue;
+            }
+            for (int i = 0; i < a.tamanho(); i++) {
+                resultado[i + j] += a.probabilidade(a.minimo() + i) * pb;
+            }
+        }
+        return Distribuicao.de((int) minimo, resultado);
+    }
+
+    private Distribuicao produto(Distribuicao a, Distribuicao b, char operador, Calculo calculo) {
+        if (operador == '/' && b.probabilidade(0) > 0) {
+            throw new IllegalArgumentException("Não é possível dividir por zero.");
+        }
+        // Os extremos de a*b e a/b estão nas pontas de a combinadas com as pontas de b ou com ±1.
+        long minimo = Long.MAX_VALUE;
+        long maximo = Long.MIN_VALUE;
+        for (long x : new long[]{a.minimo(), a.maximo()}) {
+            for (long y : new long[]{b.minimo(), b.maximo(), -1, 1}) {
+                if (y < b.minimo() || y > b.maximo() || y == 0) {
+                    continue;
+                }
+                long valor = operador == '*' ? x * y : x / y;
+                minimo = Math.min(minimo, valor);
+                maximo = Math.max(maximo, valor);
+            }
+        }
+        verificarIntervalo(minimo, maximo);
+        calculo.reservar(maximo - minimo + 1);
+        double[] resultado = new double[(int) (maximo - minimo + 1)];
+        for (int y = b.minimo(); y <= b.maximo(); y++) {
+            calculo.verificarPrazo();
+            double pb = b.probabilidade(y);
+            if (pb == 0) {
+                continue;
+            }
+            for (int x = a.minimo(); x <= a.maximo(); x++) {
+                long valor = operador == '*' ? (long) x * y : x / y;
+                resultado[(int) (valor - minimo)] += a.probabilidade(x) * pb;
+            }
+        }
+        return Distribuicao.de((int) minimo, resultado);
+    }
+
+    private static void verificarIntervalo(long minimo, long maximo) {
+        if (minimo < Integer.MIN_VALUE || maximo > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Os valores possíveis da expressão são grandes demais.");
+        }
+        verificarTamanho(maximo - minimo + 1);
+    }
+
+    private static void verificarTamanho(long valores) {
+        if (valores > LIMITE_VALORES) {
+            throw new IllegalArgumentException("A expressão tem valores possíveis demais para calcular a distribuição exata.");
+        }
+    }
+
+    /**
+     * Prazo e memória de um cálculo: cada vetor alocado desconta do orçamento de células antes
+     * de ser criado. As distribuições que vêm do cache não custam nada.
+     */
+    private static final class Calculo {
+        private final long prazo;
+        private long celulas;
+
+        Calculo(long prazo) {
+            this.prazo = prazo;
+        }
+
+        void verificarPrazo() {
+            if (System.nanoTime() - prazo > 0) {
+                throw new IllegalArgumentException("A distribuição desta expressão demora demais para calcular.");
+            }
+        }
+
+        void reservar(long quantidade) {
+            celulas += quantidade;
+            if (celulas > LIMITE_CELULAS) {
+                throw new IllegalArgumentException("A distribuição desta expressão ocupa memória demais para calcular.");
+            }
+        }
+    }
+}
@@ -15,276 +15,515 @@
  * - sM: Soltar o maior
  * - sm: Soltar o menor
  * 
+ * E, para sistemas de parada de dados (World of Darkness, Shadowrun):
+ * - r: Rerrolar uma vez os resultados até o valor (/r 2d6r1)
+ * - !: Explodir no maior resultado, ou a partir do valor (/r 3d6!, /r 10d10!8)
+ * - >= ou >: Contar os sucessos em vez de somar (/r 10d10>=8)
+ * Esses termos são avaliados só sobre as contagens de cada face ({@link MotorRolagem#rolarParada}),
+ * com no máximo {@link MotorRolagem#MAX_RODADAS_EXPLOSAO} rodadas de explosão, e a resposta
+ * mostra a contagem de cada face e a quantidade de sucessos.
+ * 
+ * As expressões são analisadas uma única vez por {@link AnalisadorExpressao} e guardadas,
+ * já compiladas, em um cache LRU limitado cuja chave é a expressão normalizada. Comandos
+ * repetidos (como /r 1d20+5) pulam a análise e apenas rolam os dados.
+ * 
+ * A rolagem em si é feita pelo {@link MotorRolagem}, que usa buffers int[] por thread e
+ * seleciona os dados mantidos por histograma ou seleção parcial, sem listas de Integer.
+ * Termos com mais de MAX_DADOS dados (por exemplo /r 100000d10) são rolados direto em um
+ * histograma de faces e exibidos como um resumo de contagens (1×10012, 2×9987, ...).
+ * 
+ * Antes de qualquer sorteio, o {@link AnalisadorCusto} estima o custo da expressão com as
+ * constantes dobradas; a rolagem e a resposta usam a expressão como foi digitada. Expressões
+ * acima de dados.orcamento.operacoes, ou cujo resultado pode estourar int, são recusadas.
+ * Quando só o texto passa de dados.orcamento.caracteres, a resposta é resumida: cada termo
+ * mostra apenas o seu subtotal ([1000d6 = 3512]) em vez de cada dado.
+ * 
+ * O texto da resposta não é montado aqui: o ResultadoDados guarda as partes da expressão e
+ * os dados de cada termo, e a mensagem HTML é escrita uma única vez, já dentro do limite do
+ * Telegram, quando a resposta é enviada.
+ * 
+ * Cada rolagem tira uma semente de 64 bits da {@link FonteAleatoria} configurada em
+ * dados.aleatorio.tipo e sorteia todos os dados com um {@link GeradorSplitMix} iniciado nela.
+ * A semente vai no ResultadoDados para a auditoria, e reproduzir(expressao, semente) repete
+ * a rolagem com os mesmos dados. Com dados.aleatorio.tipo=seguro, a fonte não é reproduzível:
+ * os dados saem direto do SecureRandom e o ResultadoDados fica marcado como não reproduzível.
+ * 
+ * Os tempos de análise, rolagem e modificadores, a quantidade de dados por termo e os
+ * acertos e falhas do cache são publicados pelo {@link MetricasBot}.
+ * 
  * O serviço registra as etapas de processamento e resultados usando SLF4J.
  * 
  * Métodos:
  * - rolar(String comando): Processa o comando de rolagem de dados e retorna o resultado.
+ * - rolarExpressao(String expressao): Rola uma expressão já separada do comando.
+ * - rolarLote(String expressoes): Rola várias expressões separadas por ; e com repetições (6# 1d20+5), analisando cada uma uma única vez.
+ * - rolarPrevia(String expressoes): Rola uma expressão ou um lote sem guardar no cache as expressões novas, para prévias como as consultas inline.
+ * - compilar(String expressao): Obtém a árvore da expressão, do cache ou analisando-a e verificando o custo.
+ * - preparar(String expressao): Obtém o plano da expressão, já aprovado pela análise de custo, para rolar várias vezes.
+ * - rolar(Plano plano): Rola um plano já preparado, sem analisar nem estimar o custo de novo.
+ * - reproduzir(String expressao, long semente): Repete uma rolagem a partir da semente registrada.
  * - mensagemErro(): Retorna uma mensagem de erro para comandos inválidos.
  * - extrairExpressao(String comando): Extrai a expressão do comando.
- * - processarComando(String expressao): Processa a expressão do comando e calcula o resultado.
- * - processarRolagem(String elemento): Processa um elemento de rolagem de dados e aplica modificadores.
- * - extrairOperador(String elemento): Extrai o operador do elemento.
- * - removerOperador(String elemento, String operador): Remove o operador do elemento.
- * - validarQuantidadeDados(int quantidade): Valida a quantidade de dados.
- * - processarParametrosDados(String ladosStr): Processa os parâmetros e modificadores dos dados.
- * - rolarDados(int quantidade, int lados): Rola a quantidade especificada de dados com os lados dados.
- * - aplicarModificadores(List<Integer> resultados, DadosParametros parametros): Aplica os modificadores especificados aos resultados dos dados.
- * - criarRepresentacaoVisual(List<Integer> resultados): Cria uma representação visual dos resultados dos dados.
- * - atualizarResultado(StringBuilder visual, int totalAtual, RolagemDados rolagem): Atualiza o resultado total com a nova rolagem.
- * - processarValorNumerico(StringBuilder visual, int totalAtual, String elemento): Processa um elemento de valor numérico.
- * - aplicarOperacao(int valorAtual, int novoValor, String operador): Aplica a operação especificada aos valores atual e novo.
- * 
- * Classes Internas:
- * - DadosParametros: Contém os parâmetros para rolagem de dados, incluindo lados e modificadores.
- * - RolagemDados: Representa o resultado de uma rolagem de dados, incluindo total, representação visual e operador.
+ * - planejar(ExpressaoDados expressao): Estima o custo e decide entre rolar, resumir ou recusar.
+ * - avaliar(ExpressaoDados expressao, RandomGenerator random, List<ParteResultado> partes): Avalia a árvore e guarda cada parte do resultado, na ordem.
+ * - processarRolagem(ExpressaoDados.Dados dados, RandomGenerator random, List<ParteResultado> partes): Rola um termo de dados no MotorRolagem da thread e guarda os dados mantidos (ou as contagens de faces) e o subtotal ou os sucessos.
+ * - validarQuantidadeDados(ExpressaoDados.Dados dados): Valida a quantidade de dados e, para grandes quantidades e paradas de dados, o número de lados.
+ * - aplicarOperacao(int valorAtual, int novoValor, char operador): Aplica a operação especificada aos valores atual e novo.
  */
 package br.com.navelogic.telegrambotassistenterpg.Service;
 
-import br.com.navelogic.telegrambotassistenterpg.Model.Modificador;
+import br.com.navelogic.telegrambotassistenterpg.Model.ExpressaoDados;
+import br.com.navelogic.telegrambotassistenterpg.Model.ParteResultado;
 import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoDados;
-
+import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoLote;
+import br.com.navelogic.telegrambotassistenterpg.Util.CacheLRU;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoria;
+import br.com.navelogic.telegrambotassistenterpg.Util.GeradorSplitMix;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 
 @Service
 public class RolarDadosService {
 
-    private final Random random = new Random();
-    private static final int MAX_DADOS = 1000;
+    static final int MAX_DADOS = 1000;
+    static final int MAX_ROLAGENS_LOTE = 100;
+    private static final int MAX_DADOS_HISTOGRAMA = 1_000_000;
     private static final Logger logger = LoggerFactory.getLogger(RolarDadosService.class);
 
-    private static final Pattern PADRAO_DADOS = Pattern.compile(
-            "^/(rolar|r)\\s+" +
-                    "(?:(\\d*)?d(\\d+))?" +
-                    "(?:([msM]+)(\\d+))?" +
-                    "(?:\\s*([+\\-*/])\\s*" +
-                    "(?:(?:(\\d*)?d(\\d+))|(?:(\\d+))))*"
-    );
+    private final FonteAleatoria fonteAleatoria;
+    private final MetricasBot metricas;
+    private final CacheLRU<String, Plano> cacheExpressoes;
+    private final long orcamentoOperacoes;
+    private final long orcamentoCaracteres;
+    private final long limiarParalelo;
+    private final Counter resumidas;
+    private final Counter recusadas;
+
+    /**
+     * Expressão compilada e já aprovada pela análise de custo. Só é obtida por
+     * {@link #preparar(String)}, então rolar um plano nunca precisa de nova análise.
+     *
+     * @param arvore expressão como foi digitada, que é a rolada e mostrada na resposta
+     * @param resumo se a resposta deve mostrar só o subtotal de cada termo
+     * @param operacoes custo estimado de CPU de uma rolagem
+     */
+    public record Plano(ExpressaoDados arvore, boolean resumo, long operacoes) {
+    }
+
+    @Autowired
+    public RolarDadosService(FonteAleatoria fonteAleatoria, MetricasBot metricas,
+            @Value("${dados.cache.expressoes.tamanho:1024}") int tamanhoCache,
+            @Value("${dados.orcamento.operacoes:1000000}") long orcamentoOperacoes,
+            @Value("${dados.orcamento.caracteres:3500}") long orcamentoCaracteres,
+            @Value("${dados.lote.paralelo-operacoes:50000}") long limiarParalelo) {
+        this.fonteAleatoria = fonteAleatoria;
+        this.metricas = metricas;
+        this.cacheExpressoes = new CacheLRU<>(tamanhoCache);
+        this.orcamentoOperacoes = orcamentoOperacoes;
+        this.orcamentoCaracteres = orcamentoCaracteres;
+        this.limiarParalelo = limiarParalelo;
+
+        MeterRegistry registro = metricas.getRegistro();
+        FunctionCounter.builder("dados.cache.expressoes", cacheExpressoes, CacheLRU::getAcertos)
+                .description("Consultas ao cache de expressões").tag("resultado", "acerto").register(registro);
+        FunctionCounter.builder("dados.cache.expressoes", cacheExpressoes, CacheLRU::getFalhas)
+                .description("Consultas ao cache de expressões").tag("resultado", "falha").register(registro);
+        Gauge.builder("dados.cache.expressoes.tamanho", cacheExpressoes, CacheLRU::tamanho)
+                .description("Expressões guardadas no cache").register(registro);
+        this.resumidas = Counter.builder("dados.admissao").description("Expressões resumidas ou recusadas pelo custo")
+                .tag("resultado", "resumida").register(registro);
+        this.recusadas = Counter.builder("dados.admissao").description("Expressões resumidas ou recusadas pelo custo")
+                .tag("resultado", "recusada").register(registro);
+    }
+
+    public RolarDadosService(FonteAleatoria fonteAleatoria, MetricasBot metricas, int tamanhoCache,
+            long orcamentoOperacoes, long orcamentoCaracteres) {
+        this(fonteAleatoria, metricas, tamanhoCache, orcamentoOperacoes, orcamentoCaracteres, 50_000);
+    }
 
     public ResultadoDados rolar(String comando) {
         logger.debug("Recebido comando: {}", comando);
-        Matcher matcher = PADRAO_DADOS.matcher(comando.toLowerCase());
-        if (!matcher.matches()) {
-            logger.error("Comando inválido: {}", comando);
-            throw new IllegalArgumentException(mensagemErro());
-        }
         String expressao = extrairExpressao(comando);
         logger.debug("Expressão extraída: {}", expressao);
-        return processarComando(expressao);
+        return rolar(obterPlano(expressao));
     }
 
-    private String mensagemErro() {
-        return """
-                Formato de comando inválido. Exemplos:
-                /r 2d20m1 (rola 2d20 mantendo o maior)
-                /r 2d20mm1 (rola 2d20 mantendo o menor)
-                /r 2d20sM1 (rola 2d20 soltando o maior)
-                /r 2d20sm1 (rola 2d20 soltando o menor)""";
+    /**
+     * Rola uma expressão já separada do comando, por exemplo {@code 1d20+5}.
+     *
+     * @throws IllegalArgumentException se a expressão estiver vazia, for inválida ou passar do orçamento
+     */
+    public ResultadoDados rolarExpressao(String expressao) {
+        if (expressao.isBlank()) {
+            throw new IllegalArgumentException(mensagemErro());
+        }
+        return rolar(obterPlano(expressao));
     }
 
-    private String extrairExpressao(String comando) {
-        return comando.substring(comando.indexOf(' ') + 1).trim();
+    /**
+     * Rola um lote de expressões separadas por {@code ;}, cada uma com um número opcional de
+     * repetições antes de {@code #}, por exemplo {@code 6# 1d20+5; 2d6}.
+     *
+     * <p>Cada expressão é analisada uma única vez e as repetições reaproveitam os buffers do
+     * {@link MotorRolagem} da thread. Quando o custo somado do lote passa de
+     * dados.lote.paralelo-operacoes, as repetições de cada expressão são roladas em paralelo,
+     * mantendo a ordem dos resultados.</p>
+     *
+     * @throws IllegalArgumentException se alguma expressão for inválida ou se o lote passar
+     *                                  de {@value #MAX_ROLAGENS_LOTE} rolagens ou do orçamento
+     */
+    public ResultadoLote rolarLote(String expressoes) {
+        return rolarLote(expressoes, true);
+    }
+
+    /**
+     * Rola uma expressão ou um lote como {@link #rolarLote}, mas sem guardar no cache as
+     * expressões que ainda não estão nele. Serve para prévias, como as consultas inline, que
+     * geram uma expressão diferente a cada tecla e tirariam do cache as expressões do /r.
+     *
+     * @throws IllegalArgumentException se alguma expressão for inválida ou se o lote passar
+     *                                  de {@value #MAX_ROLAGENS_LOTE} rolagens ou do orçamento
+     */
+    public ResultadoLote rolarPrevia(String expressoes) {
+        return rolarLote(expressoes, false);
     }
 
-    private ResultadoDados processarComando(String expressao) {
-        logger.debug("Processando comando: {}", expressao);
-        String[] elementos = expressao.split("(?=[+\\-*/])");
-        int totalFinal = 0;
-        StringBuilder visual = new StringBuilder();
-
-        for (String elemento : elementos) {
-            elemento = elemento.trim();
-            logger.debug("Processando elemento: {}", elemento);
-            if (elemento.contains("d")) {
-                RolagemDados rolagem = processarRolagem(elemento);
-                totalFinal = atualizarResultado(visual, totalFinal, rolagem);
-            } else {
-                totalFinal = processarValorNumerico(visual, totalFinal, elemento);
+    /**
+     * @param guardar se as expressões novas entram no cache
+     */
+    private ResultadoLote rolarLote(String expressoes, boolean guardar) {
+        String[] trechos = expressoes.split(";");
+        List<String> rotulos = new ArrayList<>(trechos.length);
+        List<Plano> planos = new ArrayList<>(trechos.length);
+        int[] repeticoes = new int[trechos.length];
+        int rolagens = 0;
+        long operacoes = 0;
+        for (String trecho : trechos) {
+            String expressao = trecho.trim();
+            if (expressao.isEmpty()) {
+                continue;
+            }
+            int vezes = 1;
+            int cerquilha = expressao.indexOf('#');
+            if (cerquilha >= 0) {
+                vezes = repeticoes(expressao.substring(0, cerquilha).trim());
+                expressao = expressao.substring(cerquilha + 1).trim();
+            }
+            if (expressao.isEmpty()) {
+                throw new IllegalArgumentException(mensagemErro());
             }
+            rolagens += vezes;
+            if (rolagens > MAX_ROLAGENS_LOTE) {
+                throw new IllegalArgumentException("Um lote pode ter no máximo " + MAX_ROLAGENS_LOTE + " rolagens.");
+            }
+            Plano plano = obterPlano(expressao, guardar);
+            operacoes += vezes * plano.operacoes();
+            repeticoes[planos.size()] = vezes;
+            rotulos.add(expressao);
+            planos.add(plano);
+        }
+        if (planos.isEmpty()) {
+            throw new IllegalArgumentException(mensagemErro());
+        }
+        if (operacoes > orcamentoOperacoes) {
+            recusadas.increment();
+            throw new IllegalArgumentException("O lote é grande demais para rolar (custo estimado "
+                    + operacoes + ", limite " + orcamentoOperacoes + ").");
         }
 
-        logger.debug("Resultado final: total={}, visual={}", totalFinal, visual);
-        return new ResultadoDados(totalFinal, visual.toString());
+        boolean paralelo = operacoes >= limiarParalelo;
+        List<ResultadoLote.Grupo> grupos = new ArrayList<>(planos.size());
+        for (int i = 0; i < planos.size(); i++) {
+            Plano plano = planos.get(i);
+            IntStream indices = IntStream.range(0, repeticoes[i]);
+            if (paralelo && repeticoes[i] > 1) {
+                indices = indices.parallel();
+            }
+            grupos.add(new ResultadoLote.Grupo(rotulos.get(i), indices.mapToObj(r -> rolar(plano)).toList()));
+        }
+        logger.debug("Lote rolado: {} rolagens, custo={}, paralelo={}", rolagens, operacoes, paralelo);
+        return new ResultadoLote(grupos);
     }
 
-    private RolagemDados processarRolagem(String elemento) {
-        logger.debug("Processando rolagem: {}", elemento);
-        String operador = extrairOperador(elemento);
-        elemento = removerOperador(elemento, operador);
+    /**
+     * Indica se o texto depois do comando é um lote para {@link #rolarLote}.
+     */
+    public static boolean isLote(String expressoes) {
+        return expressoes.indexOf('#') >= 0 || expressoes.indexOf(';') >= 0;
+    }
 
-        String[] partes = elemento.split("d");
-        int quantidade = partes[0].isEmpty() ? 1 : Integer.parseInt(partes[0]);
-        validarQuantidadeDados(quantidade);
+    /**
+     * Obtém a expressão compilada, consultando antes o cache de expressões.
+     *
+     * @param expressao expressão sem o comando, por exemplo {@code 1d20+5}
+     * @return a árvore imutável da expressão, como foi digitada
+     * @throws IllegalArgumentException se a expressão for inválida ou passar do orçamento
+     */
+    public ExpressaoDados compilar(String expressao) {
+        return obterPlano(expressao).arvore();
+    }
 
-        DadosParametros parametros = processarParametrosDados(partes[1]);
-        List<Integer> resultados = rolarDados(quantidade, parametros.lados);
-        logger.debug("Resultados antes de modificadores: {}", resultados);
-        resultados = aplicarModificadores(resultados, parametros);
+    /**
+     * Obtém o plano da expressão, do cache ou analisando-a e verificando o custo, para quem
+     * rola a mesma expressão muitas vezes, como as macros.
+     *
+     * @param expressao expressão sem o comando, por exemplo {@code 1d20+5}
+     * @throws IllegalArgumentException se a expressão for inválida ou passar do orçamento
+     */
+    public Plano preparar(String expressao) {
+        return obterPlano(expressao);
+    }
 
-        String representacaoVisual = criarRepresentacaoVisual(resultados);
-        int total = resultados.stream().mapToInt(Integer::intValue).sum();
-        logger.debug("Rolagem processada: total={}, visual={}", total, representacaoVisual);
+    /**
+     * Repete uma rolagem a partir da semente guardada no resultado original, com os mesmos dados.
+     *
+     * @param expressao expressão rolada, sem o comando
+     * @param semente   semente registrada na auditoria
+     * @throws IllegalArgumentException se a expressão estiver vazia, for inválida ou passar do orçamento
+     */
+    public ResultadoDados reproduzir(String expressao, long semente) {
+        if (expressao.isBlank()) {
+            throw new IllegalArgumentException(mensagemErro());
+        }
+        return rolar(obterPlano(expressao), semente);
+    }
 
-        return new RolagemDados(total, representacaoVisual, operador, parametros.lados, resultados);
+    /**
+     * Rola um plano obtido em {@link #preparar(String)}.
+     *
+     * @return o resultado da rolagem
+     */
+    public ResultadoDados rolar(Plano plano) {
+        RandomGenerator gerador = fonteAleatoria.gerador();
+        long semente = gerador.nextLong();
+        if (!fonteAleatoria.reproduzivel()) {
+            // A semente só identifica a rolagem; os dados saem do próprio gerador da fonte.
+            return rolar(plano, gerador, semente, false);
+        }
+        return rolar(plano, GeradorSplitMix.daThread(semente), semente, true);
     }
 
-    private String extrairOperador(String elemento) {
-        return elemento.startsWith("-") || elemento.startsWith("+") || 
-               elemento.startsWith("*") || elemento.startsWith("/") ? 
-               elemento.substring(0, 1) : "+";
+    private ResultadoDados rolar(Plano plano, long semente) {
+        return rolar(plano, GeradorSplitMix.daThread(semente), semente, true);
     }
 
-    private String removerOperador(String elemento, String operador) {
-        return operador.equals("+") || operador.equals("-") ? 
-               elemento.replaceFirst("[+\\-]", "") : elemento;
+    private ResultadoDados rolar(Plano plano, RandomGenerator gerador, long semente, boolean reproduzivel) {
+        long inicio = System.nanoTime();
+        List<ParteResultado> partes = new ArrayList<>();
+        int totalFinal = avaliar(plano.arvore(), gerador, partes);
+        metricas.registrar(MetricasBot.Etapa.ROLAGEM, inicio);
+        logger.debug("Resultado final: total={}, partes={}", totalFinal, partes.size());
+        return new ResultadoDados(totalFinal, partes, plano.resumo(), semente, reproduzivel);
     }
 
-    private void validarQuantidadeDados(int quantidade) {
-        if (quantidade > MAX_DADOS) {
-            throw new IllegalArgumentException("O número de dados não pode ser maior que " + MAX_DADOS);
-        }
+    public long getAcertosCache() {
+        return cacheExpressoes.getAcertos();
     }
 
-    private DadosParametros processarParametrosDados(String ladosStr) {
-        logger.debug("Processando parâmetros dos dados: {}", ladosStr);
-        Matcher matcher = Pattern.compile("(\\d+)([msM]+\\d+)?").matcher(ladosStr);
-        if (!matcher.matches()) {
-            throw new IllegalArgumentException("Formato inválido para a definição de dados: " + ladosStr);
-        }
-    
-        int lados = Integer.parseInt(matcher.group(1));
-        DadosParametros parametros = new DadosParametros(lados);
-    
-        String modificadorStr = matcher.group(2);
-        if (modificadorStr != null) {
-            Matcher modificadorMatcher = Pattern.compile("([msM]+)(\\d+)").matcher(modificadorStr);
-            if (modificadorMatcher.find()) {
-                String mod = modificadorMatcher.group(1);
-                parametros.quantidadeModificador = Integer.parseInt(modificadorMatcher.group(2));
-    
-                switch (mod) {
-                    case "m" -> parametros.modificador = Modificador.MANTER_MAIOR;
-                    case "mm" -> parametros.modificador = Modificador.MANTER_MENOR;
-                    case "sM" -> parametros.modificador = Modificador.SOLTAR_MAIOR;
-                    case "sm" -> parametros.modificador = Modificador.SOLTAR_MENOR;
-                    default -> {
-                        logger.error("Modificador inválido: {}", mod);
-                        throw new IllegalArgumentException("Modificador inválido: " + mod);
-                    }
-                }
-            }
+    public long getFalhasCache() {
+        return cacheExpressoes.getFalhas();
+    }
+
+    public int getTamanhoCache() {
+        return cacheExpressoes.tamanho();
+    }
+
+    static String mensagemErro() {
+        return """
+                Formato de comando inválido. Exemplos:
+                /r 2d20m1 (rola 2d20 mantendo o maior)
+                /r 2d20mm1 (rola 2d20 mantendo o menor)
+                /r 2d20sM1 (rola 2d20 soltando o maior)
+                /r 2d20sm1 (rola 2d20 soltando o menor)
+                /r 10d10>=8 (conta os dados com 8 ou mais)
+                /r 3d6! (rola mais um dado a cada 6)
+                /r 2d6r1 (rola de novo os 1, uma vez)""";
+    }
+
+    private String extrairExpressao(String comando) {
+        int espaco = 0;
+        while (espaco < comando.length() && !Character.isWhitespace(comando.charAt(espaco))) {
+            espaco++;
         }
-    
-        logger.debug("Parâmetros processados: lados={}, modificador={}, quantidadeModificador={}",
-                lados, parametros.modificador, parametros.quantidadeModificador);
-        return parametros;
-    }    
-
-    private List<Integer> rolarDados(int quantidade, int lados) {
-        logger.debug("Rolando {} dados de {} lados", quantidade, lados);
-        if (lados <= 0) {
-            logger.error("Número de lados inválido: {}", lados);
-            throw new IllegalArgumentException("O número de lados deve ser maior que zero.");
+        String nomeComando = comando.substring(0, espaco);
+        if (espaco == comando.length()
+                || !(nomeComando.equalsIgnoreCase("/r") || nomeComando.equalsIgnoreCase("/rolar"))) {
+            logger.error("Comando inválido: {}", comando);
+            throw new IllegalArgumentException(mensagemErro());
         }
-        List<Integer> resultados = random.ints(quantidade, 1, lados + 1)
-                .boxed()
-                .collect(Collectors.toList());
-        logger.debug("Resultados da rolagem: {}", resultados);
-        return resultados;
+        return comando.substring(espaco + 1).trim();
     }
-    
-
-    private List<Integer> aplicarModificadores(List<Integer> resultados, DadosParametros parametros) {
-        if (parametros.modificador != null) {
-            logger.debug("Aplicando modificador {} com limite {}", parametros.modificador, parametros.quantidadeModificador);
-            resultados.sort(parametros.modificador.getComparator());
-            int limite = Math.min(parametros.quantidadeModificador, resultados.size());
-
-            switch (parametros.modificador) {
-                case MANTER_MAIOR:
-                    resultados = resultados.subList(resultados.size() - limite, resultados.size());
-                    break;
-                case MANTER_MENOR:
-                    resultados = resultados.subList(0, limite);
-                    break;
-                case SOLTAR_MAIOR:
-                    resultados = resultados.subList(0, resultados.size() - limite);
-                    break;
-                case SOLTAR_MENOR:
-                    resultados = resultados.subList(limite, resultados.size());
-                    break;
-                default:
-                    logger.error("Modificador inválido: {}", parametros.modificador);
-                    throw new IllegalArgumentException("Modificador inválido");
+
+    private Plano obterPlano(String expressao) {
+        return obterPlano(expressao, true);
+    }
+
+    /**
+     * @param guardar se a expressão entra no cache quando ainda não está nele
+     */
+    private Plano obterPlano(String expressao, boolean guardar) {
+        long inicio = System.nanoTime();
+        try {
+            String normalizada = AnalisadorExpressao.normalizar(expressao);
+            if (guardar) {
+                return cacheExpressoes.obter(normalizada, this::analisar);
             }
+            Plano plano = cacheExpressoes.buscar(normalizada);
+            return plano != null ? plano : analisar(normalizada);
+        } finally {
+            metricas.registrar(MetricasBot.Etapa.ANALISE, inicio);
         }
-        logger.debug("Resultados após modificadores: {}", resultados);
-        return resultados;
     }
 
-    private String criarRepresentacaoVisual(List<Integer> resultados) {
-        return resultados.stream()
-                .map(String::valueOf)
-                .collect(Collectors.joining(" + "));
-    }    
+    private Plano analisar(String expressao) {
+        logger.debug("Analisando expressão: {}", expressao);
+        ExpressaoDados arvore = AnalisadorExpressao.analisar(expressao);
+        validar(arvore);
+        return planejar(arvore);
+    }
 
-    private int atualizarResultado(StringBuilder visual, int totalAtual, RolagemDados rolagem) {
-        logger.debug("Atualizando resultado: totalAtual={}, rolagem={}", totalAtual, rolagem);
-        if (visual.length() > 0) {
-            visual.append(" ").append(rolagem.operador).append(" ");
+    /**
+     * Estima o custo com as constantes dobradas, mas guarda no plano a árvore original, para que
+     * a resposta mostre {@code 2 * 3 + 1d6} como foi digitado.
+     */
+    private Plano planejar(ExpressaoDados arvore) {
+        AnalisadorCusto.Custo custo;
+        try {
+            custo = AnalisadorCusto.estimar(AnalisadorCusto.simplificar(arvore), MAX_DADOS);
+        } catch (IllegalArgumentException e) {
+            recusadas.increment();
+            throw e;
+        }
+        logger.debug("Custo estimado: {}", custo);
+        if (custo.operacoes() > orcamentoOperacoes) {
+            recusadas.increment();
+            throw new IllegalArgumentException("A expressão é grande demais para rolar (custo estimado "
+                    + custo.operacoes() + ", limite " + orcamentoOperacoes + ").");
+        }
+        if (custo.caracteres() <= orcamentoCaracteres) {
+            return new Plano(arvore, false, custo.operacoes());
         }
-        visual.append(rolagem.representacaoVisual);
-        int novoTotal = aplicarOperacao(totalAtual, rolagem.total, rolagem.operador);
-        logger.debug("Novo total após atualização: {}", novoTotal);
-        return novoTotal;
+        if (custo.caracteresResumo() > orcamentoCaracteres) {
+            recusadas.increment();
+            throw new IllegalArgumentException("A expressão tem termos demais para exibir o resultado.");
+        }
+        resumidas.increment();
+        return new Plano(arvore, true, custo.operacoes());
     }
 
-    private int processarValorNumerico(StringBuilder visual, int totalAtual, String elemento) {
-        String operador = elemento.substring(0, 1);
-        int valor = Integer.parseInt(elemento.substring(1));
-        if (visual.length() > 0) {
-            visual.append(" ").append(operador).append(" ");
+    private static int repeticoes(String texto) {
+        int vezes;
+        try {
+            vezes = Integer.parseInt(texto);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Use um número de repetições antes de #, por exemplo /r 6# 1d20+5.");
+        }
+        if (vezes < 1 || vezes > MAX_ROLAGENS_LOTE) {
+            throw new IllegalArgumentException("O número de repetições deve estar entre 1 e " + MAX_ROLAGENS_LOTE + ".");
         }
-        visual.append(valor);
-        return aplicarOperacao(totalAtual, valor, operador);
+        return vezes;
     }
 
-    private int aplicarOperacao(int valorAtual, int novoValor, String operador) {
-        return switch (operador) {
-            case "+" -> valorAtual + novoValor;
-            case "-" -> valorAtual - novoValor;
-            case "*" -> valorAtual * novoValor;
-            case "/" -> valorAtual / novoValor;
-            default -> novoValor;
-        };
+    private void validar(ExpressaoDados expressao) {
+        switch (expressao) {
+            case ExpressaoDados.Dados dados -> validarQuantidadeDados(dados);
+            case ExpressaoDados.Operacao operacao -> {
+                validar(operacao.esquerda());
+                validar(operacao.direita());
+            }
+            case ExpressaoDados.Constante constante -> {
+            }
+        }
     }
 
-    private static class DadosParametros {
-        int lados;
-        int quantidadeModificador = 0;
-        Modificador modificador = null;
+    private int avaliar(ExpressaoDados expressao, RandomGenerator random, List<ParteResultado> partes) {
+        return switch (expressao) {
+            case ExpressaoDados.Constante constante -> {
+                partes.add(new ParteResultado.Texto(String.valueOf(constante.valor())));
+                yield constante.valor();
+            }
+            case ExpressaoDados.Dados dados -> processarRolagem(dados, random, partes);
+            case ExpressaoDados.Operacao operacao -> {
+                int esquerda = avaliar(operacao.esquerda(), random, partes);
+                partes.add(new ParteResultado.Texto(" " + operacao.operador() + " "));
+                int direita = avaliar(operacao.direita(), random, partes);
+                yield aplicarOperacao(esquerda, direita, operacao.operador());
+            }
+        };
+    }
 
-        DadosParametros(int lados) {
-            this.lados = lados;
+    private int processarRolagem(ExpressaoDados.Dados dados, RandomGenerator random, List<ParteResultado> partes) {
+        logger.debug("Processando rolagem: {}", dados);
+        MotorRolagem motor = MotorRolagem.daThread();
+        long total;
+        int[] mantidos = null;
+        int[] contagens = null;
+        boolean sucessos = dados.sucessoDe() > 0;
+        if (dados.porFaces()) {
+            total = motor.rolarParada(random, dados.quantidade(), dados.lados(), dados.rerrolarAte(),
+                    dados.explodirDe(), dados.modificador(), dados.quantidadeModificador());
+            if (sucessos) {
+                total = motor.contarSucessos(dados.sucessoDe());
+            }
+            contagens = motor.copiarContagens();
+        } else if (dados.quantidade() > MAX_DADOS) {
+            total = motor.rolarHistograma(random, dados.quantidade(), dados.lados(),
+                    dados.modificador(), dados.quantidadeModificador());
+            contagens = motor.copiarContagens();
+        } else {
+            total = motor.rolar(random, dados.quantidade(), dados.lados(),
+                    dados.modificador(), dados.quantidadeModificador());
+            mantidos = motor.copiarDados();
         }
+        partes.add(new ParteResultado.Termo(dados.rotulo(), (int) total, dados.lados(), mantidos, contagens, sucessos));
+        metricas.quantidadeDados(dados.quantidade());
+        if (dados.modificador() != null) {
+            metricas.registrarNanos(MetricasBot.Etapa.MODIFICADORES, motor.getNanosModificador());
+        }
+        logger.debug("Rolagem processada: total={}, mantidos={}", total, motor.getQuantidadeMantida());
+        return (int) total;
     }
 
-    private static class RolagemDados {
-        int total;
-        String representacaoVisual;
-        String operador;
-
-        RolagemDados(int total, String representacaoVisual, String operador, int lados, List<Integer> resultados) {
-            this.total = total;
-            this.representacaoVisual = representacaoVisual;
-            this.operador = operador;
+    private void validarQuantidadeDados(ExpressaoDados.Dados dados) {
+        if (dados.quantidade() > MAX_DADOS_HISTOGRAMA) {
+            throw new IllegalArgumentException("O número de dados não pode ser maior que " + MAX_DADOS_HISTOGRAMA);
+        }
+        if (dados.porFaces() && dados.lados() > MotorRolagem.LIMITE_HISTOGRAMA) {
+            throw new IllegalArgumentException("Rerrolagens, explosões e sucessos aceitam no máximo "
+                    + MotorRolagem.LIMITE_HISTOGRAMA + " lados.");
         }
+        if (dados.quantidade() > MAX_DADOS && dados.lados() > MotorRolagem.LIMITE_HISTOGRAMA) {
+            throw new IllegalArgumentException("Rolagens com mais de " + MAX_DADOS
+                    + " dados aceitam no máximo " + MotorRolagem.LIMITE_HISTOGRAMA + " lados.");
+        }
+    }
+
+    private int aplicarOperacao(int valorAtual, int novoValor, char operador) {
+        return switch (operador) {
+            case '+' -> valorAtual + novoValor;
+            case '-' -> valorAtual - novoValor;
+            case '*' -> valorAtual * novoValor;
+            case '/' -> {
+                if (novoValor == 0) {
+                    throw new IllegalArgumentException("Não é possível dividir por zero.");
+                }
+                yield valorAtual / novoValor;
+            }
+            default -> novoValor;
+        };
     }
 }
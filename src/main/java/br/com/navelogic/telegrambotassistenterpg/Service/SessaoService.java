@@ -0,0 +1,79 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.SessaoChat;
+import br.com.navelogic.telegrambotassistenterpg.Util.CacheLRU;
+import io.micrometer.core.instrument.Gauge;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Sessões dos chats em memória, pelo id do chat.
+ *
+ * <p>As sessões ficam em um {@link CacheLRU} e saem depois de {@code sessao.ociosidade-min}
+ * minutos sem mensagens ou, acima de {@code sessao.maximo} sessões, a menos usada primeiro.
+ * Com no máximo {@code sessao.iniciativa.maximo} combatentes de até {@value #TAMANHO_NOME}
+ * caracteres, cada sessão ocupa poucos KB, então as duas propriedades limitam a memória total.
+ * Nada é gravado: reiniciar o bot encerra as sessões.</p>
+ */
+@Service
+public class SessaoService {
+
+    public static final int TAMANHO_NOME = 32;
+
+    private final CacheLRU<Long, SessaoChat> sessoes;
+    private final int maximoCombatentes;
+
+    @Autowired
+    public SessaoService(MetricasBot metricas,
+            @Value("${sessao.maximo:10000}") int maximo,
+            @Value("${sessao.ociosidade-min:240}") long ociosidadeMin,
+            @Value("${sessao.iniciativa.maximo:20}") int maximoCombatentes) {
+        this(maximo, Duration.ofMinutes(ociosidadeMin), System::nanoTime, maximoCombatentes);
+        Gauge.builder("sessoes.ativas", sessoes, CacheLRU::tamanho)
+                .description("Sessões de chat em memória").register(metricas.getRegistro());
+    }
+
+    public SessaoService(int maximo, Duration ociosidade, LongSupplier relogio, int maximoCombatentes) {
+        if (maximoCombatentes <= 0) {
+            throw new IllegalArgumentException("O máximo de combatentes deve ser maior que zero.");
+        }
+        this.sessoes = new CacheLRU<>(maximo, ociosidade, relogio);
+        this.maximoCombatentes = maximoCombatentes;
+    }
+
+    /**
+     * Obtém a sessão do chat, criando-a se não existir ou se já tiver expirado.
+     */
+    public SessaoChat sessao(long chatId) {
+        return sessoes.obterOuCriar(chatId, id -> new SessaoChat(id, maximoCombatentes));
+    }
+
+    /**
+     * Descarta a sessão do chat.
+     */
+    public void encerrar(long chatId) {
+        sessoes.remover(chatId);
+    }
+
+    public int getQuantidade() {
+        return sessoes.tamanho();
+    }
+
+    /**
+     * Valida o nome de um combatente.
+     *
+     * @return o nome sem espaços nas pontas
+     * @throws IllegalArgumentException se o nome for vazio ou longo demais
+     */
+    public static String normalizarCombatente(String nome) {
+        String texto = nome.trim();
+        if (texto.isEmpty() || texto.length() > TAMANHO_NOME) {
+            throw new IllegalArgumentException("O nome de um combatente deve ter de 1 a " + TAMANHO_NOME + " caracteres.");
+        }
+        return texto;
+    }
+}
@@ -1,33 +1,115 @@
 package br.com.navelogic.telegrambotassistenterpg.Service;
 
-import br.com.navelogic.telegrambotassistenterpg.Controller.RPGBot;
+import br.com.navelogic.telegrambotassistenterpg.Controller.FilaEnvio;
+import br.com.navelogic.telegrambotassistenterpg.Controller.ProcessadorAtualizacoes;
+import br.com.navelogic.telegrambotassistenterpg.Controller.RecuperacaoAtraso;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.longpolling.TelegramBotsLongPollingApplication;
+import org.telegram.telegrambots.meta.TelegramUrl;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+/**
+ * Inicia o recebimento de atualizações conforme {@code bot.modo}:
+ * <ul>
+ *   <li>{@code polling} (padrão): registra o bot no long polling, a partir do último
+ *   {@code update_id} recebido antes do reinício ({@link RecuperacaoAtraso});</li>
+ *   <li>{@code webhook}: as atualizações chegam pelo {@code WebhookController}. Se
+ *   {@code bot.webhook.url} estiver definida, o webhook é registrado no Telegram.</li>
+ * </ul>
+ * O servidor web do Spring Boot mantém a aplicação rodando nos dois modos.
+ */
 @Slf4j
 @Service
-public class TelegramBotAssistenteRpgInitializer implements CommandLineRunner {
+public class TelegramBotAssistenteRpgInitializer implements CommandLineRunner, DisposableBean {
+    private static final int LIMITE_GET_UPDATES = 100;
+    private static final int TIMEOUT_GET_UPDATES_S = 50;
+
     private final String botToken;
-    private final RPGBot rpgBot;
+    private final String modo;
+    private final String urlWebhook;
+    private final String segredoWebhook;
+    private final TelegramClient telegramClient;
+    private final TelegramUrl telegramUrl;
+    private final ProcessadorAtualizacoes processadorAtualizacoes;
+    private final RecuperacaoAtraso recuperacao;
+    private final FilaEnvio filaEnvio;
+    private TelegramBotsLongPollingApplication botsApplication;
 
     public TelegramBotAssistenteRpgInitializer(
             @Value("${telegram.bot.token}") String botToken,
-            RPGBot rpgBot) {
+            @Value("${bot.modo:polling}") String modo,
+            @Value("${bot.webhook.url:}") String urlWebhook,
+            @Value("${bot.webhook.segredo:}") String segredoWebhook,
+            TelegramClient telegramClient,
+            TelegramUrl telegramUrl,
+            ProcessadorAtualizacoes processadorAtualizacoes,
+            RecuperacaoAtraso recuperacao,
+            FilaEnvio filaEnvio) {
         this.botToken = botToken;
-        this.rpgBot = rpgBot;
+        this.modo = modo;
+        this.urlWebhook = urlWebhook;
+        this.segredoWebhook = segredoWebhook;
+        this.telegramClient = telegramClient;
+        this.telegramUrl = telegramUrl;
+        this.processadorAtualizacoes = processadorAtualizacoes;
+        this.recuperacao = recuperacao;
+        this.filaEnvio = filaEnvio;
     }
 
     @Override
     public void run(String... args) {
-        try (TelegramBotsLongPollingApplication botsApplication = new TelegramBotsLongPollingApplication()) {
-            botsApplication.registerBot(botToken, rpgBot);
-            log.info("RPGBot está rodando...");
-            Thread.currentThread().join();
+        try {
+            switch (modo) {
+                case "polling" -> iniciarPolling();
+                case "webhook" -> iniciarWebhook();
+                default -> throw new IllegalArgumentException("Modo do bot desconhecido: " + modo);
+            }
         } catch (Exception e) {
             log.error("Erro ao iniciar o bot.", e);
         }
     }
-}
\ No newline at end of file
+
+    private void iniciarPolling() throws Exception {
+        botsApplication = new TelegramBotsLongPollingApplication();
+        botsApplication.registerBot(botToken, () -> telegramUrl, ultimoRecebido -> GetUpdates.builder()
+                .limit(LIMITE_GET_UPDATES)
+                .timeout(TIMEOUT_GET_UPDATES_S)
+                .offset(recuperacao.proximoOffset(ultimoRecebido))
+                .build(), processadorAtualizacoes);
+        log.info("RPGBot está rodando (long polling)...");
+    }
+
+    private void iniciarWebhook() throws Exception {
+        if (urlWebhook.isBlank()) {
+            log.info("RPGBot está rodando (webhook, registro no Telegram feito externamente)...");
+            return;
+        }
+        telegramClient.execute(SetWebhook.builder().url(urlWebhook).secretToken(segredoWebhook).build());
+        log.info("RPGBot está rodando (webhook em {})...", urlWebhook);
+    }
+
+    /**
+     * Para o recebimento antes de encerrar o processador, para que nenhuma
+     * atualização nova chegue enquanto as filas são esvaziadas, e só então
+     * encerra a fila de envio com as últimas respostas.
+     */
+    @Override
+    public void destroy() {
+        log.info("Encerrando RPGBot...");
+        try {
+            if (botsApplication != null) {
+                botsApplication.close();
+            }
+        } catch (Exception e) {
+            log.error("Erro ao parar o long polling.", e);
+        }
+        processadorAtualizacoes.close();
+        filaEnvio.close();
+    }
+}
@@ -0,0 +1,64 @@
+package br.com.navelogic.telegrambotassistenterpg.Util;
+
+/**
+ * Balde de tokens (token bucket) para limitar a taxa de uma operação.
+ *
+ * <p>O balde começa cheio com {@code capacidade} tokens e recupera
+ * {@code tokensPorSegundo} tokens por segundo. O tempo é informado por quem
+ * chama, em nanossegundos de {@link System#nanoTime()}, o que facilita testes.</p>
+ */
+public class BaldeTokens {
+
+    private final double capacidade;
+    private final double tokensPorNano;
+    private double tokens;
+    private long ultimaRecarga;
+
+    public BaldeTokens(double capacidade, double tokensPorSegundo, long agora) {
+        if (capacidade < 1 || tokensPorSegundo <= 0) {
+            throw new IllegalArgumentException("Capacidade e taxa do balde devem ser positivas.");
+        }
+        this.capacidade = capacidade;
+        this.tokensPorNano = tokensPorSegundo / 1_000_000_000d;
+        this.tokens = capacidade;
+        this.ultimaRecarga = agora;
+    }
+
+    /**
+     * Calcula quanto falta para haver um token disponível, sem consumi-lo.
+     *
+     * @param agora instante atual em nanossegundos
+     * @return {@code 0} se já há token, senão a espera em nanossegundos
+     */
+    public synchronized long esperaNanos(long agora) {
+        recarregar(agora);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPorNano);
+    }
+
+    /**
+     * Consome um token. Deve ser chamado depois de {@link #esperaNanos} devolver {@code 0}.
+     *
+     * @param agora instante atual em nanossegundos
+     */
+    public synchronized void consumir(long agora) {
+        recarregar(agora);
+        tokens -= 1;
+    }
+
+    /**
+     * @param agora instante atual em nanossegundos
+     * @return {@code true} se o balde está cheio, ou seja, sem uso recente
+     */
+    public synchronized boolean cheio(long agora) {
+        recarregar(agora);
+        return tokens >= capacidade;
+    }
+
+    private void recarregar(long agora) {
+        long decorrido = agora - ultimaRecarga;
+        if (decorrido > 0) {
+            tokens = Math.min(capacidade, tokens + decorrido * tokensPorNano);
+            ultimaRecarga = agora;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package br.com.navelogic.telegrambotassistenterpg.Util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache limitado com política LRU (menos usado recentemente) e contadores
+ * de acertos e falhas.
+ *
+ * <p>O valor é calculado fora do bloqueio, então duas threads podem calcular
+ * a mesma chave ao mesmo tempo; a última a terminar vence. Isso é aceitável
+ * para valores imutáveis e baratos de recalcular, como expressões analisadas.</p>
+ *
+ * <p>Com um tempo de ociosidade, entradas não consultadas por mais que esse tempo também
+ * saem. Como o mapa fica em ordem de acesso, as mais ociosas estão sempre no início e a
+ * limpeza, feita a cada consulta, para na primeira entrada ainda válida.</p>
+ *
+ * @param <K> tipo da chave
+ * @param <V> tipo do valor
+ */
+public class CacheLRU<K, V> {
+
+    private static final class Entrada<V> {
+        private final V valor;
+        private long ultimoAcesso;
+
+        private Entrada(V valor, long ultimoAcesso) {
+            this.valor = valor;
+            this.ultimoAcesso = ultimoAcesso;
+        }
+    }
+
+    private final int capacidade;
+    private final long ociosidadeNanos;
+    private final LongSupplier relogio;
+    private final Map<K, Entrada<V>> entradas;
+    private final AtomicLong acertos = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+
+    public CacheLRU(int capacidade) {
+        this(capacidade, Duration.ZERO, System::nanoTime);
+    }
+
+    /**
+     * @param capacidade quantidade máxima de entradas
+     * @param ociosidade tempo sem consultas depois do qual a entrada sai; zero nunca expira
+     * @param relogio    fonte de tempo em nanossegundos, como {@link System#nanoTime()}
+     */
+    public CacheLRU(int capacidade, Duration ociosidade, LongSupplier relogio) {
+        if (capacidade <= 0) {
+            throw new IllegalArgumentException("A capacidade do cache deve ser maior que zero.");
+        }
+        if (ociosidade.isNegative()) {
+            throw new IllegalArgumentException("O tempo de ociosidade do cache não pode ser negativo.");
+        }
+        this.capacidade = capacidade;
+        this.ociosidadeNanos = ociosidade.toNanos();
+        this.relogio = relogio;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> maisAntiga) {
+                return size() > CacheLRU.this.capacidade;
+            }
+        };
+    }
+
+    /**
+     * Obtém o valor da chave, calculando-o com {@code carregar} se ainda não estiver no cache.
+     *
+     * @param chave    chave procurada
+     * @param carregar função que calcula o valor em caso de falha
+     * @return o valor em cache ou o recém-calculado
+     */
+    public V obter(K chave, Function<? super K, ? extends V> carregar) {
+        Entrada<V> entrada;
+        synchronized (entradas) {
+            long agora = removerOciosas();
+            entrada = entradas.get(chave);
+            if (entrada != null) {
+                entrada.ultimoAcesso = agora;
+            }
+        }
+        if (entrada != null) {
+            acertos.incrementAndGet();
+            return entrada.valor;
+        }
+        falhas.incrementAndGet();
+        V valor = carregar.apply(chave);
+        colocar(chave, valor);
+        return valor;
+    }
+
+    /**
+     * Obtém o valor da chave sem calcular nem guardar nada se ela não estiver no cache, para
+     * consultas que não devem tirar do cache as entradas usadas de verdade. Não conta acertos
+     * nem falhas.
+     *
+     * @return o valor em cache, ou {@code null}
+     */
+    public V buscar(K chave) {
+        synchronized (entradas) {
+            long agora = removerOciosas();
+            Entrada<V> entrada = entradas.get(chave);
+            if (entrada == null) {
+                return null;
+            }
+            entrada.ultimoAcesso = agora;
+            return entrada.valor;
+        }
+    }
+
+    /**
+     * Obtém o valor da chave, criando-o com {@code criar} dentro do bloqueio se ainda não existir.
+     * Ao contrário de {@link #obter}, duas threads nunca criam a mesma chave, então serve para
+     * valores mutáveis, desde que sejam baratos de criar.
+     *
+     * @param chave chave procurada
+     * @param criar função que cria o valor em caso de falha
+     * @return o valor em cache ou o recém-criado
+     */
+    public V obterOuCriar(K chave, Function<? super K, ? extends V> criar) {
+        synchronized (entradas) {
+            long agora = removerOciosas();
+            Entrada<V> entrada = entradas.get(chave);
+            if (entrada != null) {
+                entrada.ultimoAcesso = agora;
+                acertos.incrementAndGet();
+                return entrada.valor;
+            }
+            falhas.incrementAndGet();
+            V valor = criar.apply(chave);
+            entradas.put(chave, new Entrada<>(valor, agora));
+            return valor;
+        }
+    }
+
+    /**
+     * Guarda o valor da chave, substituindo o anterior.
+     */
+    public void colocar(K chave, V valor) {
+        synchronized (entradas) {
+            entradas.put(chave, new Entrada<>(valor, removerOciosas()));
+        }
+    }
+
+    public void remover(K chave) {
+        synchronized (entradas) {
+            entradas.remove(chave);
+        }
+    }
+
+    public int tamanho() {
+        synchronized (entradas) {
+            removerOciosas();
+            return entradas.size();
+        }
+    }
+
+    public int getCapacidade() {
+        return capacidade;
+    }
+
+    public long getAcertos() {
+        return acertos.get();
+    }
+
+    public long getFalhas() {
+        return falhas.get();
+    }
+
+    /**
+     * Tira do início do mapa as entradas ociosas. Deve ser chamado com o bloqueio.
+     *
+     * @return o instante atual do relógio, ou zero se o cache não expira
+     */
+    private long removerOciosas() {
+        if (ociosidadeNanos == 0) {
+            return 0;
+        }
+        long agora = relogio.getAsLong();
+        Iterator<Entrada<V>> iterador = entradas.values().iterator();
+        while (iterador.hasNext() && agora - iterador.next().ultimoAcesso > ociosidadeNanos) {
+            iterador.remove();
+        }
+        return agora;
+    }
+}
@@ -0,0 +1,40 @@
+package br.com.navelogic.telegrambotassistenterpg.Util;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Fonte de números aleatórios usada pelas rolagens.
+ *
+ * <p>Nas fontes {@linkplain #reproduzivel() reproduzíveis}, a fonte sorteia a semente de cada
+ * rolagem e os dados vêm de um {@link GeradorSplitMix} iniciado com ela, para que a auditoria
+ * possa repeti-la. Nas outras, os dados saem direto do gerador da fonte.</p>
+ *
+ * <p>A implementação é escolhida em {@code application.properties} pela
+ * propriedade {@code dados.aleatorio.tipo}:</p>
+ * <ul>
+ *   <li>{@code thread} (padrão): {@link FonteAleatoriaPorThread}, sem disputa entre threads;</li>
+ *   <li>{@code seguro}: {@link FonteAleatoriaSegura}, todos os dados de {@link java.security.SecureRandom},
+ *   sem reprodução pela auditoria;</li>
+ *   <li>{@code deterministico}: {@link FonteAleatoriaDeterministica}, com semente fixa para testes e reproduções.</li>
+ * </ul>
+ */
+public interface FonteAleatoria {
+
+    /**
+     * Obtém o gerador a ser usado pela thread atual. O gerador devolvido não
+     * deve ser guardado nem compartilhado com outras threads.
+     *
+     * @return gerador de números aleatórios
+     */
+    RandomGenerator gerador();
+
+    /**
+     * Indica se os dados podem sair de um {@link GeradorSplitMix} iniciado com uma semente desta
+     * fonte, para que a auditoria repita a rolagem.
+     *
+     * @return {@code true} se as rolagens podem ser reproduzidas pela semente
+     */
+    default boolean reproduzivel() {
+        return true;
+    }
+}
@@ -0,0 +1,25 @@
+package br.com.navelogic.telegrambotassistenterpg.Util;
+
+import java.util.Random;
+import java.util.random.RandomGenerator;
+
+/**
+ * Fonte com semente fixa, para testes e reprodução de rolagens.
+ *
+ * <p>Todas as threads compartilham um único {@link Random}, então a sequência
+ * só é reproduzível quando as rolagens acontecem na mesma ordem. Não é indicada
+ * para produção.</p>
+ */
+public class FonteAleatoriaDeterministica implements FonteAleatoria {
+
+    private final Random random;
+
+    public FonteAleatoriaDeterministica(long semente) {
+        this.random = new Random(semente);
+    }
+
+    @Override
+    public RandomGenerator gerador() {
+        return random;
+    }
+}
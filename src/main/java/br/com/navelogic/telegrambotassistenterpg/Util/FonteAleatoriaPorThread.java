@@ -0,0 +1,16 @@
+package br.com.navelogic.telegrambotassistenterpg.Util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Fonte padrão: cada thread usa o seu próprio {@link ThreadLocalRandom}, então
+ * rolagens em threads diferentes nunca disputam a mesma semente.
+ */
+public class FonteAleatoriaPorThread implements FonteAleatoria {
+
+    @Override
+    public RandomGenerator gerador() {
+        return ThreadLocalRandom.current();
+    }
+}
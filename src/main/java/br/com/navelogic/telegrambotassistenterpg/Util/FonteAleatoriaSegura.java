@@ -0,0 +1,27 @@
+package br.com.navelogic.telegrambotassistenterpg.Util;
+
+import java.security.SecureRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Fonte baseada em {@link SecureRandom}. Cada thread mantém a sua própria instância para não
+ * serializar as rolagens em um único gerador.
+ *
+ * <p>Todos os dados saem do {@link SecureRandom}. Por isso a fonte não é
+ * {@linkplain #reproduzivel() reproduzível}: a auditoria guarda o total e os dados mantidos, mas
+ * não consegue repetir a rolagem a partir de uma semente.</p>
+ */
+public class FonteAleatoriaSegura implements FonteAleatoria {
+
+    private final ThreadLocal<SecureRandom> geradores = ThreadLocal.withInitial(SecureRandom::new);
+
+    @Override
+    public RandomGenerator gerador() {
+        return geradores.get();
+    }
+
+    @Override
+    public boolean reproduzivel() {
+        return false;
+    }
+}
@@ -0,0 +1,70 @@
+package br.com.navelogic.telegrambotassistenterpg.Util;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Gerador SplitMix64 reiniciado com uma semente a cada rolagem.
+ *
+ * <p>Todos os dados de uma rolagem saem deste gerador, então a semente guardada na auditoria
+ * basta para repetir a rolagem. {@link #nextInt(int)} e {@link #nextDouble()} são implementados
+ * aqui, e não herdados do JDK, para que a mesma semente produza os mesmos dados em qualquer
+ * versão da JVM.</p>
+ *
+ * <p>Cada thread reutiliza o seu gerador (veja {@link #daThread(long)}), sem alocar nada
+ * por rolagem. O gerador devolvido não deve ser guardado nem compartilhado.</p>
+ */
+public final class GeradorSplitMix implements RandomGenerator {
+
+    private static final ThreadLocal<GeradorSplitMix> POR_THREAD = ThreadLocal.withInitial(GeradorSplitMix::new);
+
+    private long estado;
+
+    /**
+     * Obtém o gerador da thread atual, reiniciado com a semente.
+     */
+    public static GeradorSplitMix daThread(long semente) {
+        GeradorSplitMix gerador = POR_THREAD.get();
+        gerador.estado = semente;
+        return gerador;
+    }
+
+    public GeradorSplitMix(long semente) {
+        this.estado = semente;
+    }
+
+    private GeradorSplitMix() {
+    }
+
+    @Override
+    public long nextLong() {
+        long z = (estado += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Sorteia em {@code [0, limite)} sem viés, pelo método de multiplicação de Lemire.
+     */
+    @Override
+    public int nextInt(int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("O limite deve ser maior que zero.");
+        }
+        long m = (nextLong() >>> 32) * limite;
+        long baixo = m & 0xFFFFFFFFL;
+        if (baixo < limite) {
+            long rejeitar = (0x1_0000_0000L - limite) % limite;
+            while (baixo < rejeitar) {
+                m = (nextLong() >>> 32) * limite;
+                baixo = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,130 @@
+package br.com.navelogic.telegrambotassistenterpg.Util;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limite de requisições por chave em uma janela deslizante, sem travas.
+ *
+ * <p>Cada chave guarda, em um único {@link AtomicLong} atualizado por CAS, o índice da janela
+ * fixa atual, a contagem da janela atual, a da anterior e se a chave já foi avisada do bloqueio.
+ * A taxa é estimada como {@code anterior × (1 − fração decorrida da janela atual) + atual},
+ * a aproximação usual de janela deslizante com dois contadores. Requisições recusadas não
+ * entram na contagem, então quem para de insistir volta a ser atendido.</p>
+ *
+ * <p>O mapa é um {@link ConcurrentHashMap}, já particionado internamente. Chaves sem uso por
+ * duas janelas não afetam mais a estimativa e são removidas periodicamente por quem chamar
+ * {@link #verificar}, sem thread extra, então a memória acompanha o número de chaves ativas.
+ * Uma requisição que chegue no exato momento da remoção da sua chave ociosa pode não ser contada.</p>
+ *
+ * <p>O tempo é informado por quem chama, em nanossegundos de {@link System#nanoTime()}.</p>
+ */
+public class LimitadorTaxa {
+
+    /**
+     * Resultado de {@link #verificar}.
+     */
+    public enum Decisao {
+        /** Dentro do limite. */
+        PERMITIDO,
+        /** Acima do limite pela primeira vez desde a última requisição permitida: avise uma vez. */
+        AVISAR,
+        /** Acima do limite e já avisado: ignore em silêncio. */
+        BLOQUEADO
+    }
+
+    private static final int MAXIMO_CONTAGEM = 0x7FFF;
+    private static final long BIT_AVISADO = 1L << 31;
+
+    private final int limite;
+    private final long janelaNanos;
+    private final long origem;
+    private final Map<Long, AtomicLong> estados = new ConcurrentHashMap<>();
+    private final AtomicLong proximaLimpeza;
+
+    public LimitadorTaxa(int limite, Duration janela, long agora) {
+        if (limite <= 0 || limite >= MAXIMO_CONTAGEM || janela.isNegative() || janela.isZero()) {
+            throw new IllegalArgumentException("Limite deve estar entre 1 e " + (MAXIMO_CONTAGEM - 1)
+                    + " e a janela deve ser positiva.");
+        }
+        this.limite = limite;
+        this.janelaNanos = janela.toNanos();
+        this.origem = agora;
+        this.proximaLimpeza = new AtomicLong(agora + janelaNanos);
+    }
+
+    /**
+     * Conta uma requisição da chave, se ela estiver dentro do limite.
+     *
+     * @param chave identificador, por exemplo o id do usuário
+     * @param agora instante atual em nanossegundos
+     * @return a decisão para esta requisição
+     */
+    public Decisao verificar(long chave, long agora) {
+        limparSeNecessario(agora);
+        long decorrido = agora - origem;
+        int indiceAgora = (int) (decorrido / janelaNanos);
+        double fracao = (double) (decorrido % janelaNanos) / janelaNanos;
+
+        AtomicLong estado = estados.computeIfAbsent(chave, c -> new AtomicLong(empacotar(indiceAgora, false, 0, 0)));
+        while (true) {
+            long anteriorEstado = estado.get();
+            int indice = indice(anteriorEstado);
+            int anterior = anterior(anteriorEstado);
+            int atual = atual(anteriorEstado);
+            boolean avisado = (anteriorEstado & BIT_AVISADO) != 0;
+            if (indice != indiceAgora) {
+                anterior = indice == indiceAgora - 1 ? atual : 0;
+                atual = 0;
+                indice = indiceAgora;
+            }
+
+            Decisao decisao;
+            long novoEstado;
+            if (anterior * (1 - fracao) + atual < limite) {
+                decisao = Decisao.PERMITIDO;
+                novoEstado = empacotar(indice, false, anterior, Math.min(atual + 1, MAXIMO_CONTAGEM));
+            } else {
+                decisao = avisado ? Decisao.BLOQUEADO : Decisao.AVISAR;
+                novoEstado = empacotar(indice, true, anterior, atual);
+            }
+            if (novoEstado == anteriorEstado || estado.compareAndSet(anteriorEstado, novoEstado)) {
+                return decisao;
+            }
+        }
+    }
+
+    /**
+     * @return quantidade de chaves acompanhadas no momento
+     */
+    public int tamanho() {
+        return estados.size();
+    }
+
+    private void limparSeNecessario(long agora) {
+        long proxima = proximaLimpeza.get();
+        if (agora - proxima < 0 || !proximaLimpeza.compareAndSet(proxima, agora + janelaNanos)) {
+            return;
+        }
+        int indiceAgora = (int) ((agora - origem) / janelaNanos);
+        estados.values().removeIf(estado -> indice(estado.get()) < indiceAgora - 1);
+    }
+
+    private static long empacotar(int indice, boolean avisado, int anterior, int atual) {
+        return ((long) indice << 32) | (avisado ? BIT_AVISADO : 0) | ((long) anterior << 16) | atual;
+    }
+
+    private static int indice(long estado) {
+        return (int) (estado >>> 32);
+    }
+
+    private static int anterior(long estado) {
+        return (int) (estado >>> 16) & MAXIMO_CONTAGEM;
+    }
+
+    private static int atual(long estado) {
+        return (int) estado & 0xFFFF;
+    }
+}
@@ -0,0 +1,50 @@
+package br.com.navelogic.telegrambotassistenterpg.Util;
+
+/**
+ * Escape de texto para mensagens do Telegram enviadas com {@code parseMode("HTML")}.
+ *
+ * <p>O Telegram só exige o escape de {@code <}, {@code >} e {@code &} fora das tags.</p>
+ */
+public final class TextoHtml {
+
+    private TextoHtml() {
+    }
+
+    /**
+     * Acrescenta o texto escapado ao destino, sem criar strings intermediárias.
+     *
+     * @return o próprio destino
+     */
+    public static StringBuilder escapar(StringBuilder destino, CharSequence texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '<' -> destino.append("&lt;");
+                case '>' -> destino.append("&gt;");
+                case '&' -> destino.append("&amp;");
+                default -> destino.append(c);
+            }
+        }
+        return destino;
+    }
+
+    public static String escapar(CharSequence texto) {
+        return escapar(new StringBuilder(tamanhoEscapado(texto)), texto).toString();
+    }
+
+    /**
+     * @return o tamanho que o texto terá depois de escapado
+     */
+    public static int tamanhoEscapado(CharSequence texto) {
+        int tamanho = texto.length();
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '<' || c == '>') {
+                tamanho += 3;
+            } else if (c == '&') {
+                tamanho += 4;
+            }
+        }
+        return tamanho;
+    }
+}
@@ -0,0 +1,52 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import org.telegram.telegrambots.meta.api.objects.MessageEntity;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.chat.Chat;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+
+import java.util.List;
+
+/**
+ * Monta {@link Update}s sintéticos para testes e benchmarks.
+ */
+public final class Atualizacoes {
+
+	private Atualizacoes() {
+	}
+
+	/**
+	 * Cria uma mensagem de texto; se o texto começar com {@code /}, a primeira
+	 * palavra é marcada como {@code bot_command}, como o Telegram faz.
+	 */
+	public static Update mensagem(int updateId, long chatId, long userId, String texto) {
+		Message message = new Message();
+		message.setMessageId(updateId);
+		message.setDate((int) (System.currentTimeMillis() / 1000));
+		message.setChat(new Chat(chatId, chatId < 0 ? "group" : "private"));
+		message.setFrom(new User(userId, "Jogador" + userId, false));
+		message.setText(texto);
+		if (texto.startsWith("/")) {
+			int fim = texto.indexOf(' ');
+			message.setEntities(List.of(new MessageEntity("bot_command", 0, fim < 0 ? texto.length() : fim)));
+		}
+
+		Update update = new Update();
+		update.setUpdateId(updateId);
+		update.setMessage(message);
+		return update;
+	}
+
+	/**
+	 * Cria uma consulta inline, como a enviada a cada tecla de {@code @NomeDoBot texto}.
+	 */
+	public static Update consultaInline(int updateId, long userId, String texto) {
+		Update update = new Update();
+		update.setUpdateId(updateId);
+		update.setInlineQuery(new InlineQuery(Integer.toString(updateId), new User(userId, "Jogador" + userId, false),
+				texto, ""));
+		return update;
+	}
+}
@@ -0,0 +1,51 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * {@link TelegramClient} que não acessa a rede: aceita qualquer chamada,
+ * devolve {@code null} (ou um futuro já concluído) e apenas conta os envios.
+ * As respostas assíncronas podem ser trocadas para simular erros e atrasos.
+ */
+public final class ClienteTelegramFalso {
+
+	private final AtomicLong envios = new AtomicLong();
+	private final TelegramClient cliente;
+
+	public ClienteTelegramFalso() {
+		this(metodo -> CompletableFuture.completedFuture(null));
+	}
+
+	/**
+	 * @param respostaAsync resposta de cada chamada {@code executeAsync}, a partir do método da API recebido
+	 */
+	public ClienteTelegramFalso(Function<Object, CompletableFuture<?>> respostaAsync) {
+		this.cliente = (TelegramClient) Proxy.newProxyInstance(
+				TelegramClient.class.getClassLoader(),
+				new Class<?>[]{TelegramClient.class},
+				(proxy, metodo, argumentos) -> {
+					if (metodo.getDeclaringClass() == Object.class) {
+						return switch (metodo.getName()) {
+							case "hashCode" -> System.identityHashCode(proxy);
+							case "equals" -> proxy == argumentos[0];
+							default -> "ClienteTelegramFalso";
+						};
+					}
+					envios.incrementAndGet();
+					return metodo.getName().endsWith("Async") ? respostaAsync.apply(argumentos[0]) : null;
+				});
+	}
+
+	public TelegramClient cliente() {
+		return cliente;
+	}
+
+	public long getEnvios() {
+		return envios.get();
+	}
+}
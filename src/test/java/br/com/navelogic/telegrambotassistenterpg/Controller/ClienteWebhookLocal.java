@@ -0,0 +1,56 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Cliente local que imita o Telegram postando atualizações sintéticas no webhook do bot.
+ *
+ * <p>Também pode ser executado direto para testar uma instância rodando com
+ * {@code bot.modo=webhook}, sem acesso ao Telegram:</p>
+ * <pre>
+ * java ... ClienteWebhookLocal http://localhost:8080/telegram/webhook "/r 1d20+5" 10 [segredo]
+ * </pre>
+ */
+public final class ClienteWebhookLocal {
+
+	private final HttpClient http = HttpClient.newHttpClient();
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final URI url;
+	private final String segredo;
+
+	public ClienteWebhookLocal(String url, String segredo) {
+		this.url = URI.create(url);
+		this.segredo = segredo;
+	}
+
+	/**
+	 * Posta a atualização no webhook e devolve o status HTTP da resposta.
+	 */
+	public int enviar(Update update) throws IOException, InterruptedException {
+		HttpRequest.Builder requisicao = HttpRequest.newBuilder(url)
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(update)));
+		if (segredo != null && !segredo.isEmpty()) {
+			requisicao.header("X-Telegram-Bot-Api-Secret-Token", segredo);
+		}
+		return http.send(requisicao.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+	public static void main(String[] args) throws Exception {
+		String url = args.length > 0 ? args[0] : "http://localhost:8080/telegram/webhook";
+		String texto = args.length > 1 ? args[1] : "/r 1d20";
+		int quantidade = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		ClienteWebhookLocal cliente = new ClienteWebhookLocal(url, args.length > 3 ? args[3] : null);
+		for (int i = 1; i <= quantidade; i++) {
+			int status = cliente.enviar(Atualizacoes.mensagem(i, i, i, texto));
+			System.out.printf("Atualização %d: HTTP %d%n", i, status);
+		}
+	}
+}
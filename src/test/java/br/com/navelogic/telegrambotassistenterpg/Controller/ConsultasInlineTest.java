@@ -0,0 +1,94 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import br.com.navelogic.telegrambotassistenterpg.Service.MetricasBot;
+import br.com.navelogic.telegrambotassistenterpg.Service.RolarDadosService;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaDeterministica;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResultArticle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsultasInlineTest {
+
+	private final List<AnswerInlineQuery> respostas = new CopyOnWriteArrayList<>();
+	private final MetricasBot metricas = new MetricasBot(new SimpleMeterRegistry());
+	private final RolarDadosService rolarDadosService = new RolarDadosService(new FonteAleatoriaDeterministica(3),
+			metricas, 16, 1_000_000, 3_500);
+
+	@Test
+	void respondeSoAUltimaConsultaDoUsuarioSemCacheDoTelegram() {
+		List<Runnable> esperando = new ArrayList<>();
+		try (ConsultasInline consultas = consultas(esperando::add)) {
+			consultas.receber(Atualizacoes.consultaInline(1, 7, "1").getInlineQuery());
+			consultas.receber(Atualizacoes.consultaInline(2, 7, "1d2").getInlineQuery());
+			consultas.receber(Atualizacoes.consultaInline(3, 7, "1d20+").getInlineQuery());
+			consultas.receber(Atualizacoes.consultaInline(4, 8, "2d1").getInlineQuery());
+			assertTrue(respostas.isEmpty());
+			esperando.forEach(Runnable::run);
+
+			assertEquals(2, respostas.size());
+			assertEquals(2, consultas.getRespondidas());
+			assertEquals(2, consultas.getSubstituidas());
+			AnswerInlineQuery resposta = resposta("3");
+			assertEquals(0, resposta.getCacheTime());
+			assertTrue(resposta.getIsPersonal());
+			InlineQueryResultArticle artigo = (InlineQueryResultArticle) resposta.getResults().get(0);
+			assertTrue(artigo.getTitle().startsWith("🎲 1d20 = "), artigo.getTitle());
+
+			artigo = (InlineQueryResultArticle) resposta("4").getResults().get(0);
+			assertEquals("🎲 2d1 = 2", artigo.getTitle());
+			assertEquals("1 + 1", artigo.getDescription());
+		}
+	}
+
+	@Test
+	void mostraOErroDeExpressoesInvalidasENadaParaConsultasVazias() {
+		try (ConsultasInline consultas = consultas(Runnable::run)) {
+			consultas.receber(Atualizacoes.consultaInline(1, 7, "2d").getInlineQuery());
+			consultas.receber(Atualizacoes.consultaInline(2, 8, " ").getInlineQuery());
+			assertEquals(2, respostas.size());
+
+			InlineQueryResultArticle artigo = (InlineQueryResultArticle) resposta("1").getResults().get(0);
+			assertEquals("Expressão inválida", artigo.getTitle());
+			assertTrue(resposta("2").getResults().isEmpty());
+		}
+	}
+
+	@Test
+	void naoGuardaNoCacheAsExpressoesDigitadas() {
+		rolarDadosService.rolarExpressao("1d20+5");
+		try (ConsultasInline consultas = consultas(Runnable::run)) {
+			for (String texto : List.of("1", "1d", "1d2", "1d20", "1d20+", "1d20+5")) {
+				consultas.receber(Atualizacoes.consultaInline(respostas.size(), 7, texto).getInlineQuery());
+			}
+		}
+
+		assertEquals(6, respostas.size());
+		assertEquals(1, rolarDadosService.getTamanhoCache());
+	}
+
+	/**
+	 * @param aposEspera executa as respostas quando o teste quiser, sem depender do relógio
+	 */
+	private ConsultasInline consultas(Executor aposEspera) {
+		ClienteTelegramFalso falso = new ClienteTelegramFalso(metodo -> {
+			respostas.add((AnswerInlineQuery) metodo);
+			return CompletableFuture.completedFuture(true);
+		});
+		return new ConsultasInline(falso.cliente(), rolarDadosService, metricas, Executors.newVirtualThreadPerTaskExecutor(),
+				aposEspera);
+	}
+
+	private AnswerInlineQuery resposta(String id) {
+		return respostas.stream().filter(r -> r.getInlineQueryId().equals(id)).findFirst().orElseThrow();
+	}
+}
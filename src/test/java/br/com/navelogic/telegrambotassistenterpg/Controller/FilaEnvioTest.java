@@ -0,0 +1,98 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import br.com.navelogic.telegrambotassistenterpg.Service.MetricasBot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilaEnvioTest {
+
+	@Test
+	void reenviaDepoisDoRetryAfterDeUmaResposta429() throws Exception {
+		AtomicInteger chamadas = new AtomicInteger();
+		ClienteTelegramFalso falso = new ClienteTelegramFalso(metodo -> chamadas.getAndIncrement() == 0
+				? CompletableFuture.failedFuture(new TelegramApiRequestException("Too Many Requests",
+						new ApiResponse<>(false, 429, "Too Many Requests", new ResponseParameters(null, 1), null)))
+				: CompletableFuture.completedFuture(null));
+		FilaEnvio fila = new FilaEnvio(falso.cliente(), 30, 30, 30, 20, 3, metricas());
+
+		long inicio = System.nanoTime();
+		fila.enviar(1L, mensagem("olá"));
+		fila.close();
+
+		assertEquals(1, fila.getRespostas429());
+		assertEquals(1, fila.getEnviadas());
+		assertEquals(0, fila.getTamanhoFila());
+		assertTrue(System.nanoTime() - inicio >= 1_000_000_000L);
+	}
+
+	@Test
+	void desisteNaHoraDeErros4xxERepeteOs5xx() throws Exception {
+		AtomicInteger chamadas = new AtomicInteger();
+		ClienteTelegramFalso falso = new ClienteTelegramFalso(metodo -> switch (chamadas.getAndIncrement()) {
+			case 0 -> CompletableFuture.failedFuture(new TelegramApiRequestException("Forbidden",
+					new ApiResponse<>(false, 403, "Forbidden: bot was blocked by the user", null, null)));
+			case 1 -> CompletableFuture.failedFuture(new TelegramApiRequestException("Bad Gateway",
+					new ApiResponse<>(false, 502, "Bad Gateway", null, null)));
+			default -> CompletableFuture.completedFuture(null);
+		});
+		FilaEnvio fila = new FilaEnvio(falso.cliente(), 30, 30, 30, 20, 3, metricas());
+
+		fila.enviar(1L, mensagem("bloqueado"));
+		fila.enviar(1L, mensagem("depois"));
+		fila.close();
+
+		assertEquals(3, chamadas.get());
+		assertEquals(1, fila.getFalhas());
+		assertEquals(1, fila.getEnviadas());
+		assertEquals(0, fila.getTamanhoFila());
+	}
+
+	@Test
+	void juntaMensagensQuandoAFilaDoChatEnche() throws Exception {
+		List<CompletableFuture<Object>> emAndamento = new CopyOnWriteArrayList<>();
+		AtomicBoolean liberado = new AtomicBoolean();
+		ClienteTelegramFalso falso = new ClienteTelegramFalso(metodo -> {
+			if (liberado.get()) {
+				return CompletableFuture.completedFuture(null);
+			}
+			CompletableFuture<Object> futuro = new CompletableFuture<>();
+			emAndamento.add(futuro);
+			return futuro;
+		});
+		FilaEnvio fila = new FilaEnvio(falso.cliente(), 30, 30, 30, 2, 3, metricas());
+
+		fila.enviar(1L, mensagem("primeira"));
+		while (emAndamento.isEmpty()) {
+			Thread.sleep(5);
+		}
+		fila.enviar(1L, mensagem("segunda"));
+		fila.enviar(1L, mensagem("terceira"));
+
+		assertEquals(1, fila.getJuntadas());
+		assertEquals(2, fila.getTamanhoFila());
+		liberado.set(true);
+		emAndamento.forEach(futuro -> futuro.complete(null));
+		fila.close();
+		assertEquals(2, fila.getEnviadas());
+	}
+
+	private static SendMessage mensagem(String texto) {
+		return SendMessage.builder().chatId("1").text(texto).parseMode("HTML").build();
+	}
+
+	private static MetricasBot metricas() {
+		return new MetricasBot(new SimpleMeterRegistry());
+	}
+}
@@ -0,0 +1,81 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessadorAtualizacoesTest {
+
+	@Test
+	void mantemAOrdemDasMensagensDeCadaChat() {
+		Map<Long, List<Integer>> recebidas = new ConcurrentHashMap<>();
+		ProcessadorAtualizacoes processador = new ProcessadorAtualizacoes(update -> {
+			recebidas.computeIfAbsent(update.getMessage().getChatId(), chat -> new CopyOnWriteArrayList<>())
+					.add(update.getUpdateId());
+		}, 4, 10_000, 1_000);
+
+		List<Update> lote = new ArrayList<>();
+		int id = 0;
+		for (int mensagem = 0; mensagem < 50; mensagem++) {
+			for (long chat = 1; chat <= 100; chat++) {
+				lote.add(Atualizacoes.mensagem(id++, chat, chat, "/r 1d20"));
+			}
+		}
+		processador.consume(lote);
+		processador.close();
+
+		assertEquals(100, recebidas.size());
+		recebidas.values().forEach(ids -> {
+			assertEquals(50, ids.size());
+			for (int i = 1; i < ids.size(); i++) {
+				assertTrue(ids.get(i - 1) < ids.get(i));
+			}
+		});
+	}
+
+	@Test
+	void descartaAtualizacoesDepoisDeEncerrado() {
+		ProcessadorAtualizacoes processador = new ProcessadorAtualizacoes(update -> {
+		}, 1, 1, 0);
+		processador.close();
+
+		assertFalse(processador.enfileirar(Atualizacoes.mensagem(1, 1L, 1L, "/start")));
+	}
+
+	@Test
+	void encerraNoPrazoComUmaFaixaCheiaAtrasDeUmaTarefaLenta() throws Exception {
+		List<Integer> processadas = new CopyOnWriteArrayList<>();
+		CountDownLatch iniciada = new CountDownLatch(1);
+		CountDownLatch interrompida = new CountDownLatch(1);
+		ProcessadorAtualizacoes processador = new ProcessadorAtualizacoes(update -> {
+			processadas.add(update.getUpdateId());
+			iniciada.countDown();
+			try {
+				new CountDownLatch(1).await();
+			} catch (InterruptedException e) {
+				// Como um driver que engole a interrupção: a faixa precisa parar mesmo assim.
+				interrompida.countDown();
+			}
+		}, 1, 1, 0);
+		processador.enfileirar(Atualizacoes.mensagem(1, 1L, 1L, "/macro"));
+		assertTrue(iniciada.await(5, TimeUnit.SECONDS));
+		assertTrue(processador.enfileirar(Atualizacoes.mensagem(2, 1L, 1L, "/r 1d20")));
+
+		long inicio = System.nanoTime();
+		processador.encerrar(Duration.ofMillis(200));
+		assertTrue(System.nanoTime() - inicio < 2_000_000_000L);
+		assertTrue(interrompida.await(5, TimeUnit.SECONDS));
+		Thread.sleep(100);
+		assertEquals(List.of(1), processadas);
+	}
+}
@@ -0,0 +1,99 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import br.com.navelogic.telegrambotassistenterpg.Repository.HistoricoRolagemRepository;
+import br.com.navelogic.telegrambotassistenterpg.Repository.MacroRolagemRepository;
+import br.com.navelogic.telegrambotassistenterpg.Service.AuditoriaRolagens;
+import br.com.navelogic.telegrambotassistenterpg.Service.HistoricoRolagemService;
+import br.com.navelogic.telegrambotassistenterpg.Service.MacroService;
+import br.com.navelogic.telegrambotassistenterpg.Service.MetricasBot;
+import br.com.navelogic.telegrambotassistenterpg.Service.ProbabilidadeService;
+import br.com.navelogic.telegrambotassistenterpg.Service.RolarDadosService;
+import br.com.navelogic.telegrambotassistenterpg.Service.SessaoService;
+import br.com.navelogic.telegrambotassistenterpg.Service.StartService;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaDeterministica;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RPGBotTest {
+
+	private static final long CHAT = -5;
+
+	@TempDir
+	Path diretorio;
+
+	private final List<String> respostas = new CopyOnWriteArrayList<>();
+	private final AtomicInteger consultasMacros = new AtomicInteger();
+	private FilaEnvio filaEnvio;
+	private ConsultasInline consultasInline;
+	private HistoricoRolagemService historico;
+	private AuditoriaRolagens auditoria;
+
+	@AfterEach
+	void encerrar() {
+		consultasInline.close();
+		historico.close();
+		auditoria.close();
+	}
+
+	@Test
+	void recuperacaoNaoDeixaOPrimeiroRemetenteLimitadoBarrarOsOutros() throws Exception {
+		RPGBot bot = novoBot(new ControleTaxa(1, Duration.ofMinutes(1), 100, Duration.ofMinutes(1)));
+		bot.consume(Atualizacoes.mensagem(1, CHAT, 10, "/start"));
+
+		bot.consumirAtrasadas(List.of(Atualizacoes.mensagem(2, CHAT, 10, "/r 1d20"),
+				Atualizacoes.mensagem(3, CHAT, 10, "/ataque"), Atualizacoes.mensagem(4, CHAT, 11, "/r 1d6")));
+		filaEnvio.close();
+
+		assertEquals(3, respostas.size(), respostas.toString());
+		assertTrue(respostas.get(1).contains("rápido demais"), respostas.get(1));
+		assertTrue(respostas.get(2).contains("Jogador11: 1d6"), respostas.get(2));
+		assertFalse(respostas.get(2).contains("Jogador10"), respostas.get(2));
+		// A macro do remetente limitado não chega a ser procurada.
+		assertEquals(0, consultasMacros.get());
+	}
+
+	private RPGBot novoBot(ControleTaxa controleTaxa) throws IOException {
+		MetricasBot metricas = new MetricasBot(new SimpleMeterRegistry());
+		RolarDadosService rolarDadosService = new RolarDadosService(new FonteAleatoriaDeterministica(42), metricas,
+				16, 1_000_000, 3_500);
+		ClienteTelegramFalso falso = new ClienteTelegramFalso(metodo -> {
+			if (metodo instanceof SendMessage mensagem) {
+				respostas.add(mensagem.getText());
+			}
+			return CompletableFuture.completedFuture(null);
+		});
+		filaEnvio = new FilaEnvio(falso.cliente(), 1e9, 1e9, 1_000, 1_000, 1, metricas);
+		historico = new HistoricoRolagemService(repositorioFalso(HistoricoRolagemRepository.class), 1_000, 100, 1_000);
+		auditoria = new AuditoriaRolagens(diretorio, 1 << 20);
+		consultasInline = new ConsultasInline(new ClienteTelegramFalso().cliente(), rolarDadosService, metricas, 0);
+		MacroRolagemRepository macros = (MacroRolagemRepository) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[]{MacroRolagemRepository.class}, (proxy, metodo, args) -> {
+					consultasMacros.incrementAndGet();
+					return metodo.getReturnType() == List.class ? List.of() : null;
+				});
+		return new RPGBot(filaEnvio, new StartService(), rolarDadosService, metricas, historico, auditoria,
+				new ProbabilidadeService(rolarDadosService, metricas, 16, 2_000),
+				new MacroService(macros, rolarDadosService, 100, Duration.ofMinutes(10), System::nanoTime, 3),
+				new SessaoService(100, Duration.ofHours(1), System::nanoTime, 20), consultasInline, controleTaxa);
+	}
+
+	private static <T> T repositorioFalso(Class<T> tipo) {
+		return tipo.cast(Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo},
+				(proxy, metodo, argumentos) -> metodo.getReturnType() == Optional.class ? Optional.empty() : null));
+	}
+}
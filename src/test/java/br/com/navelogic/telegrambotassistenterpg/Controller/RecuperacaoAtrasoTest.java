@@ -0,0 +1,112 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecuperacaoAtrasoTest {
+
+	private static final long AGORA = 1_000_000;
+
+	@TempDir
+	Path diretorio;
+
+	private final List<String> entregas = new ArrayList<>();
+
+	@Test
+	void semAtrasoEntregaUmaAUmaEGravaOOffset() throws Exception {
+		Path arquivo = diretorio.resolve("offset");
+		RecuperacaoAtraso recuperacao = new RecuperacaoAtraso(new RegistroOffset(arquivo, () -> AGORA), 60, 900,
+				() -> AGORA);
+
+		distribuir(recuperacao, List.of(mensagem(7, 1, 5), mensagem(8, 2, 0)));
+		assertEquals(List.of("7", "8"), entregas);
+		assertFalse(recuperacao.isRecuperando());
+		assertEquals("8 " + AGORA, Files.readString(arquivo));
+
+		RecuperacaoAtraso depoisDoReinicio = new RecuperacaoAtraso(new RegistroOffset(arquivo, () -> AGORA), 60, 900,
+				() -> AGORA);
+		assertEquals(9, depoisDoReinicio.proximoOffset(0));
+		entregas.clear();
+		distribuir(depoisDoReinicio, List.of(mensagem(8, 2, 0), mensagem(9, 2, 0)));
+		assertEquals(List.of("9"), entregas);
+		assertEquals(1, depoisDoReinicio.getRepetidas());
+	}
+
+	@Test
+	void ignoraOffsetAntigoEAceitaIdsMenoresDepoisDoRecomeco() throws Exception {
+		Path arquivo = diretorio.resolve("offset");
+		long semanaPassada = AGORA - RegistroOffset.VALIDADE.toSeconds() - 1;
+		Files.writeString(arquivo, "500 " + semanaPassada);
+
+		RecuperacaoAtraso recuperacao = new RecuperacaoAtraso(new RegistroOffset(arquivo, () -> AGORA), 60, 900,
+				() -> AGORA);
+		assertEquals(1, recuperacao.proximoOffset(0));
+		distribuir(recuperacao, List.of(mensagem(3, 1, 0), mensagem(4, 2, 0)));
+		assertEquals(List.of("3", "4"), entregas);
+		assertEquals(0, recuperacao.getRepetidas());
+		assertEquals("4 " + AGORA, Files.readString(arquivo));
+		assertEquals(5, recuperacao.proximoOffset(4));
+
+		// Com o processo rodando, ids menores que os anteriores também são entregues.
+		entregas.clear();
+		distribuir(recuperacao, List.of(mensagem(2, 1, 0)));
+		assertEquals(List.of("2"), entregas);
+		assertEquals("2 " + AGORA, Files.readString(arquivo));
+	}
+
+	@Test
+	void comAtrasoAgrupaPorChatEDescartaAsExpiradas() {
+		RecuperacaoAtraso recuperacao = new RecuperacaoAtraso(new RegistroOffset((Path) null), 60, 900, () -> AGORA);
+
+		distribuir(recuperacao, List.of(mensagem(1, 1, 2_000), mensagem(2, 1, 300), mensagem(3, 2, 200)));
+		assertEquals(List.of("[2]", "[3]"), entregas);
+		assertTrue(recuperacao.isRecuperando());
+
+		entregas.clear();
+		distribuir(recuperacao, List.of(mensagem(4, 1, 120), mensagem(5, 2, 100), mensagem(6, 1, 90),
+				mensagem(7, 2, 3)));
+		assertEquals(List.of("[4, 6]", "[5]", "7"), entregas);
+		assertFalse(recuperacao.isRecuperando());
+		assertEquals(1, recuperacao.getDescartadas());
+		assertEquals(5, recuperacao.getAgrupadas());
+	}
+
+	@Test
+	void atualizacoesSemDataNaoEncerramNemIniciamARecuperacao() {
+		RecuperacaoAtraso recuperacao = new RecuperacaoAtraso(new RegistroOffset((Path) null), 60, 900, () -> AGORA);
+
+		distribuir(recuperacao, List.of(Atualizacoes.consultaInline(1, 1, "1d20")));
+		assertEquals(List.of("1"), entregas);
+		assertFalse(recuperacao.isRecuperando());
+
+		entregas.clear();
+		distribuir(recuperacao, List.of(mensagem(2, 1, 300), Atualizacoes.consultaInline(3, 1, "1d20")));
+		assertTrue(recuperacao.isRecuperando());
+
+		entregas.clear();
+		distribuir(recuperacao, List.of(mensagem(4, 1, 200), Atualizacoes.consultaInline(5, 1, "1d20")));
+		assertEquals(List.of("[4]", "5"), entregas);
+		assertTrue(recuperacao.isRecuperando());
+	}
+
+	private void distribuir(RecuperacaoAtraso recuperacao, List<Update> updates) {
+		recuperacao.distribuir(updates, update -> entregas.add(update.getUpdateId().toString()),
+				grupo -> entregas.add(grupo.stream().map(update -> update.getUpdateId().toString())
+						.collect(Collectors.joining(", ", "[", "]"))));
+	}
+
+	private static Update mensagem(int updateId, long chatId, long idadeS) {
+		Update update = Atualizacoes.mensagem(updateId, chatId, chatId, "/r 1d20");
+		update.getMessage().setDate((int) (AGORA - idadeS));
+		return update;
+	}
+}
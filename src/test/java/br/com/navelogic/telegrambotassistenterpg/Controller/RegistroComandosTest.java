@@ -0,0 +1,61 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistroComandosTest {
+
+	private static final Comando ROLAR = new Comando("/rolar", List.of("/r"), "Rola dados.", (m, a) -> a);
+	private static final Comando PROB = new Comando("/prob", List.of(), "Distribuição <exata>.", (m, a) -> a);
+
+	@Test
+	void encontraNomesEApelidosNoTrechoDoTexto() {
+		RegistroComandos registro = registro("");
+
+		assertSame(ROLAR, registro.buscar("/r 1d20", 0, 2));
+		assertSame(ROLAR, registro.buscar("/ROLAR 1d20", 0, 6));
+		assertSame(PROB, registro.buscar("veja /prob 4d6", 5, 10));
+		assertNull(registro.buscar("/ro 1d20", 0, 3));
+		assertNull(registro.buscar("/", 0, 1));
+	}
+
+	@Test
+	void removeOSufixoDoBot() {
+		RegistroComandos registro = registro("AssistenteBot");
+
+		assertSame(ROLAR, registro.buscar("/r@assistentebot 1d20", 0, 16));
+		assertNull(registro.buscar("/r@OutroBot 1d20", 0, 11));
+		assertNull(registro.buscar("/r@AssistenteBot2", 0, 17));
+		assertSame(ROLAR, registro("").buscar("/r@OutroBot", 0, 11));
+	}
+
+	@Test
+	void recusaNomesRepetidos() {
+		RegistroComandos registro = registro("");
+
+		assertThrows(IllegalArgumentException.class,
+				() -> registro.registrar(new Comando("/R", List.of(), "Outro.", (m, a) -> a)));
+	}
+
+	@Test
+	void continuaEncontrandoDepoisDeCrescer() {
+		RegistroComandos registro = registro("");
+		for (int i = 0; i < 40; i++) {
+			registro.registrar(new Comando("/c" + i, List.of(), "Comando " + i + ".", (m, a) -> a));
+		}
+
+		assertSame(ROLAR, registro.buscar("/r", 0, 2));
+		assertEquals("/c39", registro.buscar("/c39", 0, 4).nome());
+		assertTrue(registro.ajuda().startsWith("<b>Comandos disponíveis</b>\n\n/rolar, /r: Rola dados.\n/prob: Distribuição &lt;exata&gt;."));
+	}
+
+	private static RegistroComandos registro(String usuarioBot) {
+		RegistroComandos registro = new RegistroComandos(usuarioBot);
+		registro.registrar(ROLAR);
+		registro.registrar(PROB);
+		return registro;
+	}
+}
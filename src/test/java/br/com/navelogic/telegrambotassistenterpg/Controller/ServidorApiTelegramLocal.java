@@ -0,0 +1,242 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servidor HTTP local que imita os métodos da API de Bots do Telegram usados pelo bot,
+ * para testes de carga sem rede.
+ *
+ * <ul>
+ *   <li>{@code getUpdates}: entrega as atualizações publicadas com {@link #publicar}, respeitando
+ *   {@code offset} e {@code limit}, e segura a requisição por até um segundo quando não há nada;</li>
+ *   <li>{@code sendMessage}: espera a latência configurada e responde como o Telegram ou, com a
+ *   chance configurada, com 429 e {@code retry_after} de 1 segundo;</li>
+ *   <li>qualquer outro método responde {@code true}.</li>
+ * </ul>
+ *
+ * <p>A latência de cada resposta é medida do momento em que a atualização foi entregue ao bot
+ * até o {@code sendMessage} aceito. Como o bot responde em ordem dentro de cada chat, cada
+ * resposta é casada com a atualização mais antiga ainda sem resposta no mesmo chat.</p>
+ */
+public final class ServidorApiTelegramLocal implements AutoCloseable {
+
+	private static final long ESPERA_MAXIMA_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private record Pendente(Update update, boolean esperaResposta) {
+	}
+
+	private final HttpServer servidor;
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final long latenciaMs;
+	private final double chance429;
+
+	private final ArrayDeque<Pendente> pendentes = new ArrayDeque<>();
+	private int ultimaEntregue;
+	private final Map<Long, Queue<Long>> entregasPorChat = new ConcurrentHashMap<>();
+
+	private final AtomicLong respostas = new AtomicLong();
+	private final AtomicLong recusas = new AtomicLong();
+	private final AtomicInteger proximaMensagem = new AtomicInteger();
+	private long[] latencias = new long[1024];
+	private int quantidadeLatencias;
+
+	/**
+	 * @param latenciaMs atraso de cada {@code sendMessage}, imitando a ida e volta ao Telegram
+	 * @param chance429  fração dos {@code sendMessage} recusados com 429, entre 0 e 1
+	 */
+	public ServidorApiTelegramLocal(long latenciaMs, double chance429) throws IOException {
+		this.latenciaMs = latenciaMs;
+		this.chance429 = chance429;
+		// Sem TCP_NODELAY o cabeçalho e o corpo saem em escritas separadas e cada resposta
+		// espera o ACK atrasado do cliente (~40 ms), o que limitaria a vazão medida.
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		this.servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		servidor.createContext("/", this::atender);
+		servidor.setExecutor(executor);
+		servidor.start();
+	}
+
+	/**
+	 * @return a URL base para {@code telegram.api.url}
+	 */
+	public String url() {
+		return "http://localhost:" + servidor.getAddress().getPort();
+	}
+
+	/**
+	 * Enfileira uma atualização para o próximo {@code getUpdates}.
+	 *
+	 * @param esperaResposta se o bot deve responder a ela; só essas entram nas latências
+	 */
+	public void publicar(Update update, boolean esperaResposta) {
+		synchronized (pendentes) {
+			pendentes.addLast(new Pendente(update, esperaResposta));
+			pendentes.notifyAll();
+		}
+	}
+
+	public long getRespostas() {
+		return respostas.get();
+	}
+
+	public long getRecusas() {
+		return recusas.get();
+	}
+
+	/**
+	 * Espera até o bot enviar a quantidade de respostas indicada.
+	 *
+	 * @return {@code true} se todas chegaram dentro do prazo
+	 */
+	public boolean aguardarRespostas(long quantidade, long prazoMs) throws InterruptedException {
+		long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(prazoMs);
+		while (respostas.get() < quantidade) {
+			if (System.nanoTime() - limite > 0) {
+				return false;
+			}
+			Thread.sleep(5);
+		}
+		return true;
+	}
+
+	/**
+	 * @return as latências das respostas até agora, em nanossegundos e em ordem crescente
+	 */
+	public synchronized long[] latenciasOrdenadas() {
+		long[] copia = Arrays.copyOf(latencias, quantidadeLatencias);
+		Arrays.sort(copia);
+		return copia;
+	}
+
+	@Override
+	public void close() {
+		servidor.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void atender(HttpExchange troca) throws IOException {
+		try (troca) {
+			String caminho = troca.getRequestURI().getPath();
+			String metodo = caminho.substring(caminho.lastIndexOf('/') + 1).toLowerCase();
+			JsonNode corpo = lerCorpo(troca.getRequestBody());
+			switch (metodo) {
+				case "getupdates" -> responder(troca, 200, sucesso().set("result", obterAtualizacoes(corpo)));
+				case "sendmessage" -> enviarMensagem(troca, corpo);
+				default -> responder(troca, 200, sucesso().put("result", true));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private ArrayNode obterAtualizacoes(JsonNode corpo) throws InterruptedException {
+		int offset = corpo.path("offset").asInt(0);
+		int limite = corpo.path("limit").asInt(100);
+		long prazo = System.nanoTime()
+				+ Math.min(ESPERA_MAXIMA_NANOS, TimeUnit.SECONDS.toNanos(corpo.path("timeout").asLong(0)));
+		ArrayNode resultado = objectMapper.createArrayNode();
+		synchronized (pendentes) {
+			while (!pendentes.isEmpty() && pendentes.peekFirst().update().getUpdateId() < offset) {
+				pendentes.pollFirst();
+			}
+			long restante;
+			while (pendentes.isEmpty() && (restante = prazo - System.nanoTime()) > 0) {
+				TimeUnit.NANOSECONDS.timedWait(pendentes, restante);
+			}
+			long agora = System.nanoTime();
+			for (Pendente pendente : pendentes) {
+				if (resultado.size() == limite) {
+					break;
+				}
+				Update update = pendente.update();
+				if (update.getUpdateId() > ultimaEntregue) {
+					ultimaEntregue = update.getUpdateId();
+					if (pendente.esperaResposta()) {
+						entregasPorChat.computeIfAbsent(update.getMessage().getChatId(), c -> new ConcurrentLinkedQueue<>())
+								.add(agora);
+					}
+				}
+				resultado.add(objectMapper.valueToTree(update));
+			}
+		}
+		return resultado;
+	}
+
+	private void enviarMensagem(HttpExchange troca, JsonNode corpo) throws IOException, InterruptedException {
+		if (chance429 > 0 && ThreadLocalRandom.current().nextDouble() < chance429) {
+			recusas.incrementAndGet();
+			ObjectNode erro = objectMapper.createObjectNode()
+					.put("ok", false)
+					.put("error_code", 429)
+					.put("description", "Too Many Requests: retry after 1");
+			erro.putObject("parameters").put("retry_after", 1);
+			responder(troca, 429, erro);
+			return;
+		}
+		if (latenciaMs > 0) {
+			Thread.sleep(latenciaMs);
+		}
+		long chatId = corpo.path("chat_id").asLong();
+		Queue<Long> entregas = entregasPorChat.get(chatId);
+		Long entregue = entregas == null ? null : entregas.poll();
+		if (entregue != null) {
+			registrarLatencia(System.nanoTime() - entregue);
+		}
+		respostas.incrementAndGet();
+
+		ObjectNode resposta = sucesso();
+		ObjectNode mensagem = resposta.putObject("result")
+				.put("message_id", proximaMensagem.incrementAndGet())
+				.put("date", System.currentTimeMillis() / 1000)
+				.put("text", corpo.path("text").asText());
+		mensagem.putObject("chat").put("id", chatId).put("type", chatId < 0 ? "group" : "private");
+		responder(troca, 200, resposta);
+	}
+
+	private synchronized void registrarLatencia(long nanos) {
+		if (quantidadeLatencias == latencias.length) {
+			latencias = Arrays.copyOf(latencias, latencias.length * 2);
+		}
+		latencias[quantidadeLatencias++] = nanos;
+	}
+
+	private JsonNode lerCorpo(InputStream entrada) throws IOException {
+		byte[] bytes = entrada.readAllBytes();
+		return bytes.length == 0 ? objectMapper.createObjectNode() : objectMapper.readTree(bytes);
+	}
+
+	private ObjectNode sucesso() {
+		return objectMapper.createObjectNode().put("ok", true);
+	}
+
+	private void responder(HttpExchange troca, int status, JsonNode corpo) throws IOException {
+		byte[] bytes = objectMapper.writeValueAsBytes(corpo);
+		troca.getResponseHeaders().set("Content-Type", "application/json");
+		troca.sendResponseHeaders(status, bytes.length);
+		troca.getResponseBody().write(bytes);
+	}
+}
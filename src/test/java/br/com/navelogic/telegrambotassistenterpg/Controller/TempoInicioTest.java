@@ -0,0 +1,39 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mede o tempo do início da aplicação até a primeira resposta, com o banco fora do ar: a rolagem
+ * já está publicada antes do início, então o tempo inclui subir o contexto, o primeiro
+ * {@code getUpdates}, o {@code consume} e o envio. O orçamento é folgado para máquinas lentas de
+ * CI e pode ser trocado com {@code -Dinicio.orcamento-ms}; o que ele pega é um início que volte a
+ * esperar pelo banco.
+ */
+class TempoInicioTest {
+
+	private static final long ORCAMENTO_MS = Long.getLong("inicio.orcamento-ms", 30_000);
+
+	@Test
+	void respondeAPrimeiraRolagemDentroDoOrcamentoMesmoSemBanco() throws Exception {
+		try (ServidorApiTelegramLocal servidor = new ServidorApiTelegramLocal(0, 0)) {
+			servidor.publicar(Atualizacoes.mensagem(1, 7, 7, "/r 1d20"), true);
+
+			long inicio = System.nanoTime();
+			try (ConfigurableApplicationContext contexto = TesteCarga.iniciar(servidor,
+					"--spring.datasource.driver-class-name=com.mysql.cj.jdbc.Driver",
+					"--spring.datasource.url=jdbc:mysql://127.0.0.1:1/rpg?connectTimeout=500",
+					"--spring.datasource.hikari.connection-timeout=1000")) {
+				assertTrue(servidor.aguardarRespostas(1, ORCAMENTO_MS), "Sem resposta dentro do orçamento");
+				long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+				assertTrue(ms < ORCAMENTO_MS, "Primeira resposta em " + ms + " ms");
+				assertEquals(1, servidor.getRespostas());
+			}
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import br.com.navelogic.telegrambotassistenterpg.TelegramBotAssistenteRpgApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Teste de carga de ponta a ponta, sem rede: sobe a aplicação inteira em long polling apontada
+ * para um {@link ServidorApiTelegramLocal}, publica de uma vez uma mistura de comandos
+ * espalhados por muitos chats e mede a vazão, as latências de resposta e o comportamento do heap
+ * e do GC.
+ *
+ * <p>Os limites de envio do Telegram e de mensagens por usuário e chat ficam altos, para medir a
+ * capacidade da instância e não os limites; qualquer propriedade pode ser trocada nos argumentos,
+ * como as de concorrência que se quer comparar antes de uma versão:</p>
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=br.com.navelogic.telegrambotassistenterpg.Controller.TesteCarga \
+ *     -Dexec.args="20000 2000 50 0.01 --bot.processamento.faixas=128"
+ * </pre>
+ * <p>Argumentos: atualizações, chats, latência do sendMessage em ms, fração de 429 e propriedades.</p>
+ */
+public final class TesteCarga {
+
+	/** Textos publicados em rodízio; o último não é comando e não tem resposta. */
+	private static final List<String> MISTURA = List.of(
+			"/r 1d20+5", "/r 4d6sm1", "/r 2d20m1+3", "/rolar 8d6", "/prob 3d6", "/start", "bom dia, mesa!");
+
+	private static final Map<String, Object> PROPRIEDADES = Map.ofEntries(
+			Map.entry("telegram.bot.token", "carga"),
+			Map.entry("bot.modo", "polling"),
+			Map.entry("spring.datasource.driver-class-name", "org.h2.Driver"),
+			Map.entry("spring.datasource.url", "jdbc:h2:mem:carga;DB_CLOSE_DELAY=-1"),
+			Map.entry("spring.datasource.username", "sa"),
+			Map.entry("spring.datasource.password", ""),
+			Map.entry("bot.envio.global-por-segundo", "1000000"),
+			Map.entry("bot.envio.chat-por-segundo", "1000000"),
+			Map.entry("bot.envio.rajada-chat", "1000"),
+			Map.entry("bot.envio.max-pendentes-por-chat", "100000"),
+			Map.entry("bot.limite.usuario.mensagens", "30000"),
+			Map.entry("bot.limite.chat.mensagens", "30000"),
+			Map.entry("logging.level.root", "WARN"));
+
+	/**
+	 * Resultado de uma execução.
+	 *
+	 * @param atualizacoes atualizações publicadas
+	 * @param esperadas    respostas esperadas (atualizações com comando)
+	 * @param respostas    respostas aceitas pelo servidor
+	 * @param recusas      envios recusados com 429
+	 * @param segundos     tempo da primeira publicação até a última resposta (ou até o prazo)
+	 * @param p50Ms        mediana da latência de resposta
+	 * @param p99Ms        percentil 99 da latência de resposta
+	 * @param picoHeapMb   soma dos picos de uso das áreas do heap durante a execução
+	 * @param coletas      coletas de lixo durante a execução
+	 * @param msColeta     tempo total das coletas durante a execução
+	 */
+	public record Relatorio(int atualizacoes, long esperadas, long respostas, long recusas, double segundos,
+			double p50Ms, double p99Ms, long picoHeapMb, long coletas, long msColeta) {
+
+		public double porSegundo() {
+			return respostas / segundos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("""
+					Atualizações: %d (%d com resposta)
+					Respostas:    %d em %.2f s (%.0f/s), %d recusas 429
+					Latência:     p50 %.1f ms, p99 %.1f ms
+					Heap:         pico %d MB, %d coletas, %d ms em GC""",
+					atualizacoes, esperadas, respostas, segundos, porSegundo(), recusas,
+					p50Ms, p99Ms, picoHeapMb, coletas, msColeta);
+		}
+	}
+
+	private TesteCarga() {
+	}
+
+	/**
+	 * Executa o teste de carga.
+	 *
+	 * @param argumentosSpring propriedades extras no formato {@code --nome=valor}
+	 */
+	public static Relatorio executar(int atualizacoes, int chats, long latenciaMs, double chance429,
+			long prazoMs, String... argumentosSpring) throws Exception {
+		try (ServidorApiTelegramLocal servidor = new ServidorApiTelegramLocal(latenciaMs, chance429);
+				ConfigurableApplicationContext contexto = iniciar(servidor, argumentosSpring)) {
+			long esperadas = 0;
+			List<MemoryPoolMXBean> areasHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+					.filter(area -> area.getType() == MemoryType.HEAP).toList();
+			areasHeap.forEach(MemoryPoolMXBean::resetPeakUsage);
+			long[] gcAntes = gc();
+
+			long inicio = System.nanoTime();
+			for (int i = 0; i < atualizacoes; i++) {
+				long chatId = 1 + i % chats;
+				String texto = MISTURA.get(i % MISTURA.size());
+				boolean esperaResposta = texto.startsWith("/");
+				servidor.publicar(Atualizacoes.mensagem(i + 1, chatId, chatId, texto), esperaResposta);
+				if (esperaResposta) {
+					esperadas++;
+				}
+			}
+			servidor.aguardarRespostas(esperadas, prazoMs);
+			double segundos = (System.nanoTime() - inicio) / 1e9;
+
+			long[] gcDepois = gc();
+			long picoHeap = areasHeap.stream().mapToLong(area -> area.getPeakUsage().getUsed()).sum();
+			long[] latencias = servidor.latenciasOrdenadas();
+			return new Relatorio(atualizacoes, esperadas, servidor.getRespostas(), servidor.getRecusas(), segundos,
+					percentilMs(latencias, 0.50), percentilMs(latencias, 0.99), picoHeap >> 20,
+					gcDepois[0] - gcAntes[0], gcDepois[1] - gcAntes[1]);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int atualizacoes = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+		int chats = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+		long latenciaMs = args.length > 2 ? Long.parseLong(args[2]) : 50;
+		double chance429 = args.length > 3 ? Double.parseDouble(args[3]) : 0.0;
+		String[] propriedades = args.length > 4 ? Arrays.copyOfRange(args, 4, args.length) : new String[0];
+		System.out.println(executar(atualizacoes, chats, latenciaMs, chance429, TimeUnit.MINUTES.toMillis(5), propriedades));
+		// O long polling da biblioteca não encerra a thread do seu executor ao fechar.
+		System.exit(0);
+	}
+
+	/**
+	 * Sobe a aplicação sem servidor web, em long polling apontada para o servidor local e com as
+	 * propriedades do teste.
+	 *
+	 * @param argumentosSpring propriedades extras no formato {@code --nome=valor}
+	 */
+	static ConfigurableApplicationContext iniciar(ServidorApiTelegramLocal servidor, String... argumentosSpring)
+			throws IOException {
+		return new SpringApplicationBuilder(TelegramBotAssistenteRpgApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(argumentos(servidor.url(), argumentosSpring));
+	}
+
+	/**
+	 * Junta as propriedades do teste com as informadas, que têm prioridade. Tudo vai como argumento
+	 * de linha de comando para valer acima do {@code application.properties}.
+	 */
+	private static String[] argumentos(String urlApi, String... extras) throws IOException {
+		Map<String, Object> propriedades = new LinkedHashMap<>(PROPRIEDADES);
+		propriedades.put("telegram.api.url", urlApi);
+		propriedades.put("auditoria.diretorio", Files.createTempDirectory("auditoria-carga"));
+		propriedades.put("bot.offset.arquivo", Files.createTempDirectory("offset-carga").resolve("offset"));
+		for (String extra : extras) {
+			int igual = extra.indexOf('=');
+			propriedades.put(extra.substring(2, igual), extra.substring(igual + 1));
+		}
+		return propriedades.entrySet().stream().map(p -> "--" + p.getKey() + "=" + p.getValue()).toArray(String[]::new);
+	}
+
+	private static double percentilMs(long[] ordenadas, double percentil) {
+		if (ordenadas.length == 0) {
+			return Double.NaN;
+		}
+		int indice = (int) Math.min(ordenadas.length - 1, Math.ceil(percentil * ordenadas.length) - 1);
+		return ordenadas[Math.max(0, indice)] / 1e6;
+	}
+
+	private static long[] gc() {
+		long coletas = 0;
+		long ms = 0;
+		for (GarbageCollectorMXBean coletor : ManagementFactory.getGarbageCollectorMXBeans()) {
+			coletas += Math.max(0, coletor.getCollectionCount());
+			ms += Math.max(0, coletor.getCollectionTime());
+		}
+		return new long[]{coletas, ms};
+	}
+}
@@ -0,0 +1,19 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteCargaTest {
+
+	@Test
+	void respondeTodasAsAtualizacoesPeloLongPollingMesmoComRecusas() throws Exception {
+		TesteCarga.Relatorio relatorio = TesteCarga.executar(350, 50, 0, 0.05, 30_000,
+				"--spring.datasource.url=jdbc:h2:mem:carga-teste;DB_CLOSE_DELAY=-1");
+
+		assertEquals(300, relatorio.esperadas());
+		assertEquals(relatorio.esperadas(), relatorio.respostas(), relatorio.toString());
+		assertTrue(relatorio.recusas() > 0, relatorio.toString());
+		assertTrue(relatorio.p99Ms() >= relatorio.p50Ms());
+	}
+}
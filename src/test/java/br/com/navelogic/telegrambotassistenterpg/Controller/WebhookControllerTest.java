@@ -0,0 +1,75 @@
+package br.com.navelogic.telegrambotassistenterpg.Controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"telegram.bot.token=teste",
+		"bot.modo=webhook",
+		"bot.webhook.segredo=segredo",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.url=jdbc:h2:mem:webhook;DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"auditoria.diretorio=target/auditoria-webhook",
+		"bot.offset.arquivo=target/offset-webhook"
+})
+class WebhookControllerTest {
+
+	@LocalServerPort
+	private int porta;
+
+	@MockBean
+	private TelegramClient telegramClient;
+
+	@Test
+	void processaAtualizacaoRecebidaPeloWebhook() throws Exception {
+		doReturn(CompletableFuture.completedFuture(null)).when(telegramClient).executeAsync(any(SendMessage.class));
+		ClienteWebhookLocal cliente = new ClienteWebhookLocal(
+				"http://localhost:" + porta + "/telegram/webhook", "segredo");
+
+		assertEquals(200, cliente.enviar(Atualizacoes.mensagem(1, 42L, 7L, "/r 1d1+1")));
+
+		verify(telegramClient, timeout(5_000)).executeAsync(argThat((SendMessage mensagem) ->
+				mensagem.getChatId().equals("42") && mensagem.getText().contains("Total: 2")));
+	}
+
+	@Test
+	void rejeitaSegredoInvalido() throws Exception {
+		ClienteWebhookLocal cliente = new ClienteWebhookLocal(
+				"http://localhost:" + porta + "/telegram/webhook", "errado");
+
+		assertEquals(401, cliente.enviar(Atualizacoes.mensagem(2, 42L, 7L, "/r 1d20")));
+	}
+
+	@Test
+	void naoSobeEmWebhookSemSegredo() {
+		assertThrows(IllegalArgumentException.class, () -> new WebhookController(null, "webhook", ""));
+		new WebhookController(null, "polling", "");
+	}
+
+	@Test
+	void naoExpoeAsMetricasNaPortaPublica() throws Exception {
+		HttpResponse<Void> resposta = HttpClient.newHttpClient().send(
+				HttpRequest.newBuilder(URI.create("http://localhost:" + porta + "/actuator/prometheus")).build(),
+				HttpResponse.BodyHandlers.discarding());
+
+		assertEquals(404, resposta.statusCode());
+	}
+}
@@ -0,0 +1,115 @@
+package br.com.navelogic.telegrambotassistenterpg.Model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrdemIniciativaTest {
+
+	@Test
+	void mantemAOrdemDecrescenteComEmpatesNaOrdemDeChegada() {
+		OrdemIniciativa ordem = new OrdemIniciativa(10);
+		ordem.adicionar("Goblin", 12);
+		ordem.adicionar("Aragorn", 18);
+		ordem.adicionar("Lobo", 12);
+		ordem.adicionar("Gandalf", 3);
+		ordem.adicionar("Legolas", 20);
+
+		assertEquals(5, ordem.getQuantidade());
+		String[] esperados = {"Legolas", "Aragorn", "Goblin", "Lobo", "Gandalf"};
+		for (int i = 0; i < esperados.length; i++) {
+			assertEquals(esperados[i], ordem.getNome(i));
+		}
+	}
+
+	@Test
+	void avancaAVezEContaAsRodadas() {
+		OrdemIniciativa ordem = new OrdemIniciativa(10);
+		ordem.adicionar("A", 15);
+		ordem.adicionar("B", 10);
+		assertEquals(-1, ordem.getVez());
+		assertEquals(0, ordem.getRodada());
+
+		assertEquals(0, ordem.avancar());
+		assertEquals(1, ordem.getRodada());
+		assertEquals(1, ordem.avancar());
+		assertEquals(0, ordem.avancar());
+		assertEquals(2, ordem.getRodada());
+	}
+
+	@Test
+	void incluirERemoverNaoTiramAVezDeQuemEstaJogando() {
+		OrdemIniciativa ordem = new OrdemIniciativa(10);
+		ordem.adicionar("A", 15);
+		ordem.adicionar("B", 10);
+		ordem.adicionar("C", 5);
+		ordem.avancar();
+		ordem.avancar();
+		assertEquals("B", ordem.getNome(ordem.getVez()));
+
+		ordem.adicionar("Rápido", 20);
+		assertEquals("B", ordem.getNome(ordem.getVez()));
+		ordem.remover("a");
+		assertEquals("B", ordem.getNome(ordem.getVez()));
+
+		ordem.remover("B");
+		assertEquals("C", ordem.getNome(ordem.avancar()));
+		assertEquals("Rápido", ordem.getNome(ordem.avancar()));
+		assertEquals(2, ordem.getRodada());
+	}
+
+	@Test
+	void removerQuemEstaNaVezMostraOSeguinteSemPularNinguem() {
+		OrdemIniciativa ordem = new OrdemIniciativa(10);
+		ordem.adicionar("A", 15);
+		ordem.adicionar("B", 10);
+		ordem.adicionar("C", 5);
+		ordem.avancar();
+
+		ordem.remover("A");
+		assertEquals(1, ordem.getRodada());
+		assertEquals("B", ordem.getNome(ordem.getVez()));
+		assertEquals("B", ordem.getNome(ordem.avancar()));
+		assertEquals("C", ordem.getNome(ordem.avancar()));
+
+		// O último da ordem sai na vez dele: a vez volta ao primeiro e a rodada conta.
+		ordem.remover("C");
+		assertEquals("B", ordem.getNome(ordem.getVez()));
+		assertEquals("B", ordem.getNome(ordem.avancar()));
+		assertEquals(2, ordem.getRodada());
+
+		ordem.remover("B");
+		assertEquals(-1, ordem.getVez());
+	}
+
+	@Test
+	void rolarDeNovoQuemEstaNaVezMantemAVezComEle() {
+		OrdemIniciativa ordem = new OrdemIniciativa(10);
+		ordem.adicionar("A", 15);
+		ordem.adicionar("B", 10);
+		ordem.adicionar("C", 5);
+		ordem.avancar();
+		ordem.avancar();
+
+		assertEquals(0, ordem.adicionar("b", 20));
+		assertEquals("b", ordem.getNome(ordem.getVez()));
+		assertEquals(2, ordem.adicionar("B", 1));
+		assertEquals("B", ordem.getNome(ordem.getVez()));
+		assertEquals(1, ordem.adicionar("b", 12));
+		assertEquals("b", ordem.getNome(ordem.getVez()));
+		assertEquals("C", ordem.getNome(ordem.avancar()));
+	}
+
+	@Test
+	void substituiOMesmoNomeERespeitaOMaximo() {
+		OrdemIniciativa ordem = new OrdemIniciativa(2);
+		ordem.adicionar("Goblin", 5);
+		ordem.adicionar("goblin", 17);
+		assertEquals(1, ordem.getQuantidade());
+		assertEquals(17, ordem.getValor(0));
+
+		ordem.adicionar("Orc", 9);
+		assertThrows(IllegalArgumentException.class, () -> ordem.adicionar("Troll", 1));
+		assertThrows(IllegalArgumentException.class, () -> new OrdemIniciativa(5).avancar());
+	}
+}
@@ -0,0 +1,65 @@
+package br.com.navelogic.telegrambotassistenterpg.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultadoDadosTest {
+
+	@Test
+	void mantemOFormatoDeRolagensPequenas() {
+		ResultadoDados resultado = new ResultadoDados(20, "10 + 10", "Acerto Crítico!");
+
+		assertEquals("🎲 Total: 20\n\nDados: 10 + 10\n\nAcerto Crítico!", resultado.toString());
+	}
+
+	@Test
+	void escapaHtmlDoTexto() {
+		ResultadoDados resultado = new ResultadoDados(1, "1 < 2 & 3 > 2", "<b>crítico</b>");
+
+		assertEquals("🎲 Total: 1\n\nDados: 1 &lt; 2 &amp; 3 &gt; 2\n\n&lt;b&gt;crítico&lt;/b&gt;", resultado.toString());
+		assertEquals("1 < 2 & 3 > 2", resultado.getVisual());
+	}
+
+	@Test
+	void resumeRolagensQueNaoCabemNaMensagem() {
+		int[] dados = new int[1000];
+		for (int i = 0; i < dados.length; i++) {
+			dados[i] = i % 20 + 1;
+		}
+		int total = Arrays.stream(dados).sum();
+		ParteResultado termo = new ParteResultado.Termo("1000d20", total, 20, dados, null);
+		ResultadoDados resultado = new ResultadoDados(total + 5,
+				List.of(termo, new ParteResultado.Texto(" + "), new ParteResultado.Texto("5")), false);
+
+		String texto = resultado.toString();
+
+		assertTrue(texto.length() <= 4096, "tamanho " + texto.length());
+		assertTrue(texto.startsWith("🎲 Total: " + (total + 5) + "\n\nDados: [1000d20 = " + total + "] + 5"));
+		assertTrue(texto.contains("\nMaiores: 20, 20, 20, 20, 20"));
+		assertTrue(texto.contains("\nMenores: 1, 1, 1, 1, 1"));
+		assertTrue(texto.contains("\nFaces: 1×50, 2×50"));
+		assertTrue(texto.contains("<blockquote expandable>1 + 2 + 3"));
+		assertTrue(texto.endsWith("…</blockquote>\n"));
+	}
+
+	@Test
+	void resumoListaTermosPequenosInteiros() {
+		int[] contagens = new int[7];
+		contagens[6] = 100_000;
+		List<ParteResultado> partes = List.of(
+				new ParteResultado.Termo("100000d6", 600_000, 6, null, contagens),
+				new ParteResultado.Texto(" + "),
+				new ParteResultado.Termo("2d20m1", 17, 20, new int[]{17}, null));
+		ResultadoDados resultado = new ResultadoDados(600_017, partes, true);
+
+		String texto = resultado.toString();
+
+		assertTrue(texto.contains("\n\n<b>100000d6</b>\nMaiores: 6, 6, 6, 6, 6\nMenores: 6, 6, 6, 6, 6\nFaces: 6×100000"));
+		assertTrue(texto.contains("\n\n<b>2d20m1</b>: 17"));
+		assertEquals("[100000d6 = 600000] + [2d20m1 = 17]", resultado.getVisual());
+	}
+}
@@ -0,0 +1,147 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.RegistroAuditoria;
+import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoDados;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaPorThread;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaSegura;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditoriaRolagensTest {
+
+	private static final int SEGMENTO = 64 * 1024;
+
+	private final RolarDadosService service = new RolarDadosService(new FonteAleatoriaPorThread(),
+			new MetricasBot(new SimpleMeterRegistry()), 16, 1_000_000, 3_500);
+
+	@TempDir
+	private Path diretorio;
+
+	@Test
+	void repeteARolagemPelaSementeRegistrada() throws Exception {
+		ResultadoDados original = service.rolarExpressao("4d6sm1 + 40d6 + 2000d6");
+		try (AuditoriaRolagens auditoria = new AuditoriaRolagens(diretorio, SEGMENTO)) {
+			auditoria.registrar(-100L, 7L, "4d6sm1 + 40d6 + 2000d6", original);
+			auditoria.registrar(-100L, null, "1d20+5", service.rolarExpressao("1d20+5"));
+		}
+
+		List<RegistroAuditoria> registros = AuditoriaRolagens.ler(AuditoriaRolagens.segmentos(diretorio).get(0)).registros();
+		RegistroAuditoria registro = registros.get(0);
+		assertEquals(original.getTotal(), registro.total());
+		assertEquals(7L, registro.usuarioId());
+		assertNull(registros.get(1).usuarioId());
+		assertEquals(AuditoriaRolagens.MAX_DADOS, registro.dados().length);
+		assertFalse(registro.dadosCompletos());
+		assertTrue(registros.get(1).dadosCompletos());
+
+		ResultadoDados repetido = service.reproduzir(registro.expressao(), registro.semente());
+		assertEquals(original.getVisual(), repetido.getVisual());
+		assertTrue(AuditoriaRolagens.confere(registro, repetido));
+		assertTrue(LeitorAuditoria.verificar(AuditoriaRolagens.segmentos(diretorio), true, new PrintStream(new ByteArrayOutputStream())));
+	}
+
+	@Test
+	void marcaAsRolagensDaFonteSeguraComoNaoReproduziveis() throws Exception {
+		RolarDadosService seguro = new RolarDadosService(new FonteAleatoriaSegura(),
+				new MetricasBot(new SimpleMeterRegistry()), 16, 1_000_000, 3_500);
+		ResultadoDados original = seguro.rolarExpressao("4d6sm1");
+		assertFalse(original.isReproduzivel());
+		try (AuditoriaRolagens auditoria = new AuditoriaRolagens(diretorio, SEGMENTO)) {
+			auditoria.registrar(-100L, 7L, "4d6sm1", original);
+			auditoria.registrar(-100L, 7L, "1d20", service.rolarExpressao("1d20"));
+		}
+
+		List<RegistroAuditoria> registros = AuditoriaRolagens.ler(AuditoriaRolagens.segmentos(diretorio).get(0)).registros();
+		assertFalse(registros.get(0).reproduzivel());
+		assertEquals("4d6sm1", registros.get(0).expressao());
+		assertEquals(original.getTotal(), registros.get(0).total());
+		assertTrue(registros.get(1).reproduzivel());
+		ByteArrayOutputStream saida = new ByteArrayOutputStream();
+		assertTrue(LeitorAuditoria.verificar(AuditoriaRolagens.segmentos(diretorio), true, new PrintStream(saida)));
+		assertTrue(saida.toString().contains("não reproduzível"), saida.toString());
+	}
+
+	@Test
+	void cortaExpressoesLongasNoLimiteDeUmCaractereEMarcaORegistro() throws Exception {
+		// " é" ocupa 3 bytes: depois dos 8 do começo, o limite cai no meio de um "é".
+		String longa = "1d20 + 0" + " é".repeat(AuditoriaRolagens.MAX_EXPRESSAO);
+		ResultadoDados resultado = service.rolarExpressao("1d20");
+		try (AuditoriaRolagens auditoria = new AuditoriaRolagens(diretorio, SEGMENTO)) {
+			auditoria.registrar(-100L, 7L, longa, resultado);
+		}
+
+		RegistroAuditoria registro = AuditoriaRolagens.ler(AuditoriaRolagens.segmentos(diretorio).get(0)).registros().get(0);
+		assertTrue(registro.expressaoCortada());
+		assertTrue(longa.startsWith(registro.expressao()));
+		assertEquals(AuditoriaRolagens.MAX_EXPRESSAO - 1, registro.expressao().getBytes(StandardCharsets.UTF_8).length);
+		assertEquals(resultado.getTotal(), registro.total());
+		ByteArrayOutputStream saida = new ByteArrayOutputStream();
+		assertTrue(LeitorAuditoria.verificar(AuditoriaRolagens.segmentos(diretorio), true, new PrintStream(saida)));
+		assertTrue(saida.toString().contains("expressão cortada"), saida.toString());
+	}
+
+	@Test
+	void rotacionaOsSegmentosMantendoOEncadeamento() throws Exception {
+		try (AuditoriaRolagens auditoria = new AuditoriaRolagens(diretorio, SEGMENTO)) {
+			for (int i = 0; i < 2_000; i++) {
+				auditoria.registrar(i % 10, (long) i, "1d20+5", service.rolarExpressao("1d20+5"));
+			}
+			assertEquals(2_000, auditoria.getGravadas());
+		}
+		int segmentos = AuditoriaRolagens.segmentos(diretorio).size();
+		assertTrue(segmentos > 1);
+
+		// Um novo início continua o encadeamento do último segmento.
+		try (AuditoriaRolagens auditoria = new AuditoriaRolagens(diretorio, SEGMENTO)) {
+			auditoria.registrar(1L, 1L, "2d6", service.rolarExpressao("2d6"));
+		}
+		List<Path> arquivos = AuditoriaRolagens.segmentos(diretorio);
+		assertEquals(segmentos + 1, arquivos.size());
+		assertEquals(2_001, arquivos.stream().mapToInt(this::quantidade).sum());
+		assertTrue(LeitorAuditoria.verificar(arquivos, true, new PrintStream(new ByteArrayOutputStream())));
+	}
+
+	@Test
+	void detectaRegistrosAlterados() throws Exception {
+		try (AuditoriaRolagens auditoria = new AuditoriaRolagens(diretorio, SEGMENTO)) {
+			for (int i = 0; i < 3; i++) {
+				auditoria.registrar(-100L, 7L, "1d20", service.rolarExpressao("1d20"));
+			}
+		}
+		Path arquivo = AuditoriaRolagens.segmentos(diretorio).get(0);
+		AuditoriaRolagens.Segmento antes = AuditoriaRolagens.ler(arquivo);
+		assertEquals(-1, antes.primeiroAdulterado());
+
+		// Soma 1 ao total do segundo registro.
+		int total = antes.registros().get(1).total();
+		try (RandomAccessFile acesso = new RandomAccessFile(arquivo.toFile(), "rw")) {
+			acesso.seek(AuditoriaRolagens.TAMANHO_CABECALHO);
+			int tamanho = acesso.readInt();
+			acesso.seek(AuditoriaRolagens.TAMANHO_CABECALHO + tamanho + 4 + 8 * 4);
+			acesso.writeInt(total + 1);
+		}
+
+		AuditoriaRolagens.Segmento depois = AuditoriaRolagens.ler(arquivo);
+		assertEquals(1, depois.primeiroAdulterado());
+		assertEquals(total + 1, depois.registros().get(1).total());
+		assertFalse(LeitorAuditoria.verificar(List.of(arquivo), false, new PrintStream(new ByteArrayOutputStream())));
+	}
+
+	private int quantidade(Path arquivo) {
+		try {
+			return AuditoriaRolagens.ler(arquivo).registros().size();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.HistoricoRolagem;
+import br.com.navelogic.telegrambotassistenterpg.Repository.HistoricoRolagemRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HistoricoRolagemServiceTest {
+
+	@Autowired
+	private HistoricoRolagemRepository repositorio;
+
+	@Test
+	void gravaAsRolagensEmLotes() {
+		HistoricoRolagemService historico = new HistoricoRolagemService(repositorio, 1_000, 100, 50);
+
+		for (int i = 0; i < 250; i++) {
+			assertTrue(historico.registrar(1L, 7L, "1d20+5", i, "d20: " + i));
+		}
+		historico.registrar(2L, null, "2d6", 7, "3 + 4");
+		historico.close();
+
+		assertEquals(251, historico.getGravadas());
+		List<HistoricoRolagem> chat = repositorio.findByChatIdOrderByCriadoEmAsc(2L);
+		assertEquals(1, chat.size());
+		assertEquals("2d6", chat.get(0).getExpressao());
+		assertEquals(7, chat.get(0).getTotal());
+		assertNull(chat.get(0).getUsuarioId());
+	}
+
+	@Test
+	void gravaPeloTempoSemEsperarOLote() throws Exception {
+		HistoricoRolagemService historico = new HistoricoRolagemService(repositorio, 1_000, 100, 50);
+
+		historico.registrar(3L, 7L, "1d4", 2, "2");
+		for (int i = 0; i < 50 && historico.getGravadas() == 0; i++) {
+			TimeUnit.MILLISECONDS.sleep(20);
+		}
+
+		assertEquals(1, historico.getGravadas());
+		historico.close();
+	}
+
+	@Test
+	void descartaQuandoOBufferEstaCheio() throws Exception {
+		CountDownLatch gravando = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		HistoricoRolagemRepository lento = (HistoricoRolagemRepository) Proxy.newProxyInstance(
+				HistoricoRolagemRepository.class.getClassLoader(), new Class<?>[]{HistoricoRolagemRepository.class},
+				(proxy, metodo, argumentos) -> {
+					gravando.countDown();
+					liberar.await();
+					return null;
+				});
+		HistoricoRolagemService historico = new HistoricoRolagemService(lento, 2, 1, 0);
+
+		historico.registrar(1L, 1L, "1d6", 1, "1");
+		assertTrue(gravando.await(5, TimeUnit.SECONDS));
+		assertTrue(historico.registrar(1L, 1L, "1d6", 2, "2"));
+		assertTrue(historico.registrar(1L, 1L, "1d6", 3, "3"));
+		assertFalse(historico.registrar(1L, 1L, "1d6", 4, "4"));
+
+		liberar.countDown();
+		historico.close();
+		assertEquals(1, historico.getDescartadas());
+		assertEquals(3, historico.getGravadas());
+	}
+
+	@Test
+	void limitaTextosLongos() {
+		HistoricoRolagem registro = new HistoricoRolagem(1L, 1L, "1d6", 1, "6 + ".repeat(2000), Instant.now());
+
+		assertEquals(HistoricoRolagem.TAMANHO_DADOS, registro.getDados().length());
+	}
+}
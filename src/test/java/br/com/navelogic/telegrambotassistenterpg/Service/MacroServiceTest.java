@@ -0,0 +1,126 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Repository.MacroRolagemRepository;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaDeterministica;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class MacroServiceTest {
+
+	@Autowired
+	private MacroRolagemRepository repositorio;
+
+	private final RolarDadosService rolarDadosService = new RolarDadosService(new FonteAleatoriaDeterministica(42),
+			new MetricasBot(new SimpleMeterRegistry()), 16, 1_000_000, 3_500);
+	private final AtomicLong relogio = new AtomicLong();
+
+	private MacroService novoServico() {
+		return new MacroService(repositorio, rolarDadosService, 100, Duration.ofMinutes(10), relogio::get, 3);
+	}
+
+	@Test
+	void usaAMacroCompiladaDoCacheSemConsultarOBanco() {
+		MacroService macros = novoServico();
+		MacroService.MacroCompilada salva = macros.salvar(-10L, "/Ataque", " 1d20+7 ");
+
+		repositorio.deleteAll();
+
+		MacroService.MacroCompilada encontrada = macros.buscar(-10L, "ataque").orElseThrow();
+		assertSame(salva, encontrada);
+		assertEquals("1d20+7", encontrada.expressao());
+		assertTrue(macros.buscar(-11L, "ataque").isEmpty());
+	}
+
+	@Test
+	void carregaDoBancoETrocaOCacheAoEditar() {
+		novoServico().salvar(-10L, "ataque", "1d20+7");
+		MacroService macros = novoServico();
+		assertEquals("1d20+7", macros.buscar(-10L, "ataque").orElseThrow().expressao());
+
+		macros.salvar(-10L, "ataque", "1d20+9");
+
+		assertEquals("1d20+9", macros.buscar(-10L, "ataque").orElseThrow().expressao());
+		assertEquals(1, repositorio.countByChatId(-10L));
+		assertTrue(macros.apagar(-10L, "ataque"));
+		assertTrue(macros.buscar(-10L, "ataque").isEmpty());
+		assertFalse(macros.apagar(-10L, "ataque"));
+	}
+
+	@Test
+	void descartaEntradasOciosas() {
+		MacroService macros = novoServico();
+		macros.salvar(-10L, "dano", "2d6+3");
+		repositorio.deleteAll();
+
+		relogio.addAndGet(TimeUnit.MINUTES.toNanos(9));
+		assertTrue(macros.buscar(-10L, "dano").isPresent());
+		relogio.addAndGet(TimeUnit.MINUTES.toNanos(11));
+
+		assertTrue(macros.buscar(-10L, "dano").isEmpty());
+	}
+
+	@Test
+	void recusaMacrosInvalidasEAcimaDoLimite() {
+		MacroService macros = novoServico();
+
+		assertThrows(IllegalArgumentException.class, () -> macros.salvar(-10L, "ataque", "1d20+"));
+		assertThrows(IllegalArgumentException.class, () -> macros.salvar(-10L, "ataque", "3# 1d20"));
+		assertThrows(IllegalArgumentException.class, () -> macros.salvar(-10L, "ataque!", "1d20"));
+		assertThrows(IllegalArgumentException.class, () -> macros.salvar(-10L, "", "1d20"));
+		for (int i = 0; i < 3; i++) {
+			macros.salvar(-10L, "m" + i, "1d" + (i + 4));
+		}
+		assertThrows(IllegalArgumentException.class, () -> macros.salvar(-10L, "m3", "1d8"));
+		assertEquals("1d12", macros.salvar(-10L, "m0", "1d12").expressao());
+		assertEquals(3, macros.listar(-10L).size());
+	}
+
+	@Test
+	void carregaAsMacrosDoChatUmaVezEPausaDepoisDeUmaFalha() {
+		novoServico().salvar(-10L, "ataque", "1d20+7");
+		AtomicInteger consultas = new AtomicInteger();
+		AtomicBoolean foraDoAr = new AtomicBoolean();
+		MacroRolagemRepository contador = (MacroRolagemRepository) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[]{MacroRolagemRepository.class}, (proxy, metodo, args) -> {
+					consultas.incrementAndGet();
+					if (foraDoAr.get()) {
+						throw new IllegalStateException("banco fora do ar");
+					}
+					try {
+						return metodo.invoke(repositorio, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+		MacroService macros = new MacroService(contador, rolarDadosService, 100, Duration.ofMinutes(10), relogio::get, 3);
+
+		assertTrue(macros.buscar(-10L, "ataque").isPresent());
+		for (int i = 0; i < 20; i++) {
+			assertTrue(macros.buscar(-10L, "spam" + i).isEmpty());
+		}
+		assertEquals(1, consultas.get());
+
+		foraDoAr.set(true);
+		assertThrows(IllegalStateException.class, () -> macros.buscar(-11L, "ataque"));
+		assertTrue(macros.buscar(-12L, "ataque").isEmpty());
+		assertEquals(2, consultas.get());
+
+		relogio.addAndGet(TimeUnit.SECONDS.toNanos(MacroService.PAUSA_APOS_FALHA_S + 1));
+		foraDoAr.set(false);
+		assertTrue(macros.buscar(-12L, "ataque").isEmpty());
+		assertEquals(3, consultas.get());
+	}
+}
@@ -0,0 +1,92 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.Modificador;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MotorRolagemTest {
+
+	private final MotorRolagem motor = MotorRolagem.daThread();
+
+	@ParameterizedTest
+	@CsvSource({
+			"MANTER_MAIOR, 6", "MANTER_MENOR, 6", "SOLTAR_MAIOR, 6", "SOLTAR_MENOR, 6",
+			"MANTER_MAIOR, 100000", "MANTER_MENOR, 100000", "SOLTAR_MAIOR, 100000", "SOLTAR_MENOR, 100000"
+	})
+	void mantemOsMesmosDadosQueAOrdenacaoCompleta(Modificador modificador, int lados) {
+		int[] todos = rolarSemModificador(200, lados, 42);
+		Arrays.sort(todos);
+
+		long total = motor.rolar(new Random(42), 200, lados, modificador, 15);
+		int[] mantidos = Arrays.copyOf(dadosMantidos(), motor.getQuantidadeMantida());
+
+		int quantidade = modificador.quantidadeMantida(200, 15);
+		int[] esperados = modificador.mantemMaiores()
+				? Arrays.copyOfRange(todos, 200 - quantidade, 200)
+				: Arrays.copyOfRange(todos, 0, quantidade);
+		assertArrayEquals(esperados, mantidos);
+		assertEquals(Arrays.stream(esperados).sum(), total);
+	}
+
+	@Test
+	void soltarMaiorRemoveOsMaioresResultados() {
+		assertEquals(1, Modificador.SOLTAR_MAIOR.quantidadeMantida(2, 1));
+		assertFalse(Modificador.SOLTAR_MAIOR.mantemMaiores());
+		assertTrue(Modificador.SOLTAR_MENOR.mantemMaiores());
+	}
+
+	@Test
+	void histogramaDistribuiOsDadosUniformementeEntreAsFaces() {
+		long total = motor.rolarHistograma(new Random(7), 600_000, 6, null, 0);
+
+		assertEquals(600_000, motor.getQuantidadeMantida());
+		assertEquals(2_100_000, total, 5_000);
+		int[] contagens = motor.copiarContagens();
+		assertEquals(7, contagens.length);
+		for (int face = 1; face <= 6; face++) {
+			assertEquals(100_000, contagens[face], 2_000);
+		}
+	}
+
+	@Test
+	void paradaExplodeEmRodadasERerrolaSoOsResultadosBaixos() {
+		motor.rolarParada(new Random(11), 100_000, 6, 0, 6, null, 0);
+		int[] explosao = motor.copiarContagens();
+		// Cada 6 rola mais um dado: 100000 / (1 - 1/6) dados no total.
+		assertEquals(120_000, motor.getQuantidadeMantida(), 1_500);
+		assertEquals(100_000 + explosao[6], motor.getQuantidadeMantida());
+
+		motor.rolarParada(new Random(11), 90_000, 6, 2, 0, null, 0);
+		// Rerrolando 1 e 2 uma vez, cada um sai com 1/18 e cada face de 3 a 6 com 4/18.
+		assertEquals(5_000, motor.copiarContagens()[1], 500);
+		assertEquals(40_000, motor.contarSucessos(5), 1_000);
+	}
+
+	@Test
+	void paradaParaDeExplodirNoLimiteDeRodadas() {
+		long total = motor.rolarParada(new Random(5), 1, 1024, 0, 2, Modificador.MANTER_MAIOR, 3);
+
+		assertTrue(motor.getQuantidadeMantida() <= 3);
+		assertTrue(total <= 3 * 1024);
+		int[] contagens = motor.copiarContagens();
+		assertEquals(motor.getQuantidadeMantida(), Arrays.stream(contagens).sum());
+
+		motor.rolarParada(new Random(5), 1, 1024, 0, 2, null, 0);
+		assertEquals(MotorRolagem.MAX_RODADAS_EXPLOSAO + 1, motor.getQuantidadeMantida());
+	}
+
+	private int[] rolarSemModificador(int quantidade, int lados, long semente) {
+		motor.rolar(new Random(semente), quantidade, lados, null, 0);
+		return Arrays.copyOf(dadosMantidos(), quantidade);
+	}
+
+	private int[] dadosMantidos() {
+		return motor.copiarDados();
+	}
+}
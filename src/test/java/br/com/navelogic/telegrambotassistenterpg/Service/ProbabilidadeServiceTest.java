@@ -0,0 +1,151 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoProbabilidade;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaDeterministica;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbabilidadeServiceTest {
+
+	private final MetricasBot metricas = new MetricasBot(new SimpleMeterRegistry());
+	private final RolarDadosService rolarDadosService = new RolarDadosService(new FonteAleatoriaDeterministica(42), metricas, 16, 1_000_000, 3_500);
+	private final ProbabilidadeService service = new ProbabilidadeService(rolarDadosService, metricas, 16, 2_000);
+
+	@Test
+	void calculaASomaDeDoisDados() {
+		Distribuicao distribuicao = distribuicao("2d6");
+
+		assertEquals(2, distribuicao.minimo());
+		assertEquals(12, distribuicao.maximo());
+		assertEquals(6 / 36.0, distribuicao.probabilidade(7), 1e-12);
+		assertEquals(1 / 36.0, distribuicao.probabilidade(12), 1e-12);
+		assertEquals(7.0, distribuicao.media(), 1e-12);
+	}
+
+	@Test
+	void calculaManterESoltarComoAEnumeracaoDeTodasAsRolagens() {
+		for (String expressao : new String[]{"4d6sm1", "5d4m2", "5d4mm2", "3d8sM1", "2d20m1", "2d20mm1"}) {
+			double[] esperado = enumerar(expressao);
+			Distribuicao distribuicao = distribuicao(expressao);
+			for (int valor = 0; valor < esperado.length; valor++) {
+				assertEquals(esperado[valor], distribuicao.probabilidade(valor), 1e-12, expressao + " = " + valor);
+			}
+		}
+		assertEquals(12.2446, distribuicao("4d6sm1").media(), 1e-4);
+		assertEquals(13.825, distribuicao("2d20m1").media(), 1e-12);
+		assertEquals(7.175, distribuicao("2d20mm1").media(), 1e-12);
+	}
+
+	@Test
+	void combinaTermosComOperacoes() {
+		Distribuicao diferenca = distribuicao("1d6 - 1d6");
+		assertEquals(-5, diferenca.minimo());
+		assertEquals(6 / 36.0, diferenca.probabilidade(0), 1e-12);
+
+		Distribuicao dobro = distribuicao("1d6 * 2 + 1");
+		assertEquals(3, dobro.minimo());
+		assertEquals(0, dobro.probabilidade(4));
+		assertEquals(1 / 6.0, dobro.probabilidade(5), 1e-12);
+
+		assertThrows(IllegalArgumentException.class, () -> service.calcular("/prob 1d6 / 1d2 - 1d6 / 0"));
+	}
+
+	@Test
+	void guardaAsDistribuicoesDosTermosNoCache() {
+		service.calcular("/prob 4d6sm1");
+		ResultadoProbabilidade resultado = service.calcular("/prob 4d6m3 + 1");
+
+		assertEquals(1, service.getFalhasCache());
+		assertEquals(1, service.getAcertosCache());
+		assertEquals(13.2446, resultado.getMedia(), 1e-4);
+		assertEquals(4, resultado.getMinimo());
+		assertEquals(19, resultado.getMaximo());
+	}
+
+	@Test
+	void calculaGrandesQuantidadesDentroDoOrcamento() {
+		ResultadoProbabilidade resultado = service.calcular("/prob 1000d100m10");
+
+		assertTrue(resultado.getMinimo() >= 10 && resultado.getMaximo() == 1000);
+		assertEquals(resultado.getPercentis()[2], Math.round(resultado.getMedia()), 2);
+		assertEquals(50_500, Math.round(service.calcular("/prob 1000d100").getMedia()));
+		assertThrows(IllegalArgumentException.class, () -> service.calcular("/prob 1000000d1000"));
+		assertThrows(IllegalArgumentException.class, () -> service.calcular("/r 1d20"));
+		assertThrows(IllegalArgumentException.class, () -> service.calcular("/prob 10d10!>=8"));
+	}
+
+	@Test
+	void naoGuardaDistribuicoesGrandesERespeitaOPrazoDentroDeCadaFace() {
+		service.calcular("/prob 1000d100");
+		service.calcular("/prob 1000d100");
+		assertEquals(0, service.getAcertosCache() + service.getFalhasCache());
+
+		ProbabilidadeService rapido = new ProbabilidadeService(rolarDadosService, metricas, 16, 100);
+		long inicio = System.nanoTime();
+		assertThrows(IllegalArgumentException.class, () -> rapido.calcular("/prob 1000d3m570"));
+		assertTrue(System.nanoTime() - inicio < 1_000_000_000L);
+	}
+
+	@Test
+	void recusaCalculosAcimaDoOrcamentoDeMemoriaOuDosSimultaneos() {
+		IllegalArgumentException memoria = assertThrows(IllegalArgumentException.class,
+				() -> service.calcular("/prob 1000d4m900"));
+		assertTrue(memoria.getMessage().contains("memória"), memoria.getMessage());
+		// Cada produto cabe no orçamento, mas os dois juntos não.
+		assertEquals(1_000_000, service.calcular("/prob 1d1000 * 1d1000").getMaximo());
+		assertThrows(IllegalArgumentException.class, () -> service.calcular("/prob 1d1000 * 1d1000 + 1d999 * 1d1000"));
+
+		ProbabilidadeService ocupado = new ProbabilidadeService(rolarDadosService, metricas, 16, 50, 0);
+		IllegalArgumentException simultaneos = assertThrows(IllegalArgumentException.class,
+				() -> ocupado.calcular("/prob 1d6"));
+		assertTrue(simultaneos.getMessage().contains("ao mesmo tempo"), simultaneos.getMessage());
+	}
+
+	@Test
+	void escapaAExpressaoNaResposta() {
+		ResultadoProbabilidade resultado = new ResultadoProbabilidade("1d6 <b>&", 3.5, 1.7, 1, 6, 1, 1 / 6.0,
+				new int[]{1, 2, 3, 5, 6});
+
+		assertTrue(resultado.toString().startsWith("📊 Probabilidades de 1d6 &lt;b&gt;&amp;\n"), resultado.toString());
+	}
+
+	private Distribuicao distribuicao(String expressao) {
+		return service.distribuicao(rolarDadosService.compilar(expressao), System.nanoTime() + 2_000_000_000L);
+	}
+
+	/**
+	 * Distribuição por força bruta de um único termo NdX com modificador.
+	 */
+	private static double[] enumerar(String expressao) {
+		String[] partes = expressao.split("d|(?=[ms])", 3);
+		int quantidade = Integer.parseInt(partes[0]);
+		int lados = Integer.parseInt(partes[1]);
+		String modificador = partes[2].replaceAll("\\d", "");
+		int valorModificador = Integer.parseInt(partes[2].replaceAll("\\D", ""));
+		boolean maiores = modificador.equals("m") || modificador.equals("sm");
+		int mantidos = modificador.startsWith("s") ? quantidade - valorModificador : valorModificador;
+
+		double[] distribuicao = new double[quantidade * lados + 1];
+		int[] dados = new int[quantidade];
+		int combinacoes = (int) Math.pow(lados, quantidade);
+		for (int indice = 0; indice < combinacoes; indice++) {
+			int resto = indice;
+			for (int i = 0; i < quantidade; i++) {
+				dados[i] = resto % lados + 1;
+				resto /= lados;
+			}
+			int[] ordenados = dados.clone();
+			Arrays.sort(ordenados);
+			int soma = 0;
+			for (int i = 0; i < mantidos; i++) {
+				soma += maiores ? ordenados[quantidade - 1 - i] : ordenados[i];
+			}
+			distribuicao[soma] += 1.0 / combinacoes;
+		}
+		return distribuicao;
+	}
+}
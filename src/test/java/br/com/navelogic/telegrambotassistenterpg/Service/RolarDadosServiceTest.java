@@ -0,0 +1,178 @@
+package br.com.navelogic.telegrambotassistenterpg.Service;
+
+import br.com.navelogic.telegrambotassistenterpg.Model.ExpressaoDados;
+import br.com.navelogic.telegrambotassistenterpg.Model.Modificador;
+import br.com.navelogic.telegrambotassistenterpg.Model.ParteResultado;
+import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoDados;
+import br.com.navelogic.telegrambotassistenterpg.Model.ResultadoLote;
+import br.com.navelogic.telegrambotassistenterpg.Util.FonteAleatoriaDeterministica;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RolarDadosServiceTest {
+
+	private final RolarDadosService service = new RolarDadosService(new FonteAleatoriaDeterministica(42),
+			new MetricasBot(new SimpleMeterRegistry()), 16, 1_000_000, 3_500);
+
+	@Test
+	void analisaExpressaoComModificador() {
+		ExpressaoDados expressao = service.compilar("4d6sm1 + 2");
+
+		ExpressaoDados.Operacao operacao = assertInstanceOf(ExpressaoDados.Operacao.class, expressao);
+		assertEquals('+', operacao.operador());
+		assertEquals(new ExpressaoDados.Dados(4, 6, Modificador.SOLTAR_MENOR, 1), operacao.esquerda());
+		assertEquals(new ExpressaoDados.Constante(2), operacao.direita());
+	}
+
+	@Test
+	void reutilizaExpressaoNormalizadaDoCache() {
+		ExpressaoDados primeira = service.compilar("1d20 + 5");
+		ExpressaoDados segunda = service.compilar("1D20+5");
+
+		assertSame(primeira, segunda);
+		assertEquals(1, service.getFalhasCache());
+		assertEquals(1, service.getAcertosCache());
+	}
+
+	@Test
+	void avaliaDaEsquerdaParaADireita() {
+		ResultadoDados resultado = service.rolar("/r 1d1 + 2 * 3");
+
+		assertEquals(9, resultado.getTotal());
+		assertEquals("1 + 2 * 3", resultado.getVisual());
+	}
+
+	@Test
+	void rolaGrandesQuantidadesComoResumoDeFaces() {
+		ResultadoDados resultado = service.rolar("/r 100000d1 + 100000d6m10");
+
+		assertEquals(100060, resultado.getTotal());
+		assertEquals("1×100000 + 6×10", resultado.getVisual());
+	}
+
+	@Test
+	void rejeitaExpressoesInvalidas() {
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 2d"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 2d20x1"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 1d0"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 1000001d6"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 1001d2000"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 1d6 / 0"));
+	}
+
+	@Test
+	void dobraConstantesSoNaAnaliseEMostraAExpressaoDigitada() {
+		ResultadoDados resultado = service.rolar("/r 2 * 3 + 1d1");
+
+		assertEquals(7, resultado.getTotal());
+		assertEquals("2 * 3 + 1", resultado.getVisual());
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 1d20 + 1 / 0"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 1d20 + 65536 * 65536"));
+	}
+
+	@Test
+	void recusaExpressoesCarasOuQuePodemEstourar() {
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 1000d1000000 * 1000d1000000"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 1d20 * 2147483647"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 1d20 / 0d6"));
+		String muitosTermos = "/r 1000d1000000" + " + 1000d1000000".repeat(1000);
+		assertThrows(IllegalArgumentException.class, () -> service.rolar(muitosTermos));
+	}
+
+	@Test
+	void contaSucessosEExplodeSobreAsContagensDeFaces() {
+		assertEquals(new ExpressaoDados.Dados(10, 10, null, 0, 0, 10, 8), service.compilar("10d10!>=8"));
+		assertEquals(new ExpressaoDados.Dados(2, 6, Modificador.MANTER_MAIOR, 1, 1, 5, 5), service.compilar("2d6r1!5m1>4"));
+
+		ResultadoDados sucessos = service.rolar("/r 5d1>=1 + 1");
+		assertEquals(6, sucessos.getTotal());
+		assertEquals("1×5 (5 sucessos) + 1", sucessos.getVisual());
+
+		ResultadoDados explosao = service.rolar("/r 20d6!>=5");
+		ParteResultado.Termo termo = assertInstanceOf(ParteResultado.Termo.class, explosao.getPartes().get(0));
+		int[] contagens = termo.contagens();
+		assertEquals("20d6!≥5", termo.rotulo());
+		assertEquals(20 + contagens[6], termo.quantidade());
+		assertEquals(contagens[5] + contagens[6], explosao.getTotal());
+	}
+
+	@Test
+	void rejeitaOperadoresDeParadaInvalidos() {
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 2d6r6"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 2d6r"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 3d6!1"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 10d10>=11"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 10d10>"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolar("/r 2d2000>=5"));
+	}
+
+	@Test
+	void resumeARespostaQuandoOTextoPassaDoOrcamento() {
+		ResultadoDados resultado = service.rolar("/r 1000d1 + 4d1sm1");
+
+		assertEquals(1003, resultado.getTotal());
+		assertEquals("[1000d1 = 1000] + [4d1sm1 = 3]", resultado.getVisual());
+	}
+
+	@Test
+	void publicaMetricasDoCacheEDaRolagem() {
+		SimpleMeterRegistry registro = new SimpleMeterRegistry();
+		RolarDadosService medido = new RolarDadosService(new FonteAleatoriaDeterministica(1), new MetricasBot(registro), 16,
+				1_000_000, 3_500);
+
+		medido.rolar("/r 4d6sm1");
+		medido.rolar("/r 4d6sm1");
+
+		assertEquals(1, registro.get("dados.cache.expressoes").tag("resultado", "acerto").functionCounter().count());
+		assertEquals(1, registro.get("dados.cache.expressoes").tag("resultado", "falha").functionCounter().count());
+		assertEquals(2, registro.get("bot.etapa").tag("etapa", "rolagem").timer().count());
+		assertEquals(8, registro.get("bot.dados.quantidade").summary().totalAmount());
+	}
+
+	@Test
+	void rolaLoteAnalisandoCadaExpressaoUmaVez() {
+		ResultadoLote lote = service.rolarLote("3# 1d1+5; 2d1");
+
+		assertEquals(2, lote.getGrupos().size());
+		assertEquals("1d1+5", lote.getGrupos().get(0).expressao());
+		assertEquals(List.of(6, 6, 6), lote.getGrupos().get(0).rolagens().stream().map(ResultadoDados::getTotal).toList());
+		assertEquals(2, lote.getGrupos().get(1).rolagens().get(0).getTotal());
+		assertEquals(2, service.getFalhasCache());
+		assertEquals("🎲 <b>1d1+5</b> ×3\n1. <b>6</b>: 1 + 5\n2. <b>6</b>: 1 + 5\n3. <b>6</b>: 1 + 5\n\n🎲 <b>2d1</b>\n<b>2</b>: 1 + 1",
+				lote.toString());
+	}
+
+	@Test
+	void rolaLotesGrandesEmParaleloMantendoAOrdem() {
+		RolarDadosService paralelo = new RolarDadosService(new FonteAleatoriaDeterministica(7),
+				new MetricasBot(new SimpleMeterRegistry()), 16, 1_000_000, 3_500, 1);
+
+		ResultadoLote lote = paralelo.rolarLote("100# 50d6");
+
+		List<ResultadoDados> rolagens = lote.getGrupos().get(0).rolagens();
+		assertEquals(100, rolagens.size());
+		rolagens.forEach(r -> assertTrue(r.getTotal() >= 50 && r.getTotal() <= 300));
+		String texto = lote.toString();
+		assertTrue(texto.length() <= 4096);
+		assertTrue(texto.startsWith("🎲 <b>50d6</b> ×100\n" + rolagens.get(0).getTotal() + ", " + rolagens.get(1).getTotal()));
+	}
+
+	@Test
+	void rejeitaLotesInvalidos() {
+		assertThrows(IllegalArgumentException.class, () -> service.rolarLote("101# 1d20"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolarLote("60# 1d20; 41# 1d6"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolarLote("x# 1d20"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolarLote("3#"));
+		assertThrows(IllegalArgumentException.class, () -> service.rolarLote(" ; "));
+
+		RolarDadosService limitado = new RolarDadosService(new FonteAleatoriaDeterministica(1),
+				new MetricasBot(new SimpleMeterRegistry()), 16, 10_000, 3_500);
+		assertEquals(1, limitado.rolarLote("1000d6").getGrupos().size());
+		assertThrows(IllegalArgumentException.class, () -> limitado.rolarLote("20# 1000d6"));
+	}
+}
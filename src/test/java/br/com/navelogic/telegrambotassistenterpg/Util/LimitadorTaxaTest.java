@@ -0,0 +1,90 @@
+package br.com.navelogic.telegrambotassistenterpg.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static br.com.navelogic.telegrambotassistenterpg.Util.LimitadorTaxa.Decisao.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitadorTaxaTest {
+
+	private static final long SEGUNDO = 1_000_000_000L;
+
+	@Test
+	void avisaUmaVezEDepoisBloqueiaEmSilencio() {
+		LimitadorTaxa limitador = new LimitadorTaxa(3, Duration.ofSeconds(10), 0);
+
+		assertEquals(PERMITIDO, limitador.verificar(1, 0));
+		assertEquals(PERMITIDO, limitador.verificar(1, 1));
+		assertEquals(PERMITIDO, limitador.verificar(1, 2));
+		assertEquals(AVISAR, limitador.verificar(1, 3));
+		assertEquals(BLOQUEADO, limitador.verificar(1, 4));
+		assertEquals(BLOQUEADO, limitador.verificar(1, 5));
+		assertEquals(PERMITIDO, limitador.verificar(2, 6));
+	}
+
+	@Test
+	void consideraAJanelaAnteriorProporcionalmente() {
+		LimitadorTaxa limitador = new LimitadorTaxa(4, Duration.ofSeconds(10), 0);
+		for (int i = 0; i < 4; i++) {
+			limitador.verificar(1, 9 * SEGUNDO);
+		}
+
+		// 2,5 s na janela seguinte: 4 × 0,75 = 3 ainda contam, então só cabe mais uma.
+		assertEquals(PERMITIDO, limitador.verificar(1, 12_500_000_000L));
+		assertEquals(AVISAR, limitador.verificar(1, 12_500_000_000L));
+		// Metade da janela seguinte: 4 × 0,5 + 1 = 3, volta a permitir e rearma o aviso.
+		assertEquals(PERMITIDO, limitador.verificar(1, 15 * SEGUNDO));
+		assertEquals(AVISAR, limitador.verificar(1, 15 * SEGUNDO));
+		assertEquals(PERMITIDO, limitador.verificar(1, 30 * SEGUNDO));
+	}
+
+	@Test
+	void removeChavesOciosas() {
+		LimitadorTaxa limitador = new LimitadorTaxa(5, Duration.ofSeconds(1), 0);
+		for (long chave = 0; chave < 1000; chave++) {
+			limitador.verificar(chave, 0);
+		}
+		assertEquals(1000, limitador.tamanho());
+
+		limitador.verificar(-1, 3 * SEGUNDO);
+
+		assertEquals(1, limitador.tamanho());
+	}
+
+	@Test
+	void naoPermiteMaisQueOLimiteComThreadsConcorrentes() throws Exception {
+		LimitadorTaxa limitador = new LimitadorTaxa(100, Duration.ofSeconds(60), 0);
+		AtomicInteger permitidas = new AtomicInteger();
+		AtomicInteger avisos = new AtomicInteger();
+		CountDownLatch largada = new CountDownLatch(1);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = Thread.ofPlatform().start(() -> {
+				try {
+					largada.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < 1000; i++) {
+					switch (limitador.verificar(42, SEGUNDO)) {
+						case PERMITIDO -> permitidas.incrementAndGet();
+						case AVISAR -> avisos.incrementAndGet();
+						case BLOQUEADO -> {
+						}
+					}
+				}
+			});
+		}
+		largada.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(100, permitidas.get());
+		assertEquals(1, avisos.get());
+	}
+}